@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utilities.helperFunctions;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Where the CWEs of a finding come from, set with the {@code cwe-resolution.mode} property.
+ */
+public enum CweResolutionMode {
+    /** Every finding is looked up through the resolver chain (default) */
+    DATABASE,
+    /**
+     * CWEs reported in the tool payload (Trivy's CweIDs) are used as is, and GHSA ids are looked up through a CVE
+     * alias reported by the tool (Grype's relatedVulnerabilities) when there is one. The resolver chain is only
+     * queried for the remaining findings.
+     */
+    PAYLOAD_FIRST;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CweResolutionMode.class);
+
+    /**
+     * @param prop properties holding {@code cwe-resolution.mode}, either {@code database} or {@code payload-first}
+     */
+    public static CweResolutionMode fromProperties(Properties prop) {
+        String mode = prop.getProperty("cwe-resolution.mode", "database").trim();
+        if (mode.equalsIgnoreCase("payload-first")) {
+            return PAYLOAD_FIRST;
+        }
+        if (!mode.isEmpty() && !mode.equalsIgnoreCase("database")) {
+            LOGGER.warn("Unknown cwe-resolution.mode {}, using database", mode);
+        }
+        return DATABASE;
+    }
+
+    /**
+     * @param propertiesPath properties file to read, or null/empty for the PIQUE default
+     */
+    public static CweResolutionMode fromProperties(String propertiesPath) {
+        try {
+            return fromProperties(helperFunctions.getProperties(propertiesPath));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read properties from {}, using database CWE resolution", propertiesPath);
+            return DATABASE;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import presentation.PiqueData;
+import utilities.helperFunctions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the chain of CWE resolvers described by a properties file. Without any CWE related properties the
+ * chain is a persistent on-disk cache in front of a rate limited NVD mirror.
+ *
+ * <ul>
+ *     <li>{@code cwe-snapshot.path} - offline snapshot index built with {@link runnable.CweSnapshotImporter}. When
+ *     set, CWEs are read from the snapshot only and the NVD mirror, rate limiter and cache are not used.</li>
+ *     <li>{@code cwe-resolver.ghsa-rate-per-second} - sustained rate of GHSA lookups (default 2)</li>
+ *     <li>{@code cwe-resolver.ghsa-burst} - GHSA lookups allowed back to back after an idle period (default 4)</li>
+ *     <li>{@code cwe-resolver.ghsa-concurrency} - GHSA lookups in progress at the same time (default 4)</li>
+ *     <li>{@code cwe-cache.enabled} - whether to keep resolved CWEs on disk between runs (default true)</li>
+ *     <li>{@code cwe-cache.path} - cache file location (default {@code <results.directory>/cache/cwe-cache.tsv})</li>
+ *     <li>{@code cwe-cache.ttl-hours} - hours before a cached entry is re-resolved, 0 to never expire (default 168)</li>
+ *     <li>{@code cwe-cache.source-version} - version of the NVD mirror, e.g. its last-modified timestamp. Changing
+ *     it discards the cache.</li>
+ * </ul>
+ *
+ * <p>Chains and caches live until {@link #closeAll()} is called at the end of a run.</p>
+ */
+public class CweResolverFactory {
+    private static final Map<ChainKey, ICweResolver> RESOLVER_CHAINS = new ConcurrentHashMap<>();
+    private static final Map<Path, SourceCache> PERSISTENT_CACHES = new ConcurrentHashMap<>();
+    private static final Set<RateLimitedCweResolver> RATE_LIMITERS = ConcurrentHashMap.newKeySet();
+    private static final Logger LOGGER = LoggerFactory.getLogger(CweResolverFactory.class);
+
+    private CweResolverFactory() {
+    }
+
+    /**
+     * Returns the resolver chain for the given NVD mirror connection and properties file. The chain is built once per
+     * connection and properties file and shared by every caller, so all tools of a run go through the same rate
+     * limiter, and persistent caches are shared by every chain of the connection pointing at the same cache file. A
+     * cache file already in use by another connection is left alone and the chain resolves without it.
+     *
+     * @param piqueData connection to the NVD mirror
+     * @param propertiesPath properties file to read, or null/empty for the PIQUE default
+     * @return resolver to hand to {@link tool.VulnerabilityService}
+     */
+    public static ICweResolver fromProperties(PiqueData piqueData, String propertiesPath) {
+        return RESOLVER_CHAINS.computeIfAbsent(new ChainKey(piqueData, propertiesPath == null ? "" : propertiesPath),
+                key -> buildChain(piqueData, propertiesPath));
+    }
+
+    /**
+     * Closes the persistent cache files and stops the rate limiters' worker threads of every chain built so far. Chains
+     * requested afterwards are built anew.
+     */
+    public static void closeAll() {
+        RESOLVER_CHAINS.clear();
+        PERSISTENT_CACHES.values().forEach(owned -> owned.cache.close());
+        PERSISTENT_CACHES.clear();
+        RATE_LIMITERS.forEach(RateLimitedCweResolver::close);
+        RATE_LIMITERS.clear();
+    }
+
+    private static ICweResolver buildChain(PiqueData piqueData, String propertiesPath) {
+        Properties prop = new Properties();
+        try {
+            prop = helperFunctions.getProperties(propertiesPath);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read properties from {}, using default CWE resolver settings", propertiesPath);
+        }
+
+        String snapshotPath = prop.getProperty("cwe-snapshot.path", "").trim();
+        if (!snapshotPath.isEmpty()) {
+            try {
+                return new SnapshotCweResolver(Paths.get(snapshotPath));
+            } catch (IOException e) {
+                LOGGER.warn("Unable to open CWE snapshot {}, falling back to the NVD mirror", snapshotPath, e);
+            }
+        }
+
+        RateLimitedCweResolver rateLimiter = new RateLimitedCweResolver(new PiqueDataCweResolver(piqueData),
+                Double.parseDouble(prop.getProperty("cwe-resolver.ghsa-rate-per-second", "2").trim()),
+                Integer.parseInt(prop.getProperty("cwe-resolver.ghsa-burst", "4").trim()),
+                Integer.parseInt(prop.getProperty("cwe-resolver.ghsa-concurrency", "4").trim()));
+        RATE_LIMITERS.add(rateLimiter);
+        ICweResolver resolver = rateLimiter;
+
+        if (Boolean.parseBoolean(prop.getProperty("cwe-cache.enabled", "true"))) {
+            String defaultCachePath = Paths.get(prop.getProperty("results.directory", "out"), "cache", "cwe-cache.tsv").toString();
+            Path cacheFile = Paths.get(prop.getProperty("cwe-cache.path", defaultCachePath)).toAbsolutePath().normalize();
+            String sourceVersion = prop.getProperty("cwe-cache.source-version", "");
+            Duration ttl = Duration.ofHours(Long.parseLong(prop.getProperty("cwe-cache.ttl-hours", "168").trim()));
+
+            ICweResolver source = resolver;
+            SourceCache owned = PERSISTENT_CACHES.computeIfAbsent(cacheFile,
+                    file -> new SourceCache(piqueData, new PersistentCweCache(source, file, sourceVersion, ttl)));
+            if (owned.piqueData == piqueData) {
+                resolver = owned.cache;
+            }
+            else {
+                LOGGER.warn("CWE cache file {} is used with another NVD mirror connection, resolving without it", cacheFile);
+            }
+        }
+
+        return resolver;
+    }
+
+    /**
+     * A persistent cache and the connection it resolves its misses with
+     */
+    private static final class SourceCache {
+        private final PiqueData piqueData;
+        private final PersistentCweCache cache;
+
+        private SourceCache(PiqueData piqueData, PersistentCweCache cache) {
+            this.piqueData = piqueData;
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * A connection, compared by identity, and the properties file read with it
+     */
+    private static final class ChainKey {
+        private final PiqueData piqueData;
+        private final String propertiesPath;
+
+        private ChainKey(PiqueData piqueData, String propertiesPath) {
+            this.piqueData = piqueData;
+            this.propertiesPath = propertiesPath;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ChainKey)) {
+                return false;
+            }
+            ChainKey key = (ChainKey) other;
+            return piqueData == key.piqueData && propertiesPath.equals(key.propertiesPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(piqueData) + propertiesPath.hashCode();
+        }
+    }
+}
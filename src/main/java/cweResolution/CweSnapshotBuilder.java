@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts NVD JSON feeds and GitHub advisory database dumps into the read-only index used by
+ * {@link SnapshotCweResolver}.
+ *
+ * <p>Supported inputs:</p>
+ * <ul>
+ *     <li>NVD 1.1 feeds ({@code CVE_Items[].cve.problemtype}) and NVD 2.0 feeds or API responses
+ *     ({@code vulnerabilities[].cve.weaknesses}), optionally gzip compressed</li>
+ *     <li>GitHub advisory database checkouts or any directory of OSV advisories
+ *     ({@code id} plus {@code database_specific.cwe_ids})</li>
+ * </ul>
+ *
+ * <p>Index layout (big endian): a 12 byte header of magic, format version and entry count, followed by one
+ * 16 byte record per entry (key offset, key length, value offset, value length) sorted by key bytes, followed by
+ * the data section holding the ASCII keys and comma separated CWE lists the records point into.</p>
+ */
+public class CweSnapshotBuilder {
+    static final int MAGIC = 0x50514357; // "PQCW"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 12;
+    static final int RECORD_BYTES = 16;
+    private static final Logger LOGGER = LoggerFactory.getLogger(CweSnapshotBuilder.class);
+
+    private final Map<String, Set<String>> cwesById = new TreeMap<>();
+
+    /**
+     * Adds every CVE of an NVD JSON feed (1.1 or 2.0 format). The feed is streamed one item at a time.
+     *
+     * @param feed path to a .json or .json.gz feed
+     * @return number of CVEs read from the feed
+     * @throws IOException if the feed cannot be read or is not an NVD feed
+     */
+    public int addNvdFeed(Path feed) throws IOException {
+        int count = 0;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(open(feed), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ((name.equals("CVE_Items") || name.equals("vulnerabilities")) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        JsonObject item = JsonParser.parseReader(reader).getAsJsonObject();
+                        count += name.equals("CVE_Items") ? addNvd11Item(item) : addNvd20Item(item);
+                    }
+                    reader.endArray();
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Not an NVD JSON feed: " + feed, e);
+        }
+        LOGGER.info("Read {} CVEs from {}", count, feed);
+        return count;
+    }
+
+    /**
+     * Adds every GHSA advisory found below a directory (e.g. a checkout of github/advisory-database).
+     *
+     * @param advisoryRoot directory to walk for OSV advisory .json files
+     * @return number of advisories with at least one CWE
+     * @throws IOException if the directory cannot be walked
+     */
+    public int addGithubAdvisories(Path advisoryRoot) throws IOException {
+        List<Path> advisories;
+        try (Stream<Path> files = Files.walk(advisoryRoot)) {
+            advisories = files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().startsWith("GHSA-"))
+                    .filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .collect(Collectors.toList());
+        }
+
+        int count = 0;
+        for (Path advisory : advisories) {
+            try (InputStreamReader reader = new InputStreamReader(open(advisory), StandardCharsets.UTF_8)) {
+                JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+                JsonObject databaseSpecific = json.getAsJsonObject("database_specific");
+                if (json.has("id") && databaseSpecific != null && databaseSpecific.has("cwe_ids")) {
+                    List<String> cwes = new ArrayList<>();
+                    databaseSpecific.getAsJsonArray("cwe_ids").forEach(cwe -> cwes.add(cwe.getAsString()));
+                    if (!cwes.isEmpty()) {
+                        put(json.get("id").getAsString(), cwes);
+                        count++;
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Skipping unreadable advisory {}", advisory, e);
+            }
+        }
+        LOGGER.info("Read {} GHSA advisories with CWEs from {}", count, advisoryRoot);
+        return count;
+    }
+
+    /**
+     * Adds or extends the CWE list for one vulnerability id.
+     */
+    public void put(String vulnId, List<String> cwes) {
+        String key = vulnId.trim();
+        if (key.isEmpty() || !StandardCharsets.US_ASCII.newEncoder().canEncode(key)) {
+            return;
+        }
+        Set<String> existing = cwesById.computeIfAbsent(key, k -> new LinkedHashSet<>());
+        cwes.stream().map(String::trim).filter(cwe -> !cwe.isEmpty()).forEach(existing::add);
+    }
+
+    /**
+     * @return number of distinct vulnerability ids collected so far
+     */
+    public int size() {
+        return cwesById.size();
+    }
+
+    /**
+     * Writes the index. The file is written next to the target and moved into place, so readers mapping an
+     * older index are never handed a partially written file.
+     *
+     * @param output location of the index file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path output) throws IOException {
+        List<byte[]> keys = new ArrayList<>(cwesById.size());
+        List<byte[]> values = new ArrayList<>(cwesById.size());
+        cwesById.forEach((id, cwes) -> {
+            keys.add(id.getBytes(StandardCharsets.US_ASCII));
+            values.add(String.join(",", cwes).getBytes(StandardCharsets.US_ASCII));
+        });
+
+        if (output.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+        }
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(keys.size());
+
+            int offset = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                out.writeInt(offset);
+                out.writeInt(keys.get(i).length);
+                offset += keys.get(i).length;
+                out.writeInt(offset);
+                out.writeInt(values.get(i).length);
+                offset += values.get(i).length;
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                out.write(keys.get(i));
+                out.write(values.get(i));
+            }
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info("Wrote CWE snapshot with {} entries to {}", keys.size(), output);
+    }
+
+    private int addNvd11Item(JsonObject item) {
+        JsonObject cve = item.getAsJsonObject("cve");
+        if (cve == null || cve.getAsJsonObject("CVE_data_meta") == null) {
+            return 0;
+        }
+        List<String> cwes = new ArrayList<>();
+        JsonObject problemType = cve.getAsJsonObject("problemtype");
+        if (problemType != null && problemType.has("problemtype_data")) {
+            for (JsonElement data : problemType.getAsJsonArray("problemtype_data")) {
+                addDescriptionValues(data.getAsJsonObject().getAsJsonArray("description"), cwes);
+            }
+        }
+        put(cve.getAsJsonObject("CVE_data_meta").get("ID").getAsString(), cwes);
+        return 1;
+    }
+
+    private int addNvd20Item(JsonObject item) {
+        JsonObject cve = item.getAsJsonObject("cve");
+        if (cve == null || !cve.has("id")) {
+            return 0;
+        }
+        List<String> cwes = new ArrayList<>();
+        if (cve.has("weaknesses")) {
+            for (JsonElement weakness : cve.getAsJsonArray("weaknesses")) {
+                addDescriptionValues(weakness.getAsJsonObject().getAsJsonArray("description"), cwes);
+            }
+        }
+        put(cve.get("id").getAsString(), cwes);
+        return 1;
+    }
+
+    private static void addDescriptionValues(JsonArray descriptions, List<String> cwes) {
+        if (descriptions == null) {
+            return;
+        }
+        for (JsonElement description : descriptions) {
+            JsonElement value = description.getAsJsonObject().get("value");
+            if (value != null) {
+                cwes.add(value.getAsString());
+            }
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in) : in;
+    }
+}
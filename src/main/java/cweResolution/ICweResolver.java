@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves a vulnerability identifier (CVE or GHSA) to the list of CWE identifiers associated with it.
+ * Implementations are either a source of truth (the NVD mirror behind PiqueData) or decorators that
+ * sit in front of one, such as caches.
+ */
+public interface ICweResolver {
+
+    /**
+     * Resolves the CWEs for a single vulnerability.
+     *
+     * @param vulnId CVE or GHSA identifier as reported by the tool
+     * @return the CWE identifiers for the vulnerability, empty if the source knows of none
+     * @throws CweLookupException if the source could not be queried; failed lookups must not be cached
+     */
+    List<String> resolve(String vulnId);
+
+    /**
+     * Resolves the CWEs for many vulnerabilities at once. Implementations backed by a cache or a source with
+     * a bulk query should override this so the whole batch costs as few round trips as possible.
+     *
+     * @param vulnIds CVE or GHSA identifiers, duplicates are resolved once
+     * @return CWE identifiers keyed by vulnerability id. Ids whose lookup failed are left out of the map.
+     */
+    default Map<String, List<String>> resolveAll(Collection<String> vulnIds) {
+        Map<String, List<String>> resolved = new HashMap<>();
+        for (String vulnId : vulnIds) {
+            if (resolved.containsKey(vulnId)) {
+                continue;
+            }
+            try {
+                resolved.put(vulnId, resolve(vulnId));
+            } catch (CweLookupException e) {
+                LoggerFactory.getLogger(getClass()).warn("Call failed with error ", e.getCause());
+            }
+        }
+        return resolved;
+    }
+}
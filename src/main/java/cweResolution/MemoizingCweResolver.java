@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run-scoped memo in front of a resolver chain. One instance is owned by an evaluation or derivation run and
+ * shared by every tool wrapper, so a vulnerability reported by several scanners, or in several SBOMs, is looked
+ * up once per run. Concurrent requests for the same id are collapsed into a single lookup (single flight).
+ *
+ * <p>Failed lookups are not memoized; a later request for the same id tries again.</p>
+ */
+public class MemoizingCweResolver implements ICweResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoizingCweResolver.class);
+
+    private final ICweResolver delegate;
+    private final Map<String, CompletableFuture<List<String>>> memo = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param delegate resolver chain that performs lookups on a miss
+     */
+    public MemoizingCweResolver(ICweResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<String> resolve(String vulnId) {
+        CompletableFuture<List<String>> created = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = memo.putIfAbsent(vulnId, created);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return await(vulnId, existing);
+        }
+
+        misses.incrementAndGet();
+        try {
+            List<String> cwes = delegate.resolve(vulnId);
+            created.complete(cwes);
+            return cwes;
+        } catch (RuntimeException e) {
+            fail(vulnId, created, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves the ids nobody has requested yet in one batch through the delegate, and waits for the ids
+     * already resolved or in progress on other threads.
+     */
+    @Override
+    public Map<String, List<String>> resolveAll(Collection<String> vulnIds) {
+        Map<String, CompletableFuture<List<String>>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<List<String>>> shared = new LinkedHashMap<>();
+        for (String vulnId : vulnIds) {
+            if (owned.containsKey(vulnId) || shared.containsKey(vulnId)) {
+                continue;
+            }
+            CompletableFuture<List<String>> created = new CompletableFuture<>();
+            CompletableFuture<List<String>> existing = memo.putIfAbsent(vulnId, created);
+            if (existing == null) {
+                misses.incrementAndGet();
+                owned.put(vulnId, created);
+            }
+            else {
+                hits.incrementAndGet();
+                shared.put(vulnId, existing);
+            }
+        }
+
+        Map<String, List<String>> resolved = new HashMap<>();
+        if (!owned.isEmpty()) {
+            Map<String, List<String>> fetched;
+            try {
+                fetched = delegate.resolveAll(new ArrayList<>(owned.keySet()));
+            } catch (RuntimeException e) {
+                owned.forEach((vulnId, future) -> fail(vulnId, future, e));
+                throw e;
+            }
+            owned.forEach((vulnId, future) -> {
+                List<String> cwes = fetched.get(vulnId);
+                if (cwes != null) {
+                    future.complete(cwes);
+                    resolved.put(vulnId, cwes);
+                }
+                else {
+                    // the delegate has already logged the failure
+                    fail(vulnId, future, new CweLookupException(vulnId, new IllegalStateException("lookup failed")));
+                }
+            });
+        }
+
+        shared.forEach((vulnId, future) -> {
+            try {
+                resolved.put(vulnId, future.join());
+            } catch (CompletionException e) {
+                LOGGER.warn("Call failed with error ", e.getCause());
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * @return number of requests answered from the memo, including requests that waited for a lookup in progress
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests that had to be passed to the delegate
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of distinct ids currently memoized or in progress
+     */
+    public int size() {
+        return memo.size();
+    }
+
+    @Override
+    public String toString() {
+        return "MemoizingCweResolver{entries=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + "}";
+    }
+
+    private List<String> await(String vulnId, CompletableFuture<List<String>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CweLookupException) {
+                throw (CweLookupException) e.getCause();
+            }
+            throw new CweLookupException(vulnId, e.getCause());
+        }
+    }
+
+    private void fail(String vulnId, CompletableFuture<List<String>> future, RuntimeException cause) {
+        memo.remove(vulnId, future);
+        future.completeExceptionally(cause instanceof CweLookupException ? cause : new CweLookupException(vulnId, cause));
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk CWE mapping cache consulted before the wrapped resolver, so CWEs resolved in one run are reused by
+ * the next instead of being fetched from the NVD mirror again.
+ *
+ * <p>The cache is a tab separated, append-only text file. The first line is a header carrying the file format
+ * version and the version of the source it was built from; each following line is
+ * {@code <vulnerability id> \t <resolved at, epoch millis> \t <comma separated CWEs>}. Later lines win over
+ * earlier ones for the same id. The whole file is discarded when the format or source version changes (for
+ * example when the NVD mirror is re-hydrated), and individual entries expire after the configured time to live.
+ * Failed lookups are never written.</p>
+ */
+public class PersistentCweCache implements ICweResolver {
+    private static final String FORMAT_VERSION = "1";
+    private static final String HEADER_PREFIX = "# pique-cwe-cache v";
+    private static final String SOURCE_MARKER = " source=";
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentCweCache.class);
+
+    private final ICweResolver delegate;
+    private final Path cacheFile;
+    private final String sourceVersion;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    /**
+     * Opens (or creates) the cache file and loads all entries that are still valid.
+     *
+     * @param delegate resolver queried on a cache miss
+     * @param cacheFile location of the cache file, parent directories are created as needed
+     * @param sourceVersion version of the CWE source, e.g. the NVD mirror's last-modified timestamp. A cache
+     *                      written against a different version is discarded.
+     * @param timeToLive how long an entry stays valid, zero or negative to never expire entries
+     */
+    public PersistentCweCache(ICweResolver delegate, Path cacheFile, String sourceVersion, Duration timeToLive) {
+        this.delegate = delegate;
+        this.cacheFile = cacheFile;
+        this.sourceVersion = sourceVersion == null ? "" : sourceVersion.trim();
+        this.ttlMillis = timeToLive == null || timeToLive.isNegative() ? 0 : timeToLive.toMillis();
+        load();
+    }
+
+    @Override
+    public List<String> resolve(String vulnId) {
+        Entry cached = entries.get(vulnId);
+        if (cached != null && !isExpired(cached, System.currentTimeMillis())) {
+            return cached.cwes;
+        }
+
+        List<String> cwes = Collections.unmodifiableList(delegate.resolve(vulnId));
+        Entry resolved = new Entry(System.currentTimeMillis(), cwes);
+        entries.put(vulnId, resolved);
+        append(Collections.singletonMap(vulnId, resolved));
+        return cwes;
+    }
+
+    /**
+     * Answers every cached id from memory and hands only the misses to the wrapped resolver as a single batch.
+     */
+    @Override
+    public Map<String, List<String>> resolveAll(Collection<String> vulnIds) {
+        Map<String, List<String>> resolved = new HashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+
+        for (String vulnId : vulnIds) {
+            Entry cached = entries.get(vulnId);
+            if (cached != null && !isExpired(cached, now)) {
+                resolved.put(vulnId, cached.cwes);
+            }
+            else {
+                misses.add(vulnId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<String, Entry> fetched = new LinkedHashMap<>();
+            delegate.resolveAll(misses).forEach((vulnId, cwes) -> {
+                Entry entry = new Entry(System.currentTimeMillis(), Collections.unmodifiableList(cwes));
+                entries.put(vulnId, entry);
+                fetched.put(vulnId, entry);
+                resolved.put(vulnId, entry.cwes);
+            });
+            append(fetched);
+        }
+        LOGGER.debug("Resolved {} CWE mappings, {} of them missed the cache", resolved.size(), misses.size());
+
+        return resolved;
+    }
+
+    /**
+     * @return number of valid entries currently held by the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Flushes and closes the underlying file. Lookups still work afterwards but are no longer persisted.
+     */
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to close CWE cache file {}", cacheFile, e);
+            }
+            writer = null;
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.resolvedAt > ttlMillis;
+    }
+
+    private String header() {
+        return HEADER_PREFIX + FORMAT_VERSION + SOURCE_MARKER + sourceVersion;
+    }
+
+    /**
+     * Reads the cache file into memory. Files with a different header are replaced, and the file is compacted
+     * when most of its lines are expired or superseded.
+     */
+    private void load() {
+        int lines = 0;
+        boolean reusable = false;
+        long now = System.currentTimeMillis();
+
+        if (Files.isRegularFile(cacheFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                reusable = header().equals(line);
+                while (reusable && (line = reader.readLine()) != null) {
+                    lines++;
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length != 3) {
+                        continue;
+                    }
+                    try {
+                        Entry entry = new Entry(Long.parseLong(fields[1]), parseCwes(fields[2]));
+                        if (!isExpired(entry, now)) {
+                            entries.put(fields[0], entry);
+                        }
+                        else {
+                            entries.remove(fields[0]);
+                        }
+                    } catch (NumberFormatException e) {
+                        LOGGER.debug("Skipping malformed CWE cache line: {}", line);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read CWE cache file {}, starting with an empty cache", cacheFile, e);
+                entries.clear();
+                reusable = false;
+            }
+            if (!reusable) {
+                LOGGER.info("CWE cache {} was written for a different source version, discarding it", cacheFile);
+            }
+        }
+
+        try {
+            if (cacheFile.getParent() != null) {
+                Files.createDirectories(cacheFile.getParent());
+            }
+            if (!reusable || lines > 2 * entries.size() + 1024) {
+                rewrite();
+            }
+            writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to open CWE cache file {}, CWEs will only be cached for this run", cacheFile, e);
+        }
+        LOGGER.info("Loaded {} cached CWE mappings from {}", entries.size(), cacheFile);
+    }
+
+    private void rewrite() throws IOException {
+        Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(header());
+            out.newLine();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.write(formatLine(entry.getKey(), entry.getValue()));
+                out.newLine();
+            }
+        }
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private synchronized void append(Map<String, Entry> newEntries) {
+        if (writer == null || newEntries.isEmpty()) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, Entry> entry : newEntries.entrySet()) {
+                writer.write(formatLine(entry.getKey(), entry.getValue()));
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write to CWE cache file {}, disabling persistence for this run", cacheFile, e);
+            close();
+        }
+    }
+
+    private static String formatLine(String vulnId, Entry entry) {
+        return vulnId + "\t" + entry.resolvedAt + "\t" + String.join(",", entry.cwes);
+    }
+
+    private static List<String> parseCwes(String field) {
+        if (field.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(field.split(",")));
+    }
+
+    private static final class Entry {
+        private final long resolvedAt;
+        private final List<String> cwes;
+
+        private Entry(long resolvedAt, List<String> cwes) {
+            this.resolvedAt = resolvedAt;
+            this.cwes = cwes;
+        }
+    }
+}
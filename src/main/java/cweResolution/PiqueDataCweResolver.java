@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import exceptions.ApiCallException;
+import exceptions.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import presentation.PiqueData;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves CWEs directly against the NVD mirror through {@link PiqueData}. Every call is a database or API
+ * round trip, so this is normally wrapped by one of the caching resolvers, and GHSA lookups are throttled by
+ * {@link RateLimitedCweResolver}.
+ */
+public class PiqueDataCweResolver implements ICweResolver {
+    private final PiqueData piqueData;
+    private static final Logger LOGGER = LoggerFactory.getLogger(PiqueDataCweResolver.class);
+
+    public PiqueDataCweResolver(PiqueData piqueData) {
+        this.piqueData = piqueData;
+    }
+
+    @Override
+    public List<String> resolve(String vulnId) {
+        List<String> cwes;
+        try {
+            if (vulnId.contains("GHSA")) {
+                cwes = piqueData.getCweIdsFromGhsa(vulnId);
+            }
+            else if (vulnId.contains("CVE")) {
+                cwes = piqueData.getCweName(vulnId);
+            }
+            else {
+                System.out.println("Skipping - unknown vulnerability ID format: " + vulnId);
+                LOGGER.warn("Skipping - unknown vulnerability ID format: {}", vulnId);
+                cwes = Collections.emptyList();
+            }
+        } catch (ApiCallException | DataAccessException | IndexOutOfBoundsException | NullPointerException e) {
+            throw new CweLookupException(vulnId, e);
+        }
+
+        return cwes == null ? Collections.emptyList() : cwes;
+    }
+}
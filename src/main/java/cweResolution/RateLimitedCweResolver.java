@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs GHSA lookups concurrently behind a token bucket, replacing the fixed 500 ms pause that used to precede
+ * every GHSA lookup. Only lookups that reach the wrapped resolver are throttled: put this resolver underneath
+ * any cache so cache hits never wait. CVE lookups are passed straight through.
+ *
+ * <p>Concurrent requests for the same GHSA id share one lookup.</p>
+ */
+public class RateLimitedCweResolver implements ICweResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitedCweResolver.class);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ICweResolver delegate;
+    private final TokenBucket tokenBucket;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate resolver that performs the actual lookups
+     * @param permitsPerSecond sustained rate of GHSA lookups
+     * @param burst number of GHSA lookups allowed back to back
+     * @param concurrency maximum number of GHSA lookups in progress at the same time
+     */
+    public RateLimitedCweResolver(ICweResolver delegate, double permitsPerSecond, int burst, int concurrency) {
+        this.delegate = delegate;
+        this.tokenBucket = new TokenBucket(permitsPerSecond, burst);
+        int threads = Math.max(1, concurrency);
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ghsa-resolver-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public List<String> resolve(String vulnId) {
+        if (!isThrottled(vulnId)) {
+            return delegate.resolve(vulnId);
+        }
+        try {
+            return submit(vulnId).get();
+        } catch (ExecutionException e) {
+            throw unwrap(vulnId, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CweLookupException(vulnId, e);
+        }
+    }
+
+    /**
+     * Submits every GHSA id to the worker pool first and resolves the remaining ids in one batch on the calling
+     * thread while the GHSA lookups run.
+     */
+    @Override
+    public Map<String, List<String>> resolveAll(Collection<String> vulnIds) {
+        Map<String, CompletableFuture<List<String>>> pending = new LinkedHashMap<>();
+        List<String> unthrottled = new ArrayList<>();
+        for (String vulnId : vulnIds) {
+            if (isThrottled(vulnId)) {
+                pending.computeIfAbsent(vulnId, this::submit);
+            }
+            else {
+                unthrottled.add(vulnId);
+            }
+        }
+
+        Map<String, List<String>> resolved = new HashMap<>(delegate.resolveAll(unthrottled));
+        for (Map.Entry<String, CompletableFuture<List<String>>> entry : pending.entrySet()) {
+            try {
+                resolved.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                LOGGER.warn("Call failed with error ", unwrap(entry.getKey(), e.getCause()).getCause());
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Stops the worker threads. Lookups in progress are allowed to finish.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    private boolean isThrottled(String vulnId) {
+        return vulnId.contains("GHSA");
+    }
+
+    /**
+     * Returns the in-flight lookup for vulnId, starting one if none is running.
+     */
+    private CompletableFuture<List<String>> submit(String vulnId) {
+        CompletableFuture<List<String>> created = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = inFlight.putIfAbsent(vulnId, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        executor.execute(() -> {
+            try {
+                tokenBucket.acquire();
+                created.complete(delegate.resolve(vulnId));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                created.completeExceptionally(new CweLookupException(vulnId, e));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(vulnId, created);
+            }
+        });
+        return created;
+    }
+
+    private static CweLookupException unwrap(String vulnId, Throwable cause) {
+        if (cause instanceof CweLookupException) {
+            return (CweLookupException) cause;
+        }
+        return new CweLookupException(vulnId, cause);
+    }
+}
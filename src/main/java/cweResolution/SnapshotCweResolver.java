@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cweResolution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves CWEs from an offline snapshot index built by {@link CweSnapshotBuilder}, replacing the NVD mirror
+ * database. The index is memory-mapped read-only, so lookups are a binary search over the mapped file without
+ * any parsing or allocation beyond the result, and every JVM on the host shares the same pages of the OS page
+ * cache.
+ *
+ * <p>Ids missing from the snapshot resolve to an empty list, the same answer the mirror gives for a
+ * vulnerability without CWEs.</p>
+ */
+public class SnapshotCweResolver implements ICweResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotCweResolver.class);
+
+    private final MappedByteBuffer index;
+    private final int entryCount;
+    private final int dataStart;
+
+    /**
+     * Maps the snapshot index at the given location.
+     *
+     * @param snapshotFile index file written by {@link CweSnapshotBuilder#write(Path)}
+     * @throws IOException if the file cannot be mapped or is not a CWE snapshot
+     */
+    public SnapshotCweResolver(Path snapshotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            if (channel.size() < CweSnapshotBuilder.HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a CWE snapshot: " + snapshotFile);
+            }
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (index.getInt(0) != CweSnapshotBuilder.MAGIC || index.getInt(4) != CweSnapshotBuilder.FORMAT_VERSION) {
+            throw new IOException("Not a CWE snapshot or unsupported snapshot version: " + snapshotFile);
+        }
+        entryCount = index.getInt(8);
+        dataStart = CweSnapshotBuilder.HEADER_BYTES + entryCount * CweSnapshotBuilder.RECORD_BYTES;
+        LOGGER.info("Mapped CWE snapshot {} with {} entries", snapshotFile, entryCount);
+    }
+
+    @Override
+    public List<String> resolve(String vulnId) {
+        byte[] key = vulnId.trim().getBytes(StandardCharsets.US_ASCII);
+
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = CweSnapshotBuilder.HEADER_BYTES + mid * CweSnapshotBuilder.RECORD_BYTES;
+            int comparison = compareKey(index.getInt(record), index.getInt(record + 4), key);
+            if (comparison < 0) {
+                low = mid + 1;
+            }
+            else if (comparison > 0) {
+                high = mid - 1;
+            }
+            else {
+                return readValue(index.getInt(record + 8), index.getInt(record + 12));
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return number of vulnerability ids in the snapshot
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    private int compareKey(int offset, int length, byte[] key) {
+        int start = dataStart + offset;
+        int shared = Math.min(length, key.length);
+        for (int i = 0; i < shared; i++) {
+            int difference = (index.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private List<String> readValue(int offset, int length) {
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = index.get(dataStart + offset + i);
+        }
+        return Collections.unmodifiableList(Arrays.asList(new String(value, StandardCharsets.US_ASCII).split(",")));
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import java.math.BigDecimal;
+
+import model.AggregatedFinding;
+import pique.evaluation.DefaultFindingEvaluator;
+import pique.evaluation.Evaluator;
+import pique.model.ModelNode;
+
+/**
+ * Evaluator for {@link AggregatedFinding}s. Evaluates as the value of a single finding of the same severity times the
+ * number of findings aggregated, computed afresh on every call.
+ */
+public class AggregatedFindingEvaluator extends Evaluator {
+    private final DefaultFindingEvaluator findingEvaluator = new DefaultFindingEvaluator();
+
+    @Override
+    public BigDecimal evaluate(ModelNode modelNode) {
+        AggregatedFinding finding = (AggregatedFinding) modelNode;
+        return findingEvaluator.evaluate(finding).multiply(BigDecimal.valueOf(finding.getCount()));
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import lombok.Getter;
+import pique.evaluation.DefaultFactorEvaluator;
+import pique.evaluation.DefaultProductFactorEvaluator;
+import pique.evaluation.IEvaluator;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import pique.utility.BigDecimalWithContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Array-based evaluation of the upper layers of a quality model. {@link #compile} flattens the weighted sums of the
+ * TQI, quality aspects and product factors into topologically ordered arrays of child indices and weights (children
+ * before parents), so {@link #evaluate()} is a single pass over primitive arrays in double precision instead of a
+ * recursive walk of the children maps with a weight lookup by name and new BigDecimals at every node.
+ *
+ * <p>Nodes with one of the weighted sum evaluators PIQUE-SBOM uses ({@link DefaultFactorEvaluator},
+ * {@link DefaultProductFactorEvaluator} and {@link QualityAspectEvaluator}) are compiled; every other node, in
+ * practice each measure with its diagnostics and utility function, is a leaf whose value is taken from the object
+ * graph once per evaluation. Like {@link QualityAspectEvaluator}, quality aspects are only clamped at 0, its upper
+ * bound check never applies.</p>
+ *
+ * <p>Compiled values match the object-graph evaluation within {@link #DEFAULT_TOLERANCE}, the difference being the
+ * rounding of double against 34 digit BigDecimal arithmetic over a few hundred terms in [0, 1];
+ * {@link #compare(double)} evaluates both side by side and reports the largest difference and the time each took.</p>
+ *
+ * <p>A compiled model is bound to the node instances of one quality model; {@link #bind(QualityModel)} reuses the
+ * arrays for another instance of the same model, e.g. that of the next SBOM, and {@link #unbind()} keeps the arrays
+ * alone, without holding on to any instance.</p>
+ */
+public class CompiledQualityModel {
+    /** Largest absolute difference to the object-graph evaluation expected at any node */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    static final byte LEAF = 0;
+    static final byte WEIGHTED_SUM = 1;
+    static final byte NON_NEGATIVE_WEIGHTED_SUM = 2;
+
+    private final String[] names;
+    private final byte[] kinds;
+    private final int[] childStart;
+    private final int[] children;
+    private final double[] weights;
+    private final ModelNode[] nodes;
+
+    private CompiledQualityModel(String[] names, byte[] kinds, int[] childStart, int[] children, double[] weights, ModelNode[] nodes) {
+        this.names = names;
+        this.kinds = kinds;
+        this.childStart = childStart;
+        this.children = children;
+        this.weights = weights;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Compiles the model below its TQI.
+     */
+    public static CompiledQualityModel compile(QualityModel qualityModel) {
+        return compile(qualityModel.getTqi());
+    }
+
+    /**
+     * Compiles the model below the given root node.
+     */
+    public static CompiledQualityModel compile(ModelNode root) {
+        List<ModelNode> order = new ArrayList<>();
+        topologicalOrder(root, new IdentityHashMap<>(), order);
+        Map<ModelNode, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            index.put(order.get(i), i);
+        }
+
+        int size = order.size();
+        String[] names = new String[size];
+        byte[] kinds = new byte[size];
+        int[] childStart = new int[size + 1];
+        List<Integer> children = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ModelNode node = order.get(i);
+            names[i] = node.getName();
+            kinds[i] = kind(node);
+            childStart[i] = children.size();
+            if (kinds[i] != LEAF) {
+                for (ModelNode child : node.getChildren().values()) {
+                    children.add(index.get(child));
+                    weights.add(node.getWeight(child.getName()).doubleValue());
+                }
+            }
+        }
+        childStart[size] = children.size();
+
+        return new CompiledQualityModel(names, kinds, childStart, children.stream().mapToInt(Integer::intValue).toArray(),
+                weights.stream().mapToDouble(Double::doubleValue).toArray(), order.toArray(new ModelNode[0]));
+    }
+
+    /**
+     * @return this compiled model bound to the nodes of another instance of the same quality model
+     * @throws IllegalArgumentException if the other model lacks a node of this one
+     */
+    public CompiledQualityModel bind(QualityModel qualityModel) {
+        Map<String, ModelNode> byName = new HashMap<>();
+        List<ModelNode> order = new ArrayList<>();
+        topologicalOrder(qualityModel.getTqi(), new IdentityHashMap<>(), order);
+        order.forEach(node -> byName.putIfAbsent(node.getName(), node));
+
+        ModelNode[] bound = new ModelNode[names.length];
+        for (int i = 0; i < names.length; i++) {
+            bound[i] = byName.get(names[i]);
+            if (bound[i] == null) {
+                throw new IllegalArgumentException("Quality model " + qualityModel.getName() + " has no node " + names[i]);
+            }
+        }
+        return new CompiledQualityModel(names, kinds, childStart, children, weights, bound);
+    }
+
+    /**
+     * @return this compiled model without node instances, to be {@link #bind(QualityModel) bound} before evaluating
+     */
+    public CompiledQualityModel unbind() {
+        return new CompiledQualityModel(names, kinds, childStart, children, weights, null);
+    }
+
+    /**
+     * Evaluates every node, leaves through the object graph and compiled nodes over the arrays.
+     *
+     * @return node values in topological order, the root last
+     * @throws IllegalStateException if the model is not bound to a quality model instance
+     */
+    public double[] evaluate() {
+        requireBound();
+        double[] values = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            if (kinds[i] == LEAF) {
+                values[i] = nodes[i].getValue().doubleValue();
+                continue;
+            }
+            double sum = 0.0;
+            for (int c = childStart[i]; c < childStart[i + 1]; c++) {
+                sum += values[children[c]] * weights[c];
+            }
+            values[i] = kinds[i] == NON_NEGATIVE_WEIGHTED_SUM && sum < 0.0 ? 0.0 : sum;
+        }
+        return values;
+    }
+
+    /**
+     * Evaluates every node like {@link #evaluate()} and stores the values of the compiled nodes on the nodes, as the
+     * object-graph evaluation would, so the model can be exported.
+     *
+     * @return node values in topological order, the root last
+     */
+    public double[] apply() {
+        double[] values = evaluate();
+        for (int i = 0; i < names.length; i++) {
+            if (kinds[i] != LEAF) {
+                nodes[i].setValue(new BigDecimalWithContext(values[i]));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return value of the root, usually the TQI
+     */
+    public double evaluateRoot() {
+        double[] values = evaluate();
+        return values[values.length - 1];
+    }
+
+    /**
+     * Evaluates the model both through the object graph and the compiled arrays and compares every compiled node.
+     *
+     * @param tolerance largest absolute difference accepted at any node
+     */
+    public Comparison compare(double tolerance) {
+        requireBound();
+        ModelNode root = nodes[nodes.length - 1];
+        long start = System.nanoTime();
+        BigDecimal graphRoot = root.getValue();
+        long graphNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        double[] values = evaluate();
+        long compiledNanos = System.nanoTime() - start;
+
+        double maxDifference = 0.0;
+        String worstNode = names[names.length - 1];
+        for (int i = 0; i < names.length; i++) {
+            if (kinds[i] == LEAF) {
+                continue;
+            }
+            double difference = Math.abs(nodes[i].getValue().doubleValue() - values[i]);
+            if (difference > maxDifference) {
+                maxDifference = difference;
+                worstNode = names[i];
+            }
+        }
+        return new Comparison(graphRoot.doubleValue(), values[values.length - 1], maxDifference, worstNode, tolerance,
+                graphNanos, compiledNanos);
+    }
+
+    /**
+     * @return number of nodes, leaves included
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return number of leaves evaluated through the object graph
+     */
+    public int getLeafCount() {
+        int leaves = 0;
+        for (byte kind : kinds) {
+            leaves += kind == LEAF ? 1 : 0;
+        }
+        return leaves;
+    }
+
+    /**
+     * @return name of the node at the given position of {@link #evaluate()}'s result
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return position of the named node in {@link #evaluate()}'s result, -1 if it is not part of the compiled model
+     */
+    public int indexOf(String name) {
+        return Arrays.asList(names).indexOf(name);
+    }
+
+    /**
+     * Result of evaluating a model both ways.
+     */
+    @Getter
+    public static class Comparison {
+        private final double graphRoot;
+        private final double compiledRoot;
+        private final double maxDifference;
+        private final String worstNode;
+        private final double tolerance;
+        private final long graphNanos;
+        private final long compiledNanos;
+
+        Comparison(double graphRoot, double compiledRoot, double maxDifference, String worstNode, double tolerance,
+                   long graphNanos, long compiledNanos) {
+            this.graphRoot = graphRoot;
+            this.compiledRoot = compiledRoot;
+            this.maxDifference = maxDifference;
+            this.worstNode = worstNode;
+            this.tolerance = tolerance;
+            this.graphNanos = graphNanos;
+            this.compiledNanos = compiledNanos;
+        }
+
+        public boolean isWithinTolerance() {
+            return maxDifference <= tolerance;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("graph %.12f in %.3f ms, compiled %.12f in %.3f ms, max difference %.3g at %s", graphRoot,
+                    graphNanos / 1e6, compiledRoot, compiledNanos / 1e6, maxDifference, worstNode);
+        }
+    }
+
+    private void requireBound() {
+        if (nodes == null) {
+            throw new IllegalStateException("Compiled model is not bound to a quality model");
+        }
+    }
+
+    private static byte kind(ModelNode node) {
+        IEvaluator evaluator = node.getEval_strategyObj();
+        byte kind;
+        if (evaluator != null && evaluator.getClass() == QualityAspectEvaluator.class) {
+            kind = NON_NEGATIVE_WEIGHTED_SUM;
+        }
+        else if (evaluator != null && (evaluator.getClass() == DefaultFactorEvaluator.class || evaluator.getClass() == DefaultProductFactorEvaluator.class)) {
+            kind = WEIGHTED_SUM;
+        }
+        else {
+            return LEAF;
+        }
+        // a child without a weight cannot be summed, leave the node to its evaluator
+        for (ModelNode child : node.getChildren().values()) {
+            if (node.getWeights() == null || node.getWeight(child.getName()) == null) {
+                return LEAF;
+            }
+        }
+        return kind;
+    }
+
+    /**
+     * Appends the nodes below and including the given one, children before their parents and each node once.
+     */
+    private static void topologicalOrder(ModelNode node, Map<ModelNode, Boolean> visited, List<ModelNode> order) {
+        if (visited.put(node, Boolean.TRUE) != null) {
+            return;
+        }
+        if (kind(node) != LEAF) {
+            for (ModelNode child : node.getChildren().values()) {
+                topologicalOrder(child, visited, order);
+            }
+        }
+        order.add(node);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Arithmetic used to evaluate the TQI, quality aspects and product factors of an evaluated SBOM, set with the
+ * {@code evaluation.numeric-mode} property.
+ */
+public enum NumericMode {
+    /** The object graph is evaluated with PIQUE's 34 digit BigDecimals (default) */
+    BIG_DECIMAL,
+    /**
+     * The weighted sums are evaluated in double over a {@link CompiledQualityModel}; measures keep their own
+     * evaluators. A sample of the projects is checked against BigDecimal by a {@link NumericVerifier}.
+     */
+    DOUBLE;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NumericMode.class);
+
+    /**
+     * @param prop properties holding {@code evaluation.numeric-mode}, either {@code bigdecimal} or {@code double}
+     */
+    public static NumericMode fromProperties(Properties prop) {
+        String mode = prop.getProperty("evaluation.numeric-mode", "bigdecimal").trim();
+        if (mode.equalsIgnoreCase("double")) {
+            return DOUBLE;
+        }
+        if (!mode.isEmpty() && !mode.equalsIgnoreCase("bigdecimal")) {
+            LOGGER.warn("Unknown evaluation.numeric-mode {}, using bigdecimal", mode);
+        }
+        return BIG_DECIMAL;
+    }
+}
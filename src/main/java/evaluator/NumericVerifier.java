@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Checks double precision evaluation ({@link NumericMode#DOUBLE}) against BigDecimal on a sample of the projects.
+ * Projects are sampled by a hash of their name, so the same projects are verified on every run.
+ *
+ * <ul>
+ *     <li>{@code evaluation.verify-fraction} - share of the projects verified, 0 to 1 (default 0.05)</li>
+ *     <li>{@code evaluation.verify-tolerance} - largest absolute difference accepted at any node
+ *     (default {@link CompiledQualityModel#DEFAULT_TOLERANCE})</li>
+ * </ul>
+ */
+public class NumericVerifier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NumericVerifier.class);
+    private static final int BUCKETS = 10_000;
+
+    private final double fraction;
+    private final double tolerance;
+    private int sampled;
+    private int disagreements;
+    private double maxDifference;
+    private String worstProject;
+
+    public NumericVerifier(double fraction, double tolerance) {
+        this.fraction = Math.max(0.0, Math.min(1.0, fraction));
+        this.tolerance = tolerance;
+    }
+
+    public static NumericVerifier fromProperties(Properties prop) {
+        return new NumericVerifier(Double.parseDouble(prop.getProperty("evaluation.verify-fraction", "0.05").trim()),
+                Double.parseDouble(prop.getProperty("evaluation.verify-tolerance", String.valueOf(CompiledQualityModel.DEFAULT_TOLERANCE)).trim()));
+    }
+
+    /**
+     * @return whether the project is part of the sample to verify
+     */
+    public boolean isSampled(String projectName) {
+        // spread String.hashCode, which differs little between names such as sbom-1 and sbom-2
+        int hash = projectName.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % BUCKETS < fraction * BUCKETS;
+    }
+
+    /**
+     * Evaluates the project's model in BigDecimal and double and records the result, reporting a disagreement.
+     *
+     * @return whether both agree within the tolerance
+     */
+    public boolean verify(String projectName, CompiledQualityModel compiled) {
+        CompiledQualityModel.Comparison comparison = compiled.compare(tolerance);
+        synchronized (this) {
+            sampled++;
+            if (comparison.getMaxDifference() > maxDifference) {
+                maxDifference = comparison.getMaxDifference();
+                worstProject = projectName;
+            }
+            if (!comparison.isWithinTolerance()) {
+                disagreements++;
+            }
+        }
+        if (!comparison.isWithinTolerance()) {
+            LOGGER.warn("Double and BigDecimal evaluation of {} disagree by more than {}: {}", projectName, tolerance, comparison);
+        }
+        else {
+            LOGGER.debug("Verified double evaluation of {}: {}", projectName, comparison);
+        }
+        return comparison.isWithinTolerance();
+    }
+
+    public synchronized int getSampled() {
+        return sampled;
+    }
+
+    public synchronized int getDisagreements() {
+        return disagreements;
+    }
+
+    public synchronized double getMaxDifference() {
+        return maxDifference;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "NumericVerifier{sampled=" + sampled + ", disagreements=" + disagreements + ", maxDifference=" + maxDifference
+                + (worstProject == null ? "" : " (" + worstProject + ")") + ", tolerance=" + tolerance + "}";
+    }
+}
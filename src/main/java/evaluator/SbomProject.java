@@ -30,10 +30,17 @@ import pique.model.ModelNode;
 import pique.model.QualityModel;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class SbomProject extends Project {
 
+    private Map<String, List<ModelNode>> diagnosticIndex;
+
     public SbomProject(String name) {
         super(name);
     }
@@ -57,21 +64,48 @@ public class SbomProject extends Project {
      * 		findings.
      */
     public void updateDiagnosticsWithFindings(Map<String, Diagnostic> diagnosticsWithFindings) {
-        // Iterate through each diagnostic in the diagnosticsWithFindings map
-        for (Diagnostic diagnostic : diagnosticsWithFindings.values()) {
-            // Iterate through each measure in the quality model's measures
+        updateDiagnosticsWithFindings(Collections.singletonList(diagnosticsWithFindings));
+    }
+
+    /**
+     * Applies the diagnostics of several tools in one pass, with the same result as applying
+     * {@link #updateDiagnosticsWithFindings(Map)} to each map in turn; a diagnostic reported by more than one map
+     * takes the findings of the last.
+     *
+     * @param toolDiagnostics
+     * 		the diagnostics of each tool, see {@link tool.ToolRunner#runEach}
+     */
+    public void updateDiagnosticsWithFindings(Collection<Map<String, Diagnostic>> toolDiagnostics) {
+        Map<String, List<ModelNode>> index = getDiagnosticIndex();
+        for (Map<String, Diagnostic> diagnosticsWithFindings : toolDiagnostics) {
+            for (Diagnostic diagnostic : diagnosticsWithFindings.values()) {
+                for (ModelNode oldDiagnostic : index.getOrDefault(diagnostic.getName(), Collections.emptyList())) {
+                    // Update the children of the old diagnostic with the children of the current diagnostic
+                    oldDiagnostic.setChildren(diagnostic.getChildren());
+                    // Update the packages of the old diagnostic with the packages of the current diagnostic
+                    ((SbomDiagnostic) oldDiagnostic).setPackages(((SbomDiagnostic) diagnostic).getPackages());
+                }
+            }
+        }
+    }
+
+    /**
+     * Index of the diagnostic nodes under the measures of this project's model by name, built on first use. A
+     * diagnostic that is a child of several measures appears once per distinct node.
+     */
+    private Map<String, List<ModelNode>> getDiagnosticIndex() {
+        if (diagnosticIndex == null) {
+            Map<String, List<ModelNode>> index = new HashMap<>();
             for (ModelNode measure : getQualityModel().getMeasures().values()) {
-                // Iterate through each child diagnostic of the current measure
-                for (ModelNode oldDiagnostic : measure.getChildren().values()) {
-                    // Check if the name of the old diagnostic matches the name of the current diagnostic
-                    if (oldDiagnostic.getName().equals(diagnostic.getName())) {
-                        // Update the children of the old diagnostic with the children of the current diagnostic
-                        oldDiagnostic.setChildren(diagnostic.getChildren());
-                        // Update the packages of the old diagnostic with the packages of the current diagnostic
-                        ((SbomDiagnostic) oldDiagnostic).setPackages(((SbomDiagnostic) diagnostic).getPackages());
+                for (ModelNode diagnostic : measure.getChildren().values()) {
+                    List<ModelNode> nodes = index.computeIfAbsent(diagnostic.getName(), name -> new ArrayList<>(1));
+                    if (nodes.stream().noneMatch(node -> node == diagnostic)) {
+                        nodes.add(diagnostic);
                     }
                 }
             }
+            diagnosticIndex = index;
         }
+        return diagnosticIndex;
     }
 }
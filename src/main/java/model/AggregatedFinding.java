@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package model;
+
+import evaluator.AggregatedFindingEvaluator;
+import lombok.Getter;
+import pique.model.Finding;
+import pique.model.ModelNode;
+
+/**
+ * Stands in for {@code count} findings of the same severity under one diagnostic, see
+ * {@link tool.FindingMode#AGGREGATE}. It is evaluated by an {@link AggregatedFindingEvaluator} as a single finding of
+ * the severity times the count, so a diagnostic summing the values of its findings evaluates the same as with the
+ * individual findings.
+ */
+public class AggregatedFinding extends Finding {
+
+    @Getter
+    private final int count;
+
+    public AggregatedFinding(String name, int severity, int count) {
+        super("", 0, 0, severity);
+        this.count = count;
+        this.eval_strategyObj = new AggregatedFindingEvaluator();
+        setName(name);
+    }
+
+    @Override
+    public ModelNode clone() {
+        return new AggregatedFinding(getName(), getSeverity(), count);
+    }
+}
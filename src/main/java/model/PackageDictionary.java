@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Run-wide dictionary of the packages referenced by diagnostics. Each distinct {@code name:version} key is built and
+ * stored once and gets an int id, so {@link PackageSet}s only hold ids and a package that appears under hundreds of
+ * diagnostics and projects is a single string. Ids are never reused or removed.
+ */
+public class PackageDictionary {
+    private static final PackageDictionary SHARED = new PackageDictionary();
+
+    private final Map<String, Integer> idsByKey = new ConcurrentHashMap<>();
+    // second level lookup by name and version, so known packages are found without building their key
+    private final Map<String, Map<String, Integer>> idsByName = new ConcurrentHashMap<>();
+    private final List<String> keys = new ArrayList<>();
+
+    public static PackageDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the id of the package, added to the dictionary if it is new
+     */
+    public int id(String name, String version) {
+        Map<String, Integer> versions = idsByName.computeIfAbsent(String.valueOf(name), key -> new ConcurrentHashMap<>());
+        Integer id = versions.get(String.valueOf(version));
+        if (id == null) {
+            id = id(name + ":" + version);
+            versions.put(String.valueOf(version), id);
+        }
+        return id;
+    }
+
+    /**
+     * @param key package key in the {@code name:version} form of {@link SbomDiagnostic#updatePackages}
+     * @return the id of the package, added to the dictionary if it is new
+     */
+    public int id(String key) {
+        return idsByKey.computeIfAbsent(key, newKey -> {
+            synchronized (keys) {
+                keys.add(newKey);
+                return keys.size() - 1;
+            }
+        });
+    }
+
+    /**
+     * @return the id of the package, -1 if it is not in the dictionary
+     */
+    public int find(String key) {
+        Integer id = idsByKey.get(key);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the {@code name:version} key of the package with the given id
+     */
+    public String key(int id) {
+        synchronized (keys) {
+            return keys.get(id);
+        }
+    }
+
+    /**
+     * @return number of distinct packages seen so far
+     */
+    public int size() {
+        synchronized (keys) {
+            return keys.size();
+        }
+    }
+}
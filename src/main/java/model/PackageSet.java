@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact set of the packages of a diagnostic, held as sorted {@link PackageDictionary} ids. It reads as a set of
+ * {@code name:version} strings, which are looked up in the dictionary while iterating, and is exported as a JSON
+ * array of them by {@link Adapter}, the same as the {@code HashSet<String>} it replaces.
+ */
+public class PackageSet extends AbstractSet<String> {
+    private final PackageDictionary dictionary;
+    private int[] ids;
+    private int size;
+
+    public PackageSet() {
+        this(PackageDictionary.shared());
+    }
+
+    public PackageSet(PackageDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.ids = new int[4];
+    }
+
+    private PackageSet(PackageDictionary dictionary, int[] ids, int size) {
+        this.dictionary = dictionary;
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Adds a package by its dictionary id.
+     *
+     * @return whether the package was not in the set yet
+     */
+    public boolean addId(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertion = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+        ids[insertion] = id;
+        size++;
+        return true;
+    }
+
+    public boolean containsId(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * @param key package key in the {@code name:version} form
+     */
+    @Override
+    public boolean add(String key) {
+        return addId(dictionary.id(key));
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        int id = dictionary.find((String) key);
+        return id >= 0 && containsId(id);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return dictionary.key(ids[next++]);
+            }
+        };
+    }
+
+    /**
+     * @return an independent copy of this set
+     */
+    public PackageSet copy() {
+        return new PackageSet(dictionary, Arrays.copyOf(ids, Math.max(4, size)), size);
+    }
+
+    /**
+     * Writes the set as a JSON array of {@code name:version} strings, sorted so the export does not depend on the order
+     * SBOMs were evaluated in, and reads it back.
+     */
+    public static class Adapter extends TypeAdapter<PackageSet> {
+        @Override
+        public void write(JsonWriter out, PackageSet packages) throws IOException {
+            if (packages == null) {
+                out.nullValue();
+                return;
+            }
+            // ids follow the order packages were first seen in across the run, keys do not
+            String[] keys = packages.toArray(new String[0]);
+            Arrays.sort(keys);
+            out.beginArray();
+            for (String key : keys) {
+                out.value(key);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public PackageSet read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            PackageSet packages = new PackageSet();
+            in.beginArray();
+            while (in.hasNext()) {
+                packages.add(in.nextString());
+            }
+            in.endArray();
+            return packages;
+        }
+    }
+}
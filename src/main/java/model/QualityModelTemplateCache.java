@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package model;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.model.Diagnostic;
+import pique.model.QualityModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of parsed quality model files. A blank or derived quality model is parsed once and every
+ * {@link #instance(Path)} or {@link #diagnostics(Path, String)} call then builds fresh nodes from the parsed template,
+ * so each SBOM and tool still gets a model of its own to evaluate without the file being read and parsed again.
+ *
+ * <p>A template is keyed by the file's real path and is parsed again once the file's modification time or size
+ * changes and its content hash differs, so a model replaced during a run is picked up.</p>
+ */
+public class QualityModelTemplateCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QualityModelTemplateCache.class);
+    private static final QualityModelTemplateCache SHARED = new QualityModelTemplateCache();
+
+    private final Map<Path, Template> templates = new ConcurrentHashMap<>();
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong instances = new AtomicLong();
+
+    public static QualityModelTemplateCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return a new quality model instance of the file
+     */
+    public QualityModel instance(Path qmFile) {
+        instances.incrementAndGet();
+        return new SbomQualityModelImport(template(qmFile)).importQualityModel();
+    }
+
+    /**
+     * @return new instances of the file's diagnostics of the given tool by name
+     */
+    public Map<String, Diagnostic> diagnostics(Path qmFile, String toolName) {
+        instances.incrementAndGet();
+        return new SbomQualityModelImport(template(qmFile)).importDiagnostics(toolName);
+    }
+
+    /**
+     * @return how often a quality model file was actually parsed
+     */
+    public long getParses() {
+        return parses.get();
+    }
+
+    /**
+     * @return how many model or diagnostic instances were handed out
+     */
+    public long getInstances() {
+        return instances.get();
+    }
+
+    @Override
+    public String toString() {
+        return "QualityModelTemplateCache{templates=" + templates.size() + ", parses=" + getParses()
+                + ", instances=" + getInstances() + "}";
+    }
+
+    private JsonObject template(Path qmFile) {
+        try {
+            Path key = qmFile.toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            long size = attributes.size();
+            Template current = templates.get(key);
+            if (current != null && current.modified == modified && current.size == size) {
+                return current.json;
+            }
+            return templates.compute(key, (path, cached) -> {
+                if (cached != null && cached.modified == modified && cached.size == size) {
+                    return cached;
+                }
+                try {
+                    byte[] content = Files.readAllBytes(path);
+                    byte[] hash = sha256(content);
+                    if (cached != null && Arrays.equals(cached.hash, hash)) {
+                        // touched but unchanged
+                        return new Template(cached.json, hash, modified, size);
+                    }
+                    parses.incrementAndGet();
+                    LOGGER.debug("Parsing quality model {}", path);
+                    JsonObject json = JsonParser.parseReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))
+                            .getAsJsonObject();
+                    return new Template(json, hash, modified, size);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).json;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read quality model " + qmFile, e);
+        }
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Template {
+        private final JsonObject json;
+        private final byte[] hash;
+        private final long modified;
+        private final long size;
+
+        Template(JsonObject json, byte[] hash, long modified, long size) {
+            this.json = json;
+            this.hash = hash;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+}
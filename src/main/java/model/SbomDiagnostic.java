@@ -24,6 +24,7 @@
 package model;
 
 import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
 import lombok.Getter;
 import lombok.Setter;
 import pique.evaluation.IEvaluator;
@@ -37,32 +38,35 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class SbomDiagnostic extends Diagnostic {
 
 
+    /** Packages referenced by the findings as {@code name:version}, held as {@link PackageDictionary} ids */
     @Getter
     @Expose
-    private HashSet<String> packages;
+    @JsonAdapter(PackageSet.Adapter.class)
+    private PackageSet packages;
 
-    public SbomDiagnostic(String id, String description, String toolName, HashSet<String> packages) {
+    public SbomDiagnostic(String id, String description, String toolName, Set<String> packages) {
         super(id, description, toolName);
-        this.packages = packages;
+        this.packages = toPackageSet(packages);
     }
 
-    public SbomDiagnostic(String id, String description, String toolName, IEvaluator evaluator, HashSet<String> packages) {
+    public SbomDiagnostic(String id, String description, String toolName, IEvaluator evaluator, Set<String> packages) {
         super(id, description, toolName, evaluator);
-        this.packages = packages;
+        this.packages = toPackageSet(packages);
     }
 
-    public SbomDiagnostic(String id, String description, String toolName, IEvaluator evaluator, INormalizer normalizer, IUtilityFunction utilityFunction, Map<String, BigDecimal> weights, BigDecimal[] thresholds, HashSet<String> packages) {
+    public SbomDiagnostic(String id, String description, String toolName, IEvaluator evaluator, INormalizer normalizer, IUtilityFunction utilityFunction, Map<String, BigDecimal> weights, BigDecimal[] thresholds, Set<String> packages) {
         super(id, description, toolName, evaluator, normalizer, utilityFunction, weights, thresholds);
-        this.packages = packages;
+        this.packages = toPackageSet(packages);
     }
 
-    public SbomDiagnostic(BigDecimal value, String name, String description, IEvaluator evaluator, INormalizer normalizer, IUtilityFunction utilityFunction, Map<String, BigDecimal> weights, BigDecimal[] thresholds, Map<String, ModelNode> children, HashSet<String> packages) {
+    public SbomDiagnostic(BigDecimal value, String name, String description, IEvaluator evaluator, INormalizer normalizer, IUtilityFunction utilityFunction, Map<String, BigDecimal> weights, BigDecimal[] thresholds, Map<String, ModelNode> children, Set<String> packages) {
         super(value, name, description, evaluator, normalizer, utilityFunction, weights, thresholds, children);
-        this.packages = packages;
+        this.packages = toPackageSet(packages);
     }
     @Override
     public ModelNode clone() {
@@ -71,7 +75,7 @@ public class SbomDiagnostic extends Diagnostic {
         getChildren().forEach((k, v) -> clonedChildren.put(k, v.clone()));
 
         return new SbomDiagnostic(getValue(), getName(), getDescription(), this.getEval_strategyObj(), this.getNormalizerObj(),
-                this.getUtility_function(), getWeights(), getThresholds(), clonedChildren, this.packages);
+                this.getUtility_function(), getWeights(), getThresholds(), clonedChildren, this.packages.copy());
     }
 
     @Override
@@ -84,10 +88,28 @@ public class SbomDiagnostic extends Diagnostic {
     }
 
     public void updatePackages(String packageName, String packageVersion) {
-        this.packages.add(packageName + ":" + packageVersion);
+        this.packages.addId(PackageDictionary.shared().id(packageName, packageVersion));
     }
 
-    public void setPackages(HashSet<String> packages) {
-        this.packages = packages;
+    /**
+     * Adds a package by its {@link PackageDictionary#shared()} id.
+     */
+    public void updatePackages(int packageId) {
+        this.packages.addId(packageId);
     }
-}
\ No newline at end of file
+
+    public void setPackages(Set<String> packages) {
+        this.packages = toPackageSet(packages);
+    }
+
+    private static PackageSet toPackageSet(Set<String> packages) {
+        if (packages instanceof PackageSet) {
+            return (PackageSet) packages;
+        }
+        PackageSet packageSet = new PackageSet();
+        if (packages != null) {
+            packageSet.addAll(packages);
+        }
+        return packageSet;
+    }
+}
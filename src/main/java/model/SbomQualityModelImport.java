@@ -97,6 +97,14 @@ public class SbomQualityModelImport {
         }
     }
 
+    /**
+     * Imports a quality model from its already parsed file content, e.g. a template held by
+     * {@link QualityModelTemplateCache}. The JSON is only read, so one parsed file can back any number of imports.
+     */
+    public SbomQualityModelImport(JsonObject jsonQm) {
+        this.jsonQm = jsonQm;
+    }
+
 
     public QualityModel importQualityModel() {
         qualityModel.setName(instanceNameFromJson());
@@ -132,7 +140,25 @@ public class SbomQualityModelImport {
     }
 
 
+    /**
+     * Instances only the diagnostics of one tool, without the rest of the model. Diagnostics are the leaves of the
+     * model, so these are the same nodes {@link #importQualityModel()} would create for the tool.
+     *
+     * @param toolName name of the tool, as in the diagnostics' toolName
+     * @return new diagnostic instances of the tool by name
+     */
+    public Map<String, Diagnostic> importDiagnostics(String toolName) {
+        Map<String, Diagnostic> toolDiagnostics = new HashMap<>();
+        instanceSBOMDiagnosticsFromJson(jsonQm.getAsJsonObject("diagnostics"), toolName)
+                .forEach((name, node) -> toolDiagnostics.put(name, (Diagnostic) node));
+        return toolDiagnostics;
+    }
+
     private Map<String, ModelNode> instanceSBOMDiagnosticsFromJson(JsonObject diagnosticsJson) {
+        return instanceSBOMDiagnosticsFromJson(diagnosticsJson, null);
+    }
+
+    private Map<String, ModelNode> instanceSBOMDiagnosticsFromJson(JsonObject diagnosticsJson, String toolName) {
         Map<String, ModelNode> tempDiagnostics = new HashMap<>();
 
         diagnosticsJson.entrySet().forEach(entry -> {
@@ -141,6 +167,9 @@ public class SbomQualityModelImport {
             String diagnosticName = entry.getKey();
             String diagnosticDescription = jsonDiagnostic.get("description").getAsString();
             String diagnosticToolName = jsonDiagnostic.get("toolName").getAsString();
+            if (toolName != null && !toolName.equals(diagnosticToolName)) {
+                return;
+            }
             IEvaluator evaluator = getEvaluatorFromConfiguration(jsonDiagnostic, "diagnostic");
             INormalizer normalizer = getNormalizerFromConfiguration(jsonDiagnostic);
             IUtilityFunction utilityFunction = getUtilityFunctionFromConfiguration(jsonDiagnostic);
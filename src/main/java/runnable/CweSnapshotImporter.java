@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package runnable;
+
+import cweResolution.CweSnapshotBuilder;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point that builds the offline CWE snapshot index read by
+ * {@link cweResolution.SnapshotCweResolver}. Point {@code cwe-snapshot.path} in the properties file at the
+ * output to evaluate without the NVD mirror database.
+ *
+ * <pre>
+ * java -cp PIQUE-SBOM-SUPPLYCHAIN-SEC.jar runnable.CweSnapshotImporter \
+ *     --nvd nvd-feeds/ --ghsa advisory-database/advisories/github-reviewed --output cwe-snapshot.idx
+ * </pre>
+ */
+public class CweSnapshotImporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CweSnapshotImporter.class);
+
+    public static void main(String[] args) throws ArgumentParserException, IOException {
+        ArgumentParser parser = ArgumentParsers.newFor("CweSnapshotImporter").build()
+                .defaultHelp(true)
+                .description("Builds an offline CWE snapshot index from NVD feeds and GitHub advisory dumps");
+        parser.addArgument("--nvd")
+                .nargs("*")
+                .setDefault(new ArrayList<String>())
+                .help("NVD JSON feeds (1.1 or 2.0, optionally .gz) or directories containing them");
+        parser.addArgument("--ghsa")
+                .nargs("*")
+                .setDefault(new ArrayList<String>())
+                .help("directories containing GitHub advisory database (OSV) advisories");
+        parser.addArgument("--output")
+                .required(true)
+                .help("location of the snapshot index to write");
+        Namespace namespace = parser.parseArgs(args);
+
+        CweSnapshotBuilder builder = new CweSnapshotBuilder();
+        for (String nvd : namespace.<String>getList("nvd")) {
+            for (Path feed : nvdFeeds(Paths.get(nvd))) {
+                builder.addNvdFeed(feed);
+            }
+        }
+        for (String ghsa : namespace.<String>getList("ghsa")) {
+            builder.addGithubAdvisories(Paths.get(ghsa));
+        }
+        if (builder.size() == 0) {
+            LOGGER.warn("No vulnerabilities found in the given inputs, writing an empty snapshot");
+        }
+        builder.write(Paths.get(namespace.getString("output")));
+        System.out.println("Wrote CWE snapshot with " + builder.size() + " entries to " + namespace.getString("output"));
+    }
+
+    private static List<Path> nvdFeeds(Path input) throws IOException {
+        if (!Files.isDirectory(input)) {
+            return List.of(input);
+        }
+        try (Stream<Path> files = Files.list(input)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".json")
+                            || file.getFileName().toString().endsWith(".json.gz"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import cweResolution.CweResolverFactory;
+import cweResolution.MemoizingCweResolver;
 import model.SbomQualityModelImport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,10 +44,16 @@ import pique.runnable.AQualityModelDeriver;
 import pique.utility.PiqueProperties;
 import presentation.PiqueData;
 import presentation.PiqueDataFactory;
+import tool.ComponentScanCache;
 import tool.CveBinToolWrapper;
 import tool.GrypeWrapper;
+import tool.ScanResultCache;
+import tool.TrivyServer;
+import tool.VulnerabilityDbManager;
 import tool.TrivyWrapper;
 
+import utilities.ScanContext;
+import utilities.ScanWorkspace;
 import utilities.helperFunctions;
 
 /**
@@ -85,19 +93,37 @@ public class QualityModelDeriver extends AQualityModelDeriver {
         // Initialize objects
         String projectRootFlag = "";
         Path benchmarkRepo = Paths.get(prop.getProperty("benchmark.repo"));
+        ScanWorkspace.configure(prop);
+        ScanContext.configure(prop);
+        TrivyServer.configure(prop);
+        VulnerabilityDbManager.configure(prop);
 
         LOGGER.info("Initializing tools");
-        ITool gyrpeWrapper = new GrypeWrapper(piqueData, propertiesPath);
-        ITool trivyWrapper = new TrivyWrapper(piqueData, propertiesPath);
-        //ITool cveBinToolWrapper = new CveBinToolWrapper(piqueData, propertiesPath);
+        // one CWE resolver for the whole run, so a vulnerability reported by several tools or SBOMs is resolved once
+        MemoizingCweResolver cweResolver = new MemoizingCweResolver(CweResolverFactory.fromProperties(piqueData, propertiesPath));
+        ITool gyrpeWrapper = new GrypeWrapper(piqueData, propertiesPath, cweResolver);
+        ITool trivyWrapper = new TrivyWrapper(piqueData, propertiesPath, cweResolver);
+        //ITool cveBinToolWrapper = new CveBinToolWrapper(piqueData, propertiesPath, cweResolver);
         //Set<ITool> tools = Stream.of(gyrpeWrapper,trivyWrapper, cveBinToolWrapper).collect(Collectors.toSet());
         Set<ITool> tools = Stream.of(gyrpeWrapper,trivyWrapper).collect(Collectors.toSet());
+
+        // refresh each tool's vulnerability database once, every benchmark scan then uses that snapshot
+        VulnerabilityDbManager.shared().refresh(tools.stream().map(ITool::getName).collect(Collectors.toList()), derivedModelFilePath);
+        // benchmark SBOMs scanned before with the same tool and database versions reuse their earlier reports
+        ScanResultCache scanCache = ScanResultCache.fromProperties(prop, derivedModelFilePath);
+        // SBOMs sharing components with ones scanned before are scanned as deltas of their new components
+        ComponentScanCache.configure(prop, derivedModelFilePath);
         SbomQualityModelImport qmImport = new SbomQualityModelImport(blankqmFilePath);
         QualityModel qmDescription = qmImport.importQualityModel();
         //qmDescription = pique.utility.TreeTrimmingUtility.trimQualityModelTree(qmDescription);
 
 
-        QualityModel derivedQualityModel = deriveModel(qmDescription, tools, benchmarkRepo, projectRootFlag);
+        QualityModel derivedQualityModel;
+        try {
+            derivedQualityModel = deriveModel(qmDescription, scanCache.wrap(tools), benchmarkRepo, projectRootFlag);
+        } finally {
+            CweResolverFactory.closeAll();
+        }
         Path jsonOutput = new QualityModelExport(derivedQualityModel).exportToJson(derivedQualityModel.getName(), derivedModelFilePath);
 
         QualityModel trimmedDerivedQualityModel = helperFunctions.trimBenchmarkedMeasuresWithNoFindings(derivedQualityModel);
@@ -105,6 +131,9 @@ public class QualityModelDeriver extends AQualityModelDeriver {
                 .exportToJson(trimmedDerivedQualityModel
                         .getName() + "_trimmed", derivedModelFilePath);
 
+        LOGGER.info("CWE resolution: {}", cweResolver);
+        LOGGER.info("Scan results: {}", scanCache);
+        LOGGER.info("Component scans: {}", ComponentScanCache.shared());
         LOGGER.info("Quality Model derivation finished. You can find the file at " + jsonOutput.toAbsolutePath().toString());
         System.out.println("Quality Model derivation finished. You can find the file at " + jsonOutput.toAbsolutePath().toString());
     }
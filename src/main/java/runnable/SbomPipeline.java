@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package runnable;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Generates SBOMs and evaluates them in one pipeline. Source trees and images are generated on separate pools,
+ * since image generation mostly waits on image pulls while source generation is CPU bound, and every SBOM is
+ * handed to the evaluation pool as soon as it has been generated instead of after all generation has finished.
+ *
+ * <p>Failures are recorded per target and per SBOM; a failing target or SBOM does not stop the others.
+ * Outcomes are keyed by path in sorted order, so reporting does not depend on scheduling.</p>
+ *
+ * @param <R> result of evaluating one SBOM
+ */
+public class SbomPipeline<R> implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SbomPipeline.class);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ExecutorService sourcePool;
+    private final ExecutorService imagePool;
+    private final ExecutorService evaluationPool;
+    private final Function<Path, R> evaluator;
+    private final Map<Path, Future<Path>> generations = new ConcurrentHashMap<>();
+    private final Map<Path, Future<R>> evaluations = new ConcurrentHashMap<>();
+
+    @Getter private final SortedMap<Path, Path> generated = new TreeMap<>();
+    @Getter private final SortedMap<Path, Throwable> generationFailures = new TreeMap<>();
+    @Getter private final SortedMap<Path, R> evaluated = new TreeMap<>();
+    @Getter private final SortedMap<Path, Throwable> evaluationFailures = new TreeMap<>();
+
+    /**
+     * @param sourceConcurrency source trees generated at the same time
+     * @param imageConcurrency images generated at the same time
+     * @param evaluationWorkers SBOMs evaluated at the same time
+     * @param evaluator evaluates one SBOM
+     */
+    public SbomPipeline(int sourceConcurrency, int imageConcurrency, int evaluationWorkers, Function<Path, R> evaluator) {
+        this.sourcePool = newPool("sbom-generator-source", sourceConcurrency);
+        this.imagePool = newPool("sbom-generator-image", imageConcurrency);
+        this.evaluationPool = newPool("sbom-evaluator", evaluationWorkers);
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Generates an SBOM for a source tree and queues it for evaluation once generated.
+     *
+     * @param generator generates the SBOM and returns its path, or null if generation failed
+     */
+    public void generateSource(Path target, Function<Path, Path> generator) {
+        generations.put(target, sourcePool.submit(() -> generateAndEvaluate(target, generator)));
+    }
+
+    /**
+     * Generates an SBOM for an image and queues it for evaluation once generated.
+     *
+     * @param generator generates the SBOM and returns its path, or null if generation failed
+     */
+    public void generateImage(Path target, Function<Path, Path> generator) {
+        generations.put(target, imagePool.submit(() -> generateAndEvaluate(target, generator)));
+    }
+
+    /**
+     * Queues an SBOM for evaluation. An SBOM is evaluated at most once, however often it is queued.
+     */
+    public void evaluate(Path sbom) {
+        evaluations.computeIfAbsent(sbom.toAbsolutePath().normalize(), key -> evaluationPool.submit(() -> evaluator.apply(sbom)));
+    }
+
+    /**
+     * @return whether the SBOM has been queued for evaluation
+     */
+    public boolean isQueued(Path sbom) {
+        return evaluations.containsKey(sbom.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Waits until every generation has finished. SBOMs generated successfully are queued for evaluation by then.
+     */
+    public void awaitGeneration() {
+        await(generations, generated, generationFailures, "generate SBOM for");
+    }
+
+    /**
+     * Waits until every queued evaluation has finished.
+     */
+    public void awaitEvaluation() {
+        await(evaluations, evaluated, evaluationFailures, "evaluate");
+    }
+
+    @Override
+    public void close() {
+        sourcePool.shutdownNow();
+        imagePool.shutdownNow();
+        evaluationPool.shutdownNow();
+    }
+
+    private Path generateAndEvaluate(Path target, Function<Path, Path> generator) {
+        Path sbom = generator.apply(target);
+        if (sbom == null) {
+            throw new IllegalStateException("No SBOM was generated for " + target);
+        }
+        evaluate(sbom);
+        return sbom;
+    }
+
+    private static <T> void await(Map<Path, Future<T>> futures, SortedMap<Path, T> results, SortedMap<Path, Throwable> failures, String action) {
+        List<Path> keys = new ArrayList<>(futures.keySet());
+        keys.sort(null);
+        for (Path key : keys) {
+            try {
+                results.put(key, futures.get(key).get());
+            } catch (ExecutionException e) {
+                failures.put(key, e.getCause());
+                LOGGER.error("Failed to {} {}", action, key, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting to " + action + " " + key, e);
+            }
+        }
+    }
+
+    private static ExecutorService newPool(String name, int threads) {
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
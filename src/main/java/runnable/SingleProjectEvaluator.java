@@ -29,13 +29,19 @@ import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import cweResolution.CweResolverFactory;
+import cweResolution.MemoizingCweResolver;
+import evaluator.CompiledQualityModel;
+import evaluator.NumericMode;
+import evaluator.NumericVerifier;
 import evaluator.SbomProject;
 import lombok.Getter;
 import lombok.Setter;
-import model.SbomQualityModelImport;
+import model.QualityModelTemplateCache;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -48,6 +54,10 @@ import pique.utility.PiqueProperties;
 import presentation.PiqueData;
 import presentation.PiqueDataFactory;
 import tool.*;
+import utilities.ScanContext;
+import utilities.ScanIncompleteException;
+import utilities.ScanOutcome;
+import utilities.ScanWorkspace;
 
 /**
  * Behavioral class responsible for running TQI evaluation of a single project
@@ -56,6 +66,12 @@ import tool.*;
 public class SingleProjectEvaluator extends ASingleProjectEvaluator {
     private final PiqueData piqueData = new PiqueDataFactory().getPiqueData();
     private static final Logger LOGGER = LoggerFactory.getLogger(SingleProjectEvaluator.class);
+    private ToolRunner toolRunner = new ToolRunner(1);
+    private int evaluationWorkers = 1;
+    private NumericMode numericMode = NumericMode.BIG_DECIMAL;
+    private NumericVerifier numericVerifier;
+    private CompiledQualityModel compiledModel;
+    private final Set<ScanContext> activeScans = ConcurrentHashMap.newKeySet();
 
 //    //default properties location
 //    @Getter @Setter
@@ -101,6 +117,14 @@ public class SingleProjectEvaluator extends ASingleProjectEvaluator {
         Path sourceCodePath = Paths.get(sourceCodeInputPath);
         Path imagesPath = Paths.get(imageInputPath);
         Path resultsDir = Paths.get(prop.getProperty("results.directory"));
+        toolRunner = new ToolRunner(Integer.parseInt(prop.getProperty("tools.concurrency", "1").trim()));
+        ScanWorkspace.configure(prop);
+        ScanContext.configure(prop);
+        TrivyServer.configure(prop);
+        VulnerabilityDbManager.configure(prop);
+        evaluationWorkers = Integer.parseInt(prop.getProperty("evaluation.workers", "1").trim());
+        numericMode = NumericMode.fromProperties(prop);
+        numericVerifier = NumericVerifier.fromProperties(prop);
 
         /**
          * Code that checks if source code is present to generate SBOMs for, we iterate through each directory or
@@ -129,6 +153,27 @@ public class SingleProjectEvaluator extends ASingleProjectEvaluator {
             }
         }
 
+        // get derived quality model location
+        Path qmLocation = Paths.get(prop.getProperty("derived.qm"));
+
+        // initialize SBOM analysis tools that will run on each SBOM in the input/projects/SBOM directory
+        LOGGER.info("Initializing SBOM analysis tools");
+        // one CWE resolver for the whole run, so a vulnerability reported by several tools or SBOMs is resolved once
+        MemoizingCweResolver cweResolver = new MemoizingCweResolver(CweResolverFactory.fromProperties(piqueData, propertiesPath));
+        ITool gyrpeWrapper = new GrypeWrapper(piqueData, propertiesPath, cweResolver);
+        ITool trivyWrapper = new TrivyWrapper(piqueData, propertiesPath, cweResolver);
+        //ITool cveBinToolWrapper = new CveBinToolWrapper(piqueData, propertiesPath, cweResolver);
+        //Set<ITool> tools = Stream.of(gyrpeWrapper,trivyWrapper, cveBinToolWrapper).collect(Collectors.toSet());
+        Set<ITool> tools = Stream.of(gyrpeWrapper,trivyWrapper).collect(Collectors.toSet());
+
+        // refresh each tool's vulnerability database once, every scan of this run then uses that snapshot
+        VulnerabilityDbManager.shared().refresh(tools.stream().map(ITool::getName).collect(Collectors.toList()), resultsDir);
+        // SBOMs scanned before with the same tool and database versions reuse their earlier reports
+        ScanResultCache scanCache = ScanResultCache.fromProperties(prop, resultsDir);
+        // SBOMs sharing components with ones scanned before are scanned as deltas of their new components
+        ComponentScanCache.configure(prop, resultsDir);
+        Set<ITool> scanningTools = scanCache.wrap(tools);
+
         IGenerationTool sbomGenerator;
         if (genTool.contains("syft")) {
             sbomGenerator = new SyftSbomGenerationWrapper();
@@ -140,95 +185,208 @@ public class SingleProjectEvaluator extends ASingleProjectEvaluator {
             sbomGenerator = null;
         }
 
-        // Generate SBOMs for each project in the source code directory, if one wasn't specified skip generation
-        if (sbomGenerator != null) {
-            for (Path projectToGenerateSbomFor : sourceCodeRoots){
-                LOGGER.info("Generating SBOM for: {}\nwith generation tool: {}", projectToGenerateSbomFor.toString(), genTool);
-                System.out.println("Generating SBOM for: " + projectToGenerateSbomFor + "\nwith generation tool: " + genTool);
-                sbomGenerator.generateSource(projectToGenerateSbomFor, sbomPath);
+        // each SBOM is evaluated as soon as it has been generated, while the remaining targets are still being generated
+        int sourceConcurrency = Integer.parseInt(prop.getProperty("generation.source-concurrency", "1").trim());
+        int imageConcurrency = Integer.parseInt(prop.getProperty("generation.image-concurrency", "1").trim());
+        try (SbomPipeline<SbomProject> pipeline = new SbomPipeline<>(sourceConcurrency, imageConcurrency, evaluationWorkers,
+                sbom -> evaluateSbom(sbom, resultsDir, qmLocation, scanningTools))) {
+
+            // Generate SBOMs for each project in the source code directory, if one wasn't specified skip generation
+            if (sbomGenerator != null) {
+                for (Path projectToGenerateSbomFor : sorted(sourceCodeRoots)) {
+                    LOGGER.info("Generating SBOM for: {}\nwith generation tool: {}", projectToGenerateSbomFor.toString(), genTool);
+                    System.out.println("Generating SBOM for: " + projectToGenerateSbomFor + "\nwith generation tool: " + genTool);
+                    pipeline.generateSource(projectToGenerateSbomFor, target -> sbomGenerator.generateSource(target, sbomPath));
+                }
+                for (Path projectToGenerateSbomFor : sorted(imageRoots)) {
+                    LOGGER.info("Generating SBOM for: {}\nwith generation tool: {}", projectToGenerateSbomFor.toString(), genTool);
+                    System.out.println("Generating SBOM for: " + projectToGenerateSbomFor + "\nwith generation tool: " + genTool);
+                    pipeline.generateImage(projectToGenerateSbomFor, target -> sbomGenerator.generateImage(target, sbomPath));
+                }
+                pipeline.awaitGeneration();
+                pipeline.getGenerationFailures().forEach((target, cause) ->
+                        System.out.println("WARN: Failed to generate SBOM for " + target + ": " + cause.getMessage()));
             }
-            for (Path projectToGenerateSbomFor : imageRoots){
-                LOGGER.info("Generating SBOM for: {}\nwith generation tool: {}", projectToGenerateSbomFor.toString(), genTool);
-                System.out.println("Generating SBOM for: " + projectToGenerateSbomFor + "\nwith generation tool: " + genTool);
-                sbomGenerator.generateImage(projectToGenerateSbomFor, sbomPath);
+            else {
+                System.out.println("No SBOM generation tool specified. Skipping generation of SBOMs.");
+                LOGGER.warn("No SBOM generation tool specified. Skipping generation of SBOMs.");
             }
-        }
-        else {
-            System.out.println("No SBOM generation tool specified. Skipping generation of SBOMs.");
-            LOGGER.warn("No SBOM generation tool specified. Skipping generation of SBOMs.");
-        }
 
+            // now that SBOMs have been generated from any present source code we proceed as a normal pique run
 
-        // now that SBOMs have been generated from any present source code we proceed as a normal pique run
-
-        // get derived quality model location
-        Path qmLocation = Paths.get(prop.getProperty("derived.qm"));
-
-        // initialize SBOM analysis tools that will run on each SBOM in the input/projects/SBOM directory
-        LOGGER.info("Initializing SBOM analysis tools");
-        ITool gyrpeWrapper = new GrypeWrapper(piqueData, propertiesPath);
-        ITool trivyWrapper = new TrivyWrapper(piqueData, propertiesPath);
-        //ITool cveBinToolWrapper = new CveBinToolWrapper(piqueData, propertiesPath);
-        //Set<ITool> tools = Stream.of(gyrpeWrapper,trivyWrapper, cveBinToolWrapper).collect(Collectors.toSet());
-        Set<ITool> tools = Stream.of(gyrpeWrapper,trivyWrapper).collect(Collectors.toSet());
+            // loop through each SBOM in the input/projects/SBOM directory and queue the ones not generated in this run
+            LOGGER.info("Evaluating SBOMs");
+            Set<Path> sbomRoots = new HashSet<>();
+            File[] sbomsToAssess = sbomPath.toFile().listFiles();
+            if (sbomsToAssess != null) {
+                for (File f : sbomsToAssess) {
+                    if (f.isFile() && !f.getName().equals(".gitignore")) {
+                        sbomRoots.add(f.toPath());
+                    }
+                }
+            }
+            else {
+                System.out.println("WARN: No SBOMs found in the input/projects/SBOM directory");
+                LOGGER.warn("No SBOMs found in the input/projects/SBOM directory");
+            }
+            warnOnSharedProjectNames(sbomRoots);
 
-        // loop through each SBOM in the input/projects/SBOM directory and store paths in a list
-        LOGGER.info("Evaluating SBOMs");
-        Set<Path> sbomRoots = new HashSet<>();
-        File[] sbomsToAssess = sbomPath.toFile().listFiles();
-        if (sbomsToAssess != null) {
-            for (File f : sbomsToAssess) {
-                if (f.isFile() && !f.getName().equals(".gitignore")) {
-                    sbomRoots.add(f.toPath());
+            // PIQUE evaluator entry point - evaluates each SBOM in the input/projects/SBOM directory and stores results in out directory
+            for (Path projectUnderAnalysisPath : sorted(sbomRoots)) {
+                if (!pipeline.isQueued(projectUnderAnalysisPath)) {
+                    pipeline.evaluate(projectUnderAnalysisPath);
                 }
             }
+            pipeline.awaitEvaluation();
+
+            if (!pipeline.getEvaluated().isEmpty()) {
+                project = pipeline.getEvaluated().get(pipeline.getEvaluated().lastKey());
+            }
+            // timed out and cancelled scans are reported apart from SBOMs that failed to evaluate
+            int total = pipeline.getEvaluationFailures().size() + pipeline.getEvaluated().size();
+            Map<ScanOutcome, List<Path>> failed = pipeline.getEvaluationFailures().entrySet().stream()
+                    .collect(Collectors.groupingBy(failure -> failure.getValue() instanceof ScanIncompleteException
+                                    ? ((ScanIncompleteException) failure.getValue()).getOutcome() : ScanOutcome.FAILED,
+                            TreeMap::new, Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+            failed.forEach((outcome, sboms) -> {
+                String description = outcome == ScanOutcome.FAILED ? "failed to evaluate" : outcome.name().toLowerCase().replace('_', ' ');
+                LOGGER.error("{} of {} SBOMs {}: {}", sboms.size(), total, description, sboms);
+                System.out.println("WARN: " + sboms.size() + " of " + total + " SBOMs " + description + ": " + sboms);
+            });
+        } finally {
+            // no lookups are left once the pipeline has stopped, the CWE cache files can be closed
+            CweResolverFactory.closeAll();
         }
-        else {
-            System.out.println("WARN: No SBOMs found in the input/projects/SBOM directory");
-            LOGGER.warn("No SBOMs found in the input/projects/SBOM directory");
+        LOGGER.info("CWE resolution: {}", cweResolver);
+        LOGGER.info("Scan results: {}", scanCache);
+        LOGGER.info("Quality models: {}", QualityModelTemplateCache.shared());
+        LOGGER.info("Component scans: {}", ComponentScanCache.shared());
+        if (numericMode == NumericMode.DOUBLE) {
+            LOGGER.info("Double precision evaluation: {}", numericVerifier);
+            if (numericVerifier.getDisagreements() > 0) {
+                System.out.println("WARN: double and BigDecimal evaluation disagreed for " + numericVerifier.getDisagreements()
+                        + " of " + numericVerifier.getSampled() + " verified SBOMs");
+            }
         }
+    }
 
-        // PIQUE evaluator entry point - evaluates each SBOM in the input/projects/SBOM directory and stores results in out directory
-        for (Path projectUnderAnalysisPath : sbomRoots){
-            LOGGER.info("Project to analyze: {}", projectUnderAnalysisPath.toString());
-            Path outputPath = runEvaluator(projectUnderAnalysisPath, resultsDir, qmLocation, tools);
-            LOGGER.info("output: {}", outputPath.getFileName());
-            System.out.println("output: " + outputPath.getFileName());
-            System.out.println("exporting compact: " + project.exportToJson(resultsDir, true));
+    /**
+     * Cancels the SBOM scans in progress. Their tools are killed along with their child processes and the SBOMs are
+     * reported as cancelled; SBOMs whose scan has not started yet are still evaluated.
+     */
+    public void cancel() {
+        activeScans.forEach(ScanContext::cancel);
+    }
+
+    private static List<Path> sorted(Set<Path> paths) {
+        List<Path> ordered = new ArrayList<>(paths);
+        Collections.sort(ordered);
+        return ordered;
+    }
+
+    private static void warnOnSharedProjectNames(Set<Path> sbomRoots) {
+        sbomRoots.stream()
+                .collect(Collectors.groupingBy(sbom -> FilenameUtils.getBaseName(sbom.getFileName().toString())))
+                .forEach((name, sboms) -> {
+                    if (sboms.size() > 1) {
+                        LOGGER.warn("SBOMs {} share the project name {}, their results overwrite each other", sboms, name);
+                    }
+                });
+    }
 
-            // TODO: Remove later (only here for experimenting with the pdf utility function)
+    /**
+     * Evaluates a single SBOM and exports its full and compact results.
+     *
+     * @return the evaluated project
+     */
+    private SbomProject evaluateSbom(Path projectUnderAnalysisPath, Path resultsDir, Path qmLocation, Set<ITool> tools) {
+        LOGGER.info("Project to analyze: {}", projectUnderAnalysisPath.toString());
+        ScanContext scan = ScanContext.open(projectUnderAnalysisPath.getFileName().toString());
+        activeScans.add(scan);
+        SbomProject evaluatedProject;
+        try {
+            evaluatedProject = scan.call(() -> evaluateProject(projectUnderAnalysisPath, resultsDir, qmLocation, tools));
+        } finally {
+            activeScans.remove(scan);
+        }
+        // a scan cut short is missing findings, exporting it would pass it off as a clean result
+        if (scan.getOutcome() == ScanOutcome.TIMED_OUT || scan.getOutcome() == ScanOutcome.CANCELLED) {
+            throw new ScanIncompleteException(projectUnderAnalysisPath, scan.getOutcome(), scan.getToolOutcomes());
+        }
+        Path outputPath = evaluatedProject.exportToJson(resultsDir);
+        LOGGER.info("output: {}", outputPath.getFileName());
+        System.out.println("output: " + outputPath.getFileName());
+        System.out.println("exporting compact: " + evaluatedProject.exportToJson(resultsDir, true));
+
+        // TODO: Remove later (only here for experimenting with the pdf utility function)
 //            Pair<String, String> name = Pair.of("projectName", project.getName());
 //            String fileName = project.getName() + "_compact_evalResults-TRIMMED" + parameters;
 //            QualityModelExport qmExport = new QualityModelCompactExport(project.getQualityModel(), name);
 //            qmExport.exportToJson(fileName, resultsDir);
-        }
+        return evaluatedProject;
     }
 
     @Override
     public Path runEvaluator(Path projectDir, Path resultsDir, Path qmLocation, Set<ITool> tools) {
+        project = evaluateProject(projectDir, resultsDir, qmLocation, tools);
+
+        // Create a file of the results and return its path
+        return project.exportToJson(resultsDir);
+    }
+
+    /**
+     * Evaluates a single SBOM without touching the {@code project} field, so SBOMs can be evaluated concurrently.
+     *
+     * @return the evaluated project, backed by a quality model instance of its own
+     */
+    private SbomProject evaluateProject(Path projectDir, Path resultsDir, Path qmLocation, Set<ITool> tools) {
         // Initialize data structures
         initialize(projectDir, resultsDir, qmLocation);
-        SbomQualityModelImport qmImport = new SbomQualityModelImport(qmLocation);
-        QualityModel qualityModel = qmImport.importQualityModel();
-        project = new SbomProject(FilenameUtils.getBaseName(projectDir.getFileName().toString()), projectDir, qualityModel);
+        // the model file is parsed once, each SBOM gets a fresh instance of it
+        QualityModel qualityModel = QualityModelTemplateCache.shared().instance(qmLocation);
+        SbomProject sbomProject = new SbomProject(FilenameUtils.getBaseName(projectDir.getFileName().toString()), projectDir, qualityModel);
 
         // Validate State
-        validatePreEvaluationState(project);
+        validatePreEvaluationState(sbomProject);
 
         // Run the static analysis tools process
-        Map<String, Diagnostic> allDiagnostics = new HashMap<>();
-        tools.forEach(tool -> {
-            allDiagnostics.putAll(runTool(projectDir, tool));
-        });
+        List<Map<String, Diagnostic>> toolDiagnostics = toolRunner.runEach(tools, tool -> runTool(projectDir, tool));
 
-        // Apply tool results to Project object
-        project.updateDiagnosticsWithFindings(allDiagnostics);
+        // Apply tool results to Project object, all tools in one pass over the project's diagnostic index
+        sbomProject.updateDiagnosticsWithFindings(toolDiagnostics);
 
-        BigDecimal tqiValue = project.evaluateTqi();
-        LOGGER.info("TQI value: {}", tqiValue);
+        BigDecimal tqiValue = numericMode == NumericMode.DOUBLE ? evaluateTqiInDouble(sbomProject) : sbomProject.evaluateTqi();
+        LOGGER.info("TQI value for {}: {}", sbomProject.getName(), tqiValue);
         System.out.println("TQI value: " + tqiValue);
 
-        // Create a file of the results and return its path
-        return project.exportToJson(resultsDir);
+        return sbomProject;
+    }
+
+    /**
+     * Evaluates the weighted sums of the project's model in double precision and stores the values on its nodes, first
+     * checking the result against BigDecimal evaluation if the project is part of the verified sample.
+     */
+    private BigDecimal evaluateTqiInDouble(SbomProject sbomProject) {
+        CompiledQualityModel compiled = compiledModel(sbomProject.getQualityModel());
+        if (numericVerifier.isSampled(sbomProject.getName())) {
+            numericVerifier.verify(sbomProject.getName(), compiled);
+        }
+        double[] values = compiled.apply();
+        return BigDecimal.valueOf(values[values.length - 1]);
+    }
+
+    /**
+     * @return the model compiled once per run, bound to the given instance
+     */
+    private CompiledQualityModel compiledModel(QualityModel qualityModel) {
+        synchronized (this) {
+            // only the arrays are kept across projects, not the nodes and findings of the project compiled from
+            if (compiledModel == null) {
+                compiledModel = CompiledQualityModel.compile(qualityModel).unbind();
+                LOGGER.info("Compiled quality model for double precision evaluation: {} nodes, {} leaves",
+                        compiledModel.size(), compiledModel.getLeafCount());
+            }
+        }
+        return compiledModel.bind(qualityModel);
     }
 }
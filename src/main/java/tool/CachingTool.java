@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.analysis.ITool;
+import pique.analysis.Tool;
+import pique.model.Diagnostic;
+import utilities.ScanContext;
+import utilities.ScanOutcome;
+import utilities.ScanWorkspace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs a tool through a {@link ScanResultCache}: {@code analyze} hands out a copy of the cached report when the same
+ * SBOM content was scanned before, and otherwise runs the tool and caches its report if the scan succeeded.
+ * Parsing is left to the wrapped tool.
+ */
+public class CachingTool extends Tool implements ITool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingTool.class);
+
+    private final ITool tool;
+    private final ScanResultCache cache;
+
+    public CachingTool(ITool tool, ScanResultCache cache) {
+        super(tool.getName(), tool.getToolRoot());
+        this.tool = tool;
+        this.cache = cache;
+    }
+
+    @Override
+    public Path analyze(Path projectLocation) {
+        Optional<Path> cached = cache.lookup(getName(), projectLocation);
+        if (cached.isPresent()) {
+            // hand out a copy in a workspace of its own, the wrapped tool releases it once parsed
+            ScanWorkspace workspace = ScanWorkspace.create(getName() + "-cached");
+            Path report = workspace.resolve(getName() + ".json");
+            try {
+                Files.copy(cached.get(), report, StandardCopyOption.REPLACE_EXISTING);
+                LOGGER.info("{} Reusing cached report for {}", getName(), projectLocation);
+                ScanContext.report(getName(), ScanOutcome.COMPLETED);
+                return report;
+            } catch (IOException e) {
+                // evicted in the meantime, scan instead
+                workspace.close();
+                LOGGER.debug("Cached {} report for {} is gone", getName(), projectLocation, e);
+            }
+        }
+
+        Path report = tool.analyze(projectLocation);
+        boolean failed = report == null || !Files.isRegularFile(report)
+                || ScanWorkspace.owning(report).map(ScanWorkspace::isFailed).orElse(false)
+                || ScanContext.current().map(scan -> scan.getToolOutcomes().getOrDefault(getName(), ScanOutcome.COMPLETED) != ScanOutcome.COMPLETED).orElse(false);
+        if (!failed) {
+            cache.store(getName(), projectLocation, report);
+        }
+        return report;
+    }
+
+    @Override
+    public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+        return tool.parseAnalysis(toolResults);
+    }
+
+    @Override
+    public Path initialize(Path toolRoot) {
+        return tool.initialize(toolRoot);
+    }
+}
@@ -0,0 +1,558 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import toolOutputObjects.RawVulnerabilityData;
+import utilities.ScanWorkspace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Per-component cache of tool findings, keyed by each component's package URL for the current tool version and
+ * vulnerability database build. Consecutive SBOMs of a product mostly share their components, so instead of scanning
+ * the whole SBOM again, {@link #scan} synthesizes a delta SBOM holding only the components the tool has not seen
+ * with this database, scans that, and merges the fresh findings with the cached findings of every other component
+ * into a findings report ({@link FindingsReportReader}).
+ *
+ * <ul>
+ *     <li>{@code component-cache.enabled} - whether to scan delta SBOMs (default false)</li>
+ *     <li>{@code component-cache.directory} - where component findings are kept
+ *     (default {@code <results.directory>/cache/components})</li>
+ * </ul>
+ *
+ * <p>Only CycloneDX JSON SBOMs are scanned as deltas, and only for tools whose database is pinned by
+ * {@link VulnerabilityDbManager}; every other SBOM is scanned in full. Components without a purl, operating systems
+ * and the SBOM's subject are context: they are copied into every delta, so scanners can match an image's packages
+ * against its distribution, and their findings are reported but never cached. Findings of a delta scan that cannot be
+ * attributed to a component are reported but not cached. Entries of an older tool version or database build are
+ * discarded.</p>
+ */
+public class ComponentScanCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComponentScanCache.class);
+    private static final Gson GSON = new Gson();
+    private static final Type FINDINGS = new TypeToken<List<RawVulnerabilityData>>() { }.getType();
+    /** attribution key of the findings of context components, which are not cached */
+    private static final String CONTEXT = "";
+    private static volatile ComponentScanCache shared = new ComponentScanCache(null, tool -> null, tool -> null);
+
+    private final Path directory;
+    private final Function<String, String> toolVersions;
+    private final Function<String, String> databaseVersions;
+    private final Map<String, String> versionCache = new ConcurrentHashMap<>();
+    private final Map<String, Generation> generations = new ConcurrentHashMap<>();
+    private final Map<String, Object> generationLocks = new ConcurrentHashMap<>();
+    private final AtomicLong cachedComponents = new AtomicLong();
+    private final AtomicLong scannedComponents = new AtomicLong();
+    private final AtomicLong fullScans = new AtomicLong();
+
+    /**
+     * Opens a tool report for reading.
+     */
+    public interface ReportReaderFactory {
+        IVulnerabilityReportReader open(Path report) throws IOException;
+    }
+
+    /**
+     * @param directory where component findings are kept, null to disable delta scanning
+     * @param toolVersions version of a tool by tool name, null if unknown
+     * @param databaseVersions build time of a tool's pinned database by tool name, null if not pinned
+     */
+    public ComponentScanCache(Path directory, Function<String, String> toolVersions, Function<String, String> databaseVersions) {
+        this.directory = directory;
+        this.toolVersions = toolVersions;
+        this.databaseVersions = databaseVersions;
+    }
+
+    /**
+     * Applies the component cache settings of a properties file to every scan started afterwards.
+     */
+    public static void configure(Properties prop, Path resultsDir) {
+        if (!Boolean.parseBoolean(prop.getProperty("component-cache.enabled", "false").trim())) {
+            shared = new ComponentScanCache(null, tool -> null, tool -> null);
+            return;
+        }
+        String directory = prop.getProperty("component-cache.directory", "").trim();
+        shared = new ComponentScanCache(directory.isEmpty() ? resultsDir.resolve("cache").resolve("components") : Paths.get(directory),
+                ScanResultCache::readToolVersion, ScanResultCache::pinnedDatabaseVersion);
+    }
+
+    public static ComponentScanCache shared() {
+        return shared;
+    }
+
+    /**
+     * Scans the SBOM, as a delta of the components not seen before where possible.
+     *
+     * @param tool tool name
+     * @param sbom SBOM to scan
+     * @param scanner runs the tool on an SBOM and returns its report
+     * @param readers opens a report of the tool
+     * @return a findings report, or the tool's own report if the SBOM was scanned in full, also when its delta could not
+     * be scanned
+     */
+    public Path scan(String tool, Path sbom, Function<Path, Path> scanner, ReportReaderFactory readers) {
+        Generation generation = directory == null ? null : generation(tool);
+        SbomComponents components = generation == null ? null : readComponents(sbom);
+        if (components == null) {
+            fullScans.incrementAndGet();
+            return scanner.apply(sbom);
+        }
+
+        List<RawVulnerabilityData> findings = new ArrayList<>();
+        Map<String, JsonObject> unseen = new LinkedHashMap<>();
+        components.cacheable.forEach((purl, component) -> {
+            List<RawVulnerabilityData> cached = generation.get(purl);
+            if (cached == null) {
+                unseen.put(purl, component);
+            }
+            else {
+                findings.addAll(cached);
+            }
+        });
+        cachedComponents.addAndGet(components.cacheable.size() - unseen.size());
+        scannedComponents.addAndGet(unseen.size());
+        LOGGER.info("{} Scanning {} of {} components of {}, the others are cached", tool, unseen.size(), components.cacheable.size(), sbom);
+
+        // components without a purl are never cached, so they are scanned with every delta
+        if (!unseen.isEmpty() || components.hasScannableContext()) {
+            ScanWorkspace deltaWorkspace = ScanWorkspace.create(tool + "-delta");
+            try {
+                Path delta = deltaWorkspace.resolve(sbom.getFileName().toString());
+                writeDelta(sbom, delta, unseen, components.context);
+                Path report = scanner.apply(delta);
+                if (report == null || !Files.isRegularFile(report)
+                        || ScanWorkspace.owning(report).map(ScanWorkspace::isFailed).orElse(false)) {
+                    // the delta report lacks the cached components' findings, so it cannot stand in for the SBOM's
+                    LOGGER.warn("{} Scan of the delta of {} failed, scanning it in full", tool, sbom);
+                    return scanInFull(sbom, scanner, deltaWorkspace, report);
+                }
+                List<RawVulnerabilityData> deltaFindings = new ArrayList<>();
+                try (IVulnerabilityReportReader reader = readers.open(report)) {
+                    reader.forEachRemaining(deltaFindings::add);
+                } catch (IOException | UncheckedIOException | IllegalStateException e) {
+                    LOGGER.warn("Unable to read the {} report of the delta of {}, scanning it in full", tool, sbom, e);
+                    return scanInFull(sbom, scanner, deltaWorkspace, report);
+                }
+                ScanWorkspace.release(report, true);
+
+                findings.addAll(deltaFindings);
+                Map<String, List<RawVulnerabilityData>> attributed = attribute(deltaFindings, unseen, components.contextWithSubject());
+                if (attributed != null) {
+                    generation.putAll(attributed);
+                }
+                else {
+                    LOGGER.warn("{} Unable to attribute every finding for {} to a component, not caching them", tool, sbom);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write the delta of {}, scanning it in full", sbom, e);
+                return scanInFull(sbom, scanner, deltaWorkspace, null);
+            } finally {
+                deltaWorkspace.close();
+            }
+        }
+
+        ScanWorkspace workspace = ScanWorkspace.create(tool + "-findings");
+        Path report = workspace.resolve(tool + FindingsReportReader.SUFFIX);
+        try {
+            FindingsReportReader.write(report, findings);
+        } catch (IOException e) {
+            workspace.markFailed();
+            LOGGER.error("Unable to write the findings of {} for {}", tool, sbom, e);
+        }
+        return report;
+    }
+
+    /**
+     * Scans the SBOM in full after its delta could not be scanned, keeping the delta and its report for inspection.
+     */
+    private Path scanInFull(Path sbom, Function<Path, Path> scanner, ScanWorkspace deltaWorkspace, Path deltaReport) {
+        deltaWorkspace.markFailed();
+        ScanWorkspace.release(deltaReport, false);
+        fullScans.incrementAndGet();
+        return scanner.apply(sbom);
+    }
+
+    /**
+     * @return components whose findings were taken from the cache
+     */
+    public long getCachedComponents() {
+        return cachedComponents.get();
+    }
+
+    /**
+     * @return components scanned as part of a delta SBOM
+     */
+    public long getScannedComponents() {
+        return scannedComponents.get();
+    }
+
+    /**
+     * @return SBOMs scanned in full, e.g. because a component has no purl
+     */
+    public long getFullScans() {
+        return fullScans.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ComponentScanCache{cached=" + getCachedComponents() + ", scanned=" + getScannedComponents()
+                + ", fullScans=" + getFullScans() + "}";
+    }
+
+    private Generation generation(String tool) {
+        String toolVersion = versionCache.computeIfAbsent("tool:" + tool, key -> Optional.ofNullable(toolVersions.apply(tool)).orElse(""));
+        String databaseVersion = databaseVersions.apply(tool);
+        if (toolVersion.isEmpty() || databaseVersion == null) {
+            return null;
+        }
+        String name = tool + "-" + sha256(toolVersion + "\n" + databaseVersion) + ".jsonl";
+        Generation current = generations.get(tool);
+        if (current != null && current.isNamed(name)) {
+            return current;
+        }
+        // opened outside the map, so reading one tool's findings does not hold up lookups for the others
+        synchronized (generationLocks.computeIfAbsent(tool, key -> new Object())) {
+            current = generations.get(tool);
+            if (current == null || !current.isNamed(name)) {
+                current = Generation.open(directory, tool, name);
+                generations.put(tool, current);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Components of a CycloneDX SBOM: those with a purl, whose findings are cached, and the context copied into every
+     * delta, such as the operating system an image's packages are matched against.
+     */
+    static class SbomComponents {
+        static final String OPERATING_SYSTEM = "operating-system";
+
+        /** components with a purl by purl */
+        final Map<String, JsonObject> cacheable = new LinkedHashMap<>();
+        /** components without a purl and operating systems, never cached */
+        final List<JsonObject> context = new ArrayList<>();
+        /** the SBOM's metadata component, kept in every delta and never cached */
+        JsonObject subject;
+
+        /**
+         * @return whether a context component other than an operating system may have findings of its own, so a delta
+         * has to be scanned even when every cacheable component is cached
+         */
+        boolean hasScannableContext() {
+            return context.stream().anyMatch(component -> !OPERATING_SYSTEM.equals(string(component, "type")));
+        }
+
+        List<JsonObject> contextWithSubject() {
+            List<JsonObject> all = new ArrayList<>(context);
+            if (subject != null) {
+                all.add(subject);
+            }
+            return all;
+        }
+    }
+
+    /**
+     * @return components of a CycloneDX JSON SBOM, or null if the SBOM cannot be scanned as a delta because it is not
+     * one or none of its components has a purl
+     */
+    static SbomComponents readComponents(Path sbom) {
+        JsonObject bom;
+        try (BufferedReader reader = Files.newBufferedReader(sbom, StandardCharsets.UTF_8)) {
+            JsonElement root = JsonParser.parseReader(reader);
+            if (!root.isJsonObject() || !"CycloneDX".equals(string(root.getAsJsonObject(), "bomFormat"))) {
+                return null;
+            }
+            bom = root.getAsJsonObject();
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+
+        SbomComponents components = new SbomComponents();
+        JsonObject metadata = bom.has("metadata") && bom.get("metadata").isJsonObject() ? bom.getAsJsonObject("metadata") : null;
+        if (metadata != null && metadata.has("component") && metadata.get("component").isJsonObject()) {
+            components.subject = metadata.getAsJsonObject("component");
+        }
+        List<JsonObject> all = new ArrayList<>();
+        if (bom.has("components") && bom.get("components").isJsonArray()) {
+            flatten(bom.getAsJsonArray("components"), all);
+        }
+        for (JsonObject component : all) {
+            String purl = string(component, "purl");
+            if (purl.isEmpty() || SbomComponents.OPERATING_SYSTEM.equals(string(component, "type"))) {
+                components.context.add(component);
+            }
+            else {
+                components.cacheable.putIfAbsent(purl, component);
+            }
+        }
+        return components.cacheable.isEmpty() ? null : components;
+    }
+
+    /**
+     * Writes a copy of the SBOM holding its subject, the context components and the given components, flattened.
+     * Dependencies are kept between the components in the copy, scanners such as Trivy tell an image's operating
+     * system packages by them; vulnerabilities, which may refer to the components left out, are dropped.
+     */
+    static void writeDelta(Path sbom, Path delta, Map<String, JsonObject> unseen, List<JsonObject> context) throws IOException {
+        JsonObject bom;
+        try (BufferedReader reader = Files.newBufferedReader(sbom, StandardCharsets.UTF_8)) {
+            bom = JsonParser.parseReader(reader).getAsJsonObject();
+        }
+        Set<String> refs = new HashSet<>();
+        JsonObject metadata = bom.has("metadata") && bom.get("metadata").isJsonObject() ? bom.getAsJsonObject("metadata") : null;
+        if (metadata != null && metadata.has("component") && metadata.get("component").isJsonObject()) {
+            refs.add(string(metadata.getAsJsonObject("component"), "bom-ref"));
+        }
+
+        JsonArray components = new JsonArray();
+        List<JsonObject> included = new ArrayList<>(context);
+        included.addAll(unseen.values());
+        for (JsonObject component : included) {
+            JsonObject copy = component.deepCopy();
+            copy.remove("components");
+            components.add(copy);
+            refs.add(string(component, "bom-ref"));
+        }
+        refs.remove("");
+        bom.add("components", components);
+        bom.remove("vulnerabilities");
+
+        if (bom.has("dependencies") && bom.get("dependencies").isJsonArray()) {
+            JsonArray dependencies = new JsonArray();
+            for (JsonElement element : bom.getAsJsonArray("dependencies")) {
+                if (!element.isJsonObject() || !refs.contains(string(element.getAsJsonObject(), "ref"))) {
+                    continue;
+                }
+                JsonObject dependency = element.getAsJsonObject().deepCopy();
+                if (dependency.has("dependsOn") && dependency.get("dependsOn").isJsonArray()) {
+                    JsonArray dependsOn = new JsonArray();
+                    for (JsonElement ref : dependency.getAsJsonArray("dependsOn")) {
+                        if (ref.isJsonPrimitive() && refs.contains(ref.getAsString())) {
+                            dependsOn.add(ref);
+                        }
+                    }
+                    dependency.add("dependsOn", dependsOn);
+                }
+                dependencies.add(dependency);
+            }
+            bom.add("dependencies", dependencies);
+        }
+
+        try (Writer writer = Files.newBufferedWriter(delta, StandardCharsets.UTF_8)) {
+            GSON.toJson(bom, writer);
+        }
+    }
+
+    /**
+     * Assigns each finding to the component it was reported for, by purl, by purl without qualifiers, or by name and
+     * version. Findings of context components are reported with the SBOM but not cached.
+     *
+     * @return findings by purl, with an empty list for components without findings, or null if a finding matches
+     * neither a component nor the context
+     */
+    static Map<String, List<RawVulnerabilityData>> attribute(List<RawVulnerabilityData> findings, Map<String, JsonObject> components,
+                                                             List<JsonObject> context) {
+        Map<String, List<RawVulnerabilityData>> attributed = new LinkedHashMap<>();
+        Map<String, String> byBarePurl = new LinkedHashMap<>();
+        Map<String, String> byNameVersion = new LinkedHashMap<>();
+        components.forEach((purl, component) -> {
+            attributed.put(purl, new ArrayList<>());
+            index(purl, component, byBarePurl, byNameVersion);
+        });
+        context.forEach(component -> index(CONTEXT, component, byBarePurl, byNameVersion));
+
+        for (RawVulnerabilityData finding : findings) {
+            String findingPurl = finding.getPurl() == null ? "" : finding.getPurl();
+            String purl = attributed.containsKey(findingPurl) ? findingPurl : byBarePurl.get(barePurl(findingPurl));
+            if (purl == null || findingPurl.isEmpty()) {
+                purl = byNameVersion.get(finding.getPackageName() + "@" + finding.getPackageVersion());
+            }
+            if (purl == null) {
+                return null;
+            }
+            if (!purl.equals(CONTEXT)) {
+                attributed.get(purl).add(finding);
+            }
+        }
+        return attributed;
+    }
+
+    private static void index(String key, JsonObject component, Map<String, String> byBarePurl, Map<String, String> byNameVersion) {
+        String purl = string(component, "purl");
+        if (!purl.isEmpty()) {
+            byBarePurl.putIfAbsent(barePurl(purl), key);
+        }
+        String version = string(component, "version");
+        String name = string(component, "name");
+        String group = string(component, "group");
+        byNameVersion.putIfAbsent(name + "@" + version, key);
+        if (!group.isEmpty()) {
+            byNameVersion.putIfAbsent(group + "/" + name + "@" + version, key);
+        }
+    }
+
+    private static void flatten(JsonArray components, List<JsonObject> all) {
+        for (JsonElement element : components) {
+            if (element.isJsonObject()) {
+                JsonObject component = element.getAsJsonObject();
+                all.add(component);
+                if (component.has("components") && component.get("components").isJsonArray()) {
+                    flatten(component.getAsJsonArray("components"), all);
+                }
+            }
+        }
+    }
+
+    private static String barePurl(String purl) {
+        int end = purl.length();
+        for (char separator : new char[]{'?', '#'}) {
+            int index = purl.indexOf(separator);
+            if (index >= 0) {
+                end = Math.min(end, index);
+            }
+        }
+        return purl.substring(0, end);
+    }
+
+    private static String string(JsonObject object, String member) {
+        JsonElement value = object.get(member);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : "";
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Component findings of one tool version and database build, kept in memory and appended to a JSON lines file.
+     */
+    private static class Generation {
+        private final Path file;
+        private final Map<String, List<RawVulnerabilityData>> findings = new ConcurrentHashMap<>();
+
+        private Generation(Path file) {
+            this.file = file;
+        }
+
+        static Generation open(Path directory, String tool, String name) {
+            Generation generation = new Generation(directory.resolve(name));
+            try {
+                Files.createDirectories(directory);
+                // entries of an older tool version or database build are stale
+                try (Stream<Path> files = Files.list(directory)) {
+                    files.filter(file -> file.getFileName().toString().startsWith(tool + "-") && !file.getFileName().toString().equals(name))
+                            .forEach(file -> {
+                                try {
+                                    Files.deleteIfExists(file);
+                                } catch (IOException e) {
+                                    LOGGER.warn("Unable to delete stale component cache {}", file, e);
+                                }
+                            });
+                }
+                if (Files.isRegularFile(generation.file)) {
+                    for (String line : Files.readAllLines(generation.file, StandardCharsets.UTF_8)) {
+                        try {
+                            JsonObject entry = JsonParser.parseString(line).getAsJsonObject();
+                            List<RawVulnerabilityData> componentFindings = GSON.fromJson(entry.get("findings"), FINDINGS);
+                            generation.findings.put(entry.get("purl").getAsString(), componentFindings);
+                        } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+                            // a line cut short by an interrupted run, its component is scanned again
+                            LOGGER.debug("Skipping unreadable component cache entry in {}", generation.file);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read the component cache {}", generation.file, e);
+            }
+            return generation;
+        }
+
+        boolean isNamed(String name) {
+            return file.getFileName().toString().equals(name);
+        }
+
+        List<RawVulnerabilityData> get(String purl) {
+            return findings.get(purl);
+        }
+
+        synchronized void putAll(Map<String, List<RawVulnerabilityData>> components) {
+            StringBuilder lines = new StringBuilder();
+            components.forEach((purl, componentFindings) -> {
+                findings.put(purl, Collections.unmodifiableList(componentFindings));
+                JsonObject entry = new JsonObject();
+                entry.addProperty("purl", purl);
+                entry.add("findings", GSON.toJsonTree(componentFindings, FINDINGS));
+                lines.append(GSON.toJson(entry)).append('\n');
+            });
+            try {
+                Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to persist component findings to {}", file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import com.google.gson.stream.JsonToken;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming reader for cve-bin-tool JSON reports, a top level array with one object per vulnerable product.
+ * Keeps only the CVE number, severity and product name and version of each entry.
+ */
+public class CveBinToolReportReader extends JsonReportReader {
+    private boolean started;
+
+    /**
+     * @param report cve-bin-tool report written with {@code -f json}
+     * @throws IOException if the report cannot be opened
+     */
+    public CveBinToolReportReader(Path report) throws IOException {
+        this(Files.newBufferedReader(report, StandardCharsets.UTF_8));
+    }
+
+    public CveBinToolReportReader(Reader report) {
+        super(report);
+    }
+
+    @Override
+    protected RawVulnerabilityData readNext() throws IOException {
+        if (!started) {
+            reader.beginArray();
+            started = true;
+        }
+
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            String id = "";
+            String severity = "";
+            String packageName = "";
+            String packageVersion = "";
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "cve_number":
+                        id = nextString();
+                        break;
+                    case "severity":
+                        severity = nextString();
+                        break;
+                    case "product":
+                        packageName = nextString();
+                        break;
+                    case "version":
+                        packageVersion = nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new RawVulnerabilityData(id, severity, packageName, packageVersion);
+        }
+        return null;
+    }
+}
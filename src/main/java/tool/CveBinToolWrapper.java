@@ -25,11 +25,15 @@ package tool;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
-import org.json.JSONArray;
+import cweResolution.CweResolutionMode;
+import cweResolution.CweResolverFactory;
+import cweResolution.ICweResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +42,11 @@ import pique.analysis.Tool;
 import pique.model.Diagnostic;
 import presentation.PiqueData;
 import toolOutputObjects.RelevantVulnerabilityData;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+import utilities.ScanContext;
+import utilities.ScanOutcome;
+import utilities.ScanWorkspace;
 import utilities.helperFunctions;
 import pique.utility.PiqueProperties;
 
@@ -49,6 +58,7 @@ import pique.utility.PiqueProperties;
  */
 public class CveBinToolWrapper extends Tool implements ITool {
     private final PiqueData piqueData;
+    private final ICweResolver cweResolver;
     private final String toolName = " CVE-bin-tool Diagnostic";
     private final String propertiesPath;
     private static final Logger LOGGER = LoggerFactory.getLogger(TrivyWrapper.class);
@@ -56,11 +66,24 @@ public class CveBinToolWrapper extends Tool implements ITool {
     public CveBinToolWrapper(PiqueData piqueData) {
         super("cve_bin_tool", null);
         this.piqueData = piqueData;
+        this.cweResolver = null;
         this.propertiesPath = "src/main/resources/pique-properties.properties";
     }
     public CveBinToolWrapper(PiqueData piqueData, String propertiesPath) {
         super("cve_bin_tool", null);
         this.piqueData = piqueData;
+        this.cweResolver = null;
+        this.propertiesPath = propertiesPath;
+    }
+
+    /**
+     * Constructs a CveBinToolWrapper that resolves CWEs through the given resolver, typically the run-scoped resolver
+     * shared by every tool of an evaluation or derivation run.
+     */
+    public CveBinToolWrapper(PiqueData piqueData, String propertiesPath, ICweResolver cweResolver) {
+        super("cve_bin_tool", null);
+        this.piqueData = piqueData;
+        this.cweResolver = cweResolver;
         this.propertiesPath = propertiesPath;
     }
 
@@ -76,10 +99,9 @@ public class CveBinToolWrapper extends Tool implements ITool {
     public Path analyze(Path projectLocation) {
         LOGGER.info(this.getName() + "  Analyzing "+ projectLocation.toString());
 
-        // clear previous results
-        File tempResults = new File(System.getProperty("user.dir") + "/out/cve_bin_tool.json");
-        tempResults.delete();
-        tempResults.getParentFile().mkdirs();
+        // write results into a workspace of their own, released by parseAnalysis once they have been read
+        ScanWorkspace workspace = ScanWorkspace.create("cve_bin_tool");
+        File tempResults = workspace.resolve("cve_bin_tool.json").toFile();
 
         // get NVD api key for cve-bin-tool
         Properties prop = null;
@@ -105,15 +127,24 @@ public class CveBinToolWrapper extends Tool implements ITool {
                 "--sbom", spec, // currently only scanning  cyclonedx SBOMs
                 "-f", "json",
                 //"--quiet",
-                "-u", "daily", // update the NVD database daily
+                "-u", VulnerabilityDbManager.shared().cveBinToolUpdateMode(), // never once the database is pinned, otherwise daily
                 "--output", tempResults.toPath().toAbsolutePath().toString(), // output path
                 "--sbom-file", projectLocation.toAbsolutePath().toString()}; // product under analysis path
         LOGGER.info(Arrays.toString(cmd));
 
         // runs the command built above and captures the output, CVE-bin-tool itself will handle the file saving
         try {
-            helperFunctions.getOutputFromProgram(cmd,LOGGER);
+            ProcessResult result = new ProcessRunner(cmd).echoTo(LOGGER).timeout(ScanContext.toolTimeout(getName())).run();
+            // CVE-bin-tool exits non-zero when it finds CVEs, only a missing report means the run failed
+            boolean failed = !result.isSuccess() && (result.getOutcome() != ScanOutcome.FAILED || !tempResults.isFile());
+            ScanContext.report(getName(), failed ? result.getOutcome() : ScanOutcome.COMPLETED);
+            if (failed) {
+                workspace.markFailed();
+                LOGGER.error("CVE-bin-tool failed, {}:\n{}", result, result.getOutput());
+            }
         } catch (IOException e) {
+            workspace.markFailed();
+            ScanContext.report(getName(), ScanOutcome.FAILED);
             LOGGER.error("Failed to run CVE-bin-tool");
             LOGGER.error(e.toString());
             e.printStackTrace();
@@ -131,8 +162,9 @@ public class CveBinToolWrapper extends Tool implements ITool {
      */
     @Override
     public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
-        IOutputProcessor<RelevantVulnerabilityData> outputProcessor = new ToolOutputProcessor(new VulnerabilityService(piqueData, toolName));
-        String results = "";
+        IOutputProcessor<RelevantVulnerabilityData> outputProcessor = new ToolOutputProcessor(
+                new VulnerabilityService(getCweResolver(), toolName, CweResolutionMode.fromProperties(propertiesPath)),
+                FindingMode.fromProperties(propertiesPath));
 
         System.out.println(this.getName() + " Parsing Analysis...");
         LOGGER.debug(this.getName() + " Parsing Analysis...");
@@ -145,20 +177,25 @@ public class CveBinToolWrapper extends Tool implements ITool {
             throw new RuntimeException(e);
         }
 
-        // Read and process cve-bin-tool output
-        try {
-            results = helperFunctions.readFileContent(toolResults);
-        } catch (IOException e) {
+        // stream cve-bin-tool output into the diagnostics
+        boolean parsed = false;
+        try (IVulnerabilityReportReader report = new CveBinToolReportReader(toolResults)) {
+            outputProcessor.streamToolReport(report, diagnostics);
+            parsed = true;
+        } catch (NoSuchFileException e) {
             LOGGER.info("No results to read from CVE-bin-tool.");
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            // the findings applied before the failure would be exported as a clean but partial result
+            LOGGER.error("Unable to read results from {} output, reporting the scan as failed", toolName, e);
+            ScanContext.report(getName(), ScanOutcome.FAILED);
+            try {
+                diagnostics = helperFunctions.initializeDiagnostics(this.getName(), propertiesPath);
+            } catch (IOException initializationError) {
+                throw new RuntimeException(initializationError);
+            }
         }
 
-        JSONArray vulnerabilities = outputProcessor.getVulnerabilitiesFromToolOutput(results);
-        if (vulnerabilities != null) {
-            List<RelevantVulnerabilityData> cveBinToolVulnerabilities = outputProcessor.processToolVulnerabilities(vulnerabilities);
-            outputProcessor.addDiagnostics(cveBinToolVulnerabilities, diagnostics);
-        } else {
-            LOGGER.warn("Vulnerability array was empty.");
-        }
+        ScanWorkspace.release(toolResults, parsed);
 
         return diagnostics;
     }
@@ -175,7 +212,7 @@ public class CveBinToolWrapper extends Tool implements ITool {
         final String[] cmd = {"cve-bin-tool", "--version"};
 
         try {
-            helperFunctions.getOutputFromProgram(cmd, LOGGER);
+            new ProcessRunner(cmd).echoTo(LOGGER).run();
         } catch (IOException e) {
             e.printStackTrace();
             LOGGER.error("Failed to initialize " + this.getName());
@@ -217,4 +254,8 @@ public class CveBinToolWrapper extends Tool implements ITool {
         // Fallback decision: you might choose to default to SPDX if no signature is found
         return "spdx";
     }
+
+    private ICweResolver getCweResolver() {
+        return cweResolver != null ? cweResolver : CweResolverFactory.fromProperties(piqueData, propertiesPath);
+    }
 }
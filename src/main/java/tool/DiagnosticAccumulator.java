@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import model.AggregatedFinding;
+import model.PackageDictionary;
+import model.SbomDiagnostic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.model.Diagnostic;
+import toolOutputObjects.RelevantVulnerabilityData;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregating builder for the diagnostics of one tool report, used in {@link FindingMode#AGGREGATE}. Each diagnostic
+ * of the tool gets a slot up front, indexed by CWE, and every vulnerability only increments the per-severity count and
+ * sets the bit of its {@link PackageDictionary} id in the slots of its CWEs. {@link #apply()} then adds one
+ * {@link AggregatedFinding} per diagnostic and severity and the referenced packages to the diagnostics, and logs a
+ * summary in place of a line per finding.
+ */
+public class DiagnosticAccumulator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiagnosticAccumulator.class);
+    /** Highest severity returned by {@link utilities.helperFunctions#severityToInt}, higher ones grow the counts */
+    private static final int MAX_SEVERITY = 10;
+
+    private final String toolName;
+    private final Map<String, Integer> slotByCwe = new HashMap<>();
+    private final SbomDiagnostic[] slots;
+    private final int otherSlot;
+    private final int[][] severityCounts;
+    private final BitSet[] packages;
+    private final BitSet referencedPackages = new BitSet();
+    private int findings;
+    private int outsideModel;
+
+    /**
+     * @param diagnostics diagnostics of the tool by name, named after their CWE followed by the tool name
+     * @param toolName tool name as appended to the CWE in diagnostic names
+     */
+    public DiagnosticAccumulator(Map<String, Diagnostic> diagnostics, String toolName) {
+        this.toolName = toolName;
+        this.slots = new SbomDiagnostic[diagnostics.size()];
+        int slot = 0;
+        for (Map.Entry<String, Diagnostic> diagnostic : diagnostics.entrySet()) {
+            String name = diagnostic.getKey();
+            if (name.endsWith(toolName)) {
+                slotByCwe.put(name.substring(0, name.length() - toolName.length()), slot);
+            }
+            slots[slot++] = (SbomDiagnostic) diagnostic.getValue();
+        }
+        this.otherSlot = slotByCwe.getOrDefault("CWE-other", -1);
+        this.severityCounts = new int[slots.length][];
+        this.packages = new BitSet[slots.length];
+    }
+
+    /**
+     * Counts the vulnerability once for each of its CWEs, under CWE-other for CWEs outside of the model.
+     */
+    public void add(RelevantVulnerabilityData vulnerability) {
+        int packageId = -1;
+        for (String cwe : vulnerability.getCwe()) {
+            Integer slot = slotByCwe.get(cwe);
+            if (slot == null) {
+                slot = otherSlot;
+                outsideModel++;
+            }
+            if (slot < 0) {
+                throw new IllegalStateException("No diagnostic for " + cwe + toolName + " and no CWE-other" + toolName);
+            }
+            if (packageId < 0) {
+                packageId = PackageDictionary.shared().id(vulnerability.getPackageName(), vulnerability.getPackageVersion());
+                referencedPackages.set(packageId);
+            }
+            count(slot, vulnerability.getSeverity());
+            if (packages[slot] == null) {
+                packages[slot] = new BitSet();
+            }
+            packages[slot].set(packageId);
+            findings++;
+        }
+    }
+
+    /**
+     * Adds the counted findings and packages to the diagnostics. Call once, after every vulnerability was added.
+     */
+    public void apply() {
+        int diagnosticsWithFindings = 0;
+        for (int slot = 0; slot < slots.length; slot++) {
+            int[] counts = severityCounts[slot];
+            if (counts == null) {
+                continue;
+            }
+            diagnosticsWithFindings++;
+            SbomDiagnostic diagnostic = slots[slot];
+            for (int severity = 0; severity < counts.length; severity++) {
+                if (counts[severity] > 0) {
+                    diagnostic.setChild(new AggregatedFinding(diagnostic.getName() + " severity " + severity, severity, counts[severity]));
+                }
+            }
+            for (int packageId = packages[slot].nextSetBit(0); packageId >= 0; packageId = packages[slot].nextSetBit(packageId + 1)) {
+                diagnostic.updatePackages(packageId);
+            }
+        }
+        LOGGER.info("Added {} findings of {} packages to {} diagnostics for tool: {}", findings, referencedPackages.cardinality(), diagnosticsWithFindings, toolName);
+        if (outsideModel > 0) {
+            LOGGER.warn("{} findings with a CWE outside of CWE-699 were added to CWE-other{}", outsideModel, toolName);
+        }
+    }
+
+    /**
+     * @return number of findings counted, one per vulnerability and CWE
+     */
+    public int getFindings() {
+        return findings;
+    }
+
+    /**
+     * @return number of findings counted under CWE-other because their CWE is not in the model
+     */
+    public int getOutsideModel() {
+        return outsideModel;
+    }
+
+    private void count(int slot, int severity) {
+        int[] counts = severityCounts[slot];
+        if (counts == null) {
+            counts = new int[MAX_SEVERITY + 1];
+        }
+        if (severity >= counts.length) {
+            counts = Arrays.copyOf(counts, severity + 1);
+        }
+        counts[Math.max(0, severity)]++;
+        severityCounts[slot] = counts;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import pique.model.Diagnostic;
+import toolOutputObjects.RawVulnerabilityData;
+import toolOutputObjects.RelevantVulnerabilityData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link IFindingSink} that adds findings to the diagnostics of one tool report. Findings are grouped into
+ * batches; the CWEs of a full batch are resolved with one bulk lookup on a background thread while the reader
+ * keeps parsing, and resolved batches are added to the diagnostics on the calling thread in report order, so
+ * finding names and diagnostic contents are the same as with {@link ToolOutputProcessor#addDiagnostics}.
+ *
+ * <p>At most a few batches are held at any time, independent of the size of the report.</p>
+ */
+public class DiagnosticFindingSink implements IFindingSink {
+    static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int MAX_PENDING_BATCHES = 2;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final Executor LOOKUP_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "cwe-batch-lookup-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final VulnerabilityService vulnerabilityService;
+    private final Map<String, Diagnostic> diagnostics;
+    private final int batchSize;
+    private final Executor executor;
+    private final Deque<CompletableFuture<List<RelevantVulnerabilityData>>> pending = new ArrayDeque<>();
+    private final DiagnosticAccumulator accumulator;
+    private List<RawVulnerabilityData> batch = new ArrayList<>();
+    private int findingIndex;
+
+    public DiagnosticFindingSink(VulnerabilityService vulnerabilityService, Map<String, Diagnostic> diagnostics) {
+        this(vulnerabilityService, diagnostics, DEFAULT_BATCH_SIZE, LOOKUP_EXECUTOR);
+    }
+
+    /**
+     * @param findingMode with {@link FindingMode#AGGREGATE}, resolved findings are counted by a
+     * {@link DiagnosticAccumulator} and added to the diagnostics when the sink is closed
+     */
+    public DiagnosticFindingSink(VulnerabilityService vulnerabilityService, Map<String, Diagnostic> diagnostics, FindingMode findingMode) {
+        this(vulnerabilityService, diagnostics, DEFAULT_BATCH_SIZE, LOOKUP_EXECUTOR, findingMode);
+    }
+
+    /**
+     * @param batchSize number of findings resolved per bulk lookup
+     * @param executor runs the bulk lookups; a direct executor ({@code Runnable::run}) resolves on the calling thread
+     */
+    public DiagnosticFindingSink(VulnerabilityService vulnerabilityService, Map<String, Diagnostic> diagnostics, int batchSize, Executor executor) {
+        this(vulnerabilityService, diagnostics, batchSize, executor, FindingMode.INDIVIDUAL);
+    }
+
+    public DiagnosticFindingSink(VulnerabilityService vulnerabilityService, Map<String, Diagnostic> diagnostics, int batchSize, Executor executor,
+                                 FindingMode findingMode) {
+        this.vulnerabilityService = vulnerabilityService;
+        this.diagnostics = diagnostics;
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = executor;
+        this.accumulator = findingMode == FindingMode.AGGREGATE ? new DiagnosticAccumulator(diagnostics, vulnerabilityService.getToolName()) : null;
+    }
+
+    @Override
+    public void accept(RawVulnerabilityData finding) {
+        batch.add(finding);
+        if (batch.size() >= batchSize) {
+            submitBatch();
+        }
+        applyCompletedBatches(false);
+    }
+
+    /**
+     * Resolves the remaining findings and waits until every batch has been added to the diagnostics.
+     */
+    @Override
+    public void close() {
+        if (!batch.isEmpty()) {
+            submitBatch();
+        }
+        applyCompletedBatches(true);
+        if (accumulator != null) {
+            accumulator.apply();
+        }
+    }
+
+    private void submitBatch() {
+        List<RawVulnerabilityData> findings = batch;
+        batch = new ArrayList<>();
+        pending.addLast(CompletableFuture.supplyAsync(() -> vulnerabilityService.resolveVulnerabilityData(findings), executor));
+    }
+
+    /**
+     * Adds resolved batches to the diagnostics in submission order. Waits for the oldest batch when all batches
+     * must be applied or too many are outstanding.
+     */
+    private void applyCompletedBatches(boolean all) {
+        while (!pending.isEmpty() && (all || pending.size() > MAX_PENDING_BATCHES || pending.peekFirst().isDone())) {
+            List<RelevantVulnerabilityData> resolved;
+            try {
+                resolved = pending.removeFirst().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            for (RelevantVulnerabilityData vulnerability : resolved) {
+                if (accumulator != null) {
+                    accumulator.add(vulnerability);
+                }
+                else {
+                    findingIndex = ToolOutputProcessor.addFindings(vulnerability, diagnostics, vulnerabilityService.getToolName(), findingIndex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utilities.helperFunctions;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * How the vulnerabilities of a tool report are added to its diagnostics, set with the {@code diagnostics.finding-mode}
+ * property.
+ */
+public enum FindingMode {
+    /** One finding per vulnerability and CWE, named after the vulnerability (default) */
+    INDIVIDUAL,
+    /**
+     * Findings are counted per diagnostic and severity by a {@link DiagnosticAccumulator} and each diagnostic gets one
+     * {@link model.AggregatedFinding} per severity; the findings no longer carry vulnerability ids.
+     */
+    AGGREGATE;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FindingMode.class);
+
+    /**
+     * @param prop properties holding {@code diagnostics.finding-mode}, either {@code individual} or {@code aggregate}
+     */
+    public static FindingMode fromProperties(Properties prop) {
+        String mode = prop.getProperty("diagnostics.finding-mode", "individual").trim();
+        if (mode.equalsIgnoreCase("aggregate")) {
+            return AGGREGATE;
+        }
+        if (!mode.isEmpty() && !mode.equalsIgnoreCase("individual")) {
+            LOGGER.warn("Unknown diagnostics.finding-mode {}, using individual", mode);
+        }
+        return INDIVIDUAL;
+    }
+
+    /**
+     * @param propertiesPath properties file to read, or null/empty for the PIQUE default
+     */
+    public static FindingMode fromProperties(String propertiesPath) {
+        try {
+            return fromProperties(helperFunctions.getProperties(propertiesPath));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read properties from {}, using individual findings", propertiesPath);
+            return INDIVIDUAL;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for findings reports, the tool-neutral report written by {@link #write(Path, Iterable)} when the
+ * findings of a scan are assembled by PIQUE rather than reported by the tool itself, e.g. by
+ * {@link ComponentScanCache} from cached and freshly scanned components. A findings report is a JSON object holding a
+ * {@code findings} array of serialized {@link RawVulnerabilityData}; its file name ends in {@value #SUFFIX}.
+ */
+public class FindingsReportReader extends JsonReportReader {
+    public static final String SUFFIX = ".findings.json";
+    private static final Gson GSON = new Gson();
+    private static final byte[] HEADER = "{\"findings\":".getBytes(StandardCharsets.UTF_8);
+
+    private boolean inFindings;
+
+    public FindingsReportReader(Path report) throws IOException {
+        this(Files.newBufferedReader(report, StandardCharsets.UTF_8));
+    }
+
+    public FindingsReportReader(Reader report) {
+        super(report);
+    }
+
+    /**
+     * @return whether the file is a findings report rather than a tool's own report, by its name or, for copies such
+     * as those handed out by {@link ScanResultCache}, by its first member
+     */
+    public static boolean isFindingsReport(Path report) {
+        if (report.getFileName().toString().endsWith(SUFFIX)) {
+            return true;
+        }
+        byte[] start = new byte[HEADER.length];
+        try (InputStream in = Files.newInputStream(report)) {
+            return in.readNBytes(start, 0, start.length) == start.length && Arrays.equals(start, HEADER);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a findings report.
+     */
+    public static void write(Path report, Iterable<RawVulnerabilityData> findings) throws IOException {
+        try (Writer out = Files.newBufferedWriter(report, StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject();
+            writer.name("findings");
+            writer.beginArray();
+            for (RawVulnerabilityData finding : findings) {
+                GSON.toJson(finding, RawVulnerabilityData.class, writer);
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    @Override
+    protected RawVulnerabilityData readNext() throws IOException {
+        if (!inFindings) {
+            reader.beginObject();
+            if (!seekArray("findings")) {
+                return null;
+            }
+            reader.beginArray();
+            inFindings = true;
+        }
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                return GSON.fromJson(reader, RawVulnerabilityData.class);
+            }
+            reader.skipValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import com.google.gson.stream.JsonToken;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming reader for Grype JSON reports. Walks {@code matches[]} one match at a time and keeps only the
+ * vulnerability id and severity, the ids of its related vulnerabilities and the artifact name, version and purl of
+ * each match; match details, artifact locations and every other member of the report are skipped without being
+ * materialized.
+ *
+ * <p>Matches without a {@code vulnerability} object are skipped.</p>
+ */
+public class GrypeReportReader extends JsonReportReader {
+    private boolean inMatches;
+
+    /**
+     * @param report Grype JSON report written with {@code --output json}
+     * @throws IOException if the report cannot be opened
+     */
+    public GrypeReportReader(Path report) throws IOException {
+        this(Files.newBufferedReader(report, StandardCharsets.UTF_8));
+    }
+
+    public GrypeReportReader(Reader report) {
+        super(report);
+    }
+
+    @Override
+    protected RawVulnerabilityData readNext() throws IOException {
+        if (!inMatches) {
+            reader.beginObject();
+            if (!seekArray("matches")) {
+                return null;
+            }
+            reader.beginArray();
+            inMatches = true;
+        }
+
+        while (reader.hasNext()) {
+            RawVulnerabilityData match = readMatch();
+            if (match != null) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    private RawVulnerabilityData readMatch() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        boolean hasVulnerability = false;
+        String id = "";
+        String severity = "";
+        String packageName = "";
+        String packageVersion = "";
+        String purl = "";
+        List<String> aliases = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("vulnerability") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                hasVulnerability = true;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String member = reader.nextName();
+                    if (member.equals("id")) {
+                        id = nextString();
+                    }
+                    else if (member.equals("severity")) {
+                        severity = nextString();
+                    }
+                    else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            else if (name.equals("artifact") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String member = reader.nextName();
+                    if (member.equals("name")) {
+                        packageName = nextString();
+                    }
+                    else if (member.equals("version")) {
+                        packageVersion = nextString();
+                    }
+                    else if (member.equals("purl")) {
+                        purl = nextString();
+                    }
+                    else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            else if (name.equals("relatedVulnerabilities") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("id")) {
+                            String alias = nextString();
+                            if (!alias.isEmpty()) {
+                                aliases.add(alias);
+                            }
+                        }
+                        else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                reader.endArray();
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return hasVulnerability ? new RawVulnerabilityData(id, severity, packageName, packageVersion, Collections.emptyList(), aliases, purl) : null;
+    }
+}
@@ -23,7 +23,9 @@
  */
 package tool;
 
-import org.json.JSONArray;
+import cweResolution.CweResolutionMode;
+import cweResolution.CweResolverFactory;
+import cweResolution.ICweResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pique.analysis.ITool;
@@ -31,10 +33,17 @@ import pique.analysis.Tool;
 import pique.model.Diagnostic;
 import presentation.PiqueData;
 import toolOutputObjects.RelevantVulnerabilityData;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+import utilities.ScanContext;
+import utilities.ScanOutcome;
+import utilities.ScanWorkspace;
 import utilities.helperFunctions;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -48,6 +57,7 @@ import java.util.*;
  */
 public class GrypeWrapper extends Tool implements ITool  {
 	private final PiqueData piqueData;
+	private final ICweResolver cweResolver;
 	private final String toolName = " Grype Diagnostic";
 	private final String propertiesPath;
 	private static final Logger LOGGER = LoggerFactory.getLogger(GrypeWrapper.class);
@@ -58,11 +68,24 @@ public class GrypeWrapper extends Tool implements ITool  {
 	public GrypeWrapper(PiqueData piqueData) {
 		super("grype", null);
 		this.piqueData = piqueData;
+		this.cweResolver = null;
 		this.propertiesPath = "src/main/resources/pique-properties.properties";
 	}
 	public GrypeWrapper(PiqueData piqueData, String propertiesPath) {
 		super("grype", null);
 		this.piqueData = piqueData;
+		this.cweResolver = null;
+		this.propertiesPath = propertiesPath;
+	}
+
+	/**
+	 * Constructs a GrypeWrapper that resolves CWEs through the given resolver, typically the run-scoped resolver
+	 * shared by every tool of an evaluation or derivation run.
+	 */
+	public GrypeWrapper(PiqueData piqueData, String propertiesPath, ICweResolver cweResolver) {
+		super("grype", null);
+		this.piqueData = piqueData;
+		this.cweResolver = cweResolver;
 		this.propertiesPath = propertiesPath;
 	}
 
@@ -77,11 +100,14 @@ public class GrypeWrapper extends Tool implements ITool  {
 	@Override
 	public Path analyze(Path projectLocation) {
 		LOGGER.info(this.getName() + " Analyzing "+ projectLocation.toString());
+		// only components not seen with the current database are scanned when the component cache is enabled
+		return ComponentScanCache.shared().scan(getName(), projectLocation, this::scan, GrypeReportReader::new);
+	}
 
-		// clear previous results
-		File tempResults = new File(System.getProperty("user.dir") + "/out/grype.json");
-		tempResults.delete();
-		tempResults.getParentFile().mkdirs();
+	private Path scan(Path projectLocation) {
+		// write results into a workspace of their own, released by parseAnalysis once they have been read
+		ScanWorkspace workspace = ScanWorkspace.create("grype");
+		File tempResults = workspace.resolve("grype.json").toFile();
 
 		// command for running Grype on the command line
 		String[] cmd = {"grype",
@@ -93,8 +119,18 @@ public class GrypeWrapper extends Tool implements ITool  {
 
 		// runs the command built above and captures the output, grype itself will handle the file saving
 		try {
-			helperFunctions.getOutputFromProgram(cmd,LOGGER);
+			ProcessRunner runner = new ProcessRunner(cmd).echoTo(LOGGER).timeout(ScanContext.toolTimeout(getName()));
+			// scan offline against the database pinned at the start of the run
+			VulnerabilityDbManager.shared().grypeEnvironment().forEach(runner::environment);
+			ProcessResult result = runner.run();
+			ScanContext.report(getName(), result.getOutcome());
+			if (!result.isSuccess()) {
+				workspace.markFailed();
+				LOGGER.error("Grype failed, {}:\n{}", result, result.getOutput());
+			}
 		} catch (IOException  e) {
+			workspace.markFailed();
+			ScanContext.report(getName(), ScanOutcome.FAILED);
 			LOGGER.error("Failed to run Grype");
 			LOGGER.error(e.toString());
 			e.printStackTrace();
@@ -114,8 +150,9 @@ public class GrypeWrapper extends Tool implements ITool  {
 	 */
 	@Override
 	public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
-		IOutputProcessor<RelevantVulnerabilityData> outputProcessor = new ToolOutputProcessor(new VulnerabilityService(piqueData, toolName));
-		String results = "";
+		IOutputProcessor<RelevantVulnerabilityData> outputProcessor = new ToolOutputProcessor(
+				new VulnerabilityService(getCweResolver(), toolName, CweResolutionMode.fromProperties(propertiesPath)),
+				FindingMode.fromProperties(propertiesPath));
 
 		System.out.println(this.getName() + " Parsing Analysis...");
 		LOGGER.debug(this.getName() + " Parsing Analysis...");
@@ -128,20 +165,26 @@ public class GrypeWrapper extends Tool implements ITool  {
             throw new RuntimeException(e);
         }
 
-        // read and process Grype output
-		try {
-			results = helperFunctions.readFileContent(toolResults);
-		} catch (IOException e) {
+        // stream Grype output one match at a time instead of loading the whole report
+		boolean parsed = false;
+		try (IVulnerabilityReportReader report = FindingsReportReader.isFindingsReport(toolResults)
+				? new FindingsReportReader(toolResults) : new GrypeReportReader(toolResults)) {
+			outputProcessor.streamToolReport(report, diagnostics);
+			parsed = true;
+		} catch (NoSuchFileException e) {
 			LOGGER.info("No results to read from Grype.");
+		} catch (IOException | UncheckedIOException | IllegalStateException e) {
+			// the findings applied before the failure would be exported as a clean but partial result
+			LOGGER.error("Unable to read results from {} output, reporting the scan as failed", toolName, e);
+			ScanContext.report(getName(), ScanOutcome.FAILED);
+			try {
+				diagnostics = helperFunctions.initializeDiagnostics(this.getName(), propertiesPath);
+			} catch (IOException initializationError) {
+				throw new RuntimeException(initializationError);
+			}
 		}
 
-		JSONArray vulnerabilities = outputProcessor.getVulnerabilitiesFromToolOutput(results);
-		if (vulnerabilities != null) {
-			List<RelevantVulnerabilityData> grypeVulnerabilities = outputProcessor.processToolVulnerabilities(vulnerabilities);
-			outputProcessor.addDiagnostics(grypeVulnerabilities, diagnostics);
-		} else {
-			LOGGER.warn("Vulnerability array was empty.");
-		}
+		ScanWorkspace.release(toolResults, parsed);
 
 		return diagnostics;
 	}
@@ -158,7 +201,7 @@ public class GrypeWrapper extends Tool implements ITool  {
 		final String[] cmd = {"grype", "version"};
 
 		try {
-			helperFunctions.getOutputFromProgram(cmd, LOGGER);
+			new ProcessRunner(cmd).echoTo(LOGGER).run();
 		} catch (IOException e) {
 			e.printStackTrace();
 			LOGGER.error("Failed to initialize " + this.getName());
@@ -167,4 +210,8 @@ public class GrypeWrapper extends Tool implements ITool  {
 
 		return toolRoot;
 	}
+
+	private ICweResolver getCweResolver() {
+		return cweResolver != null ? cweResolver : CweResolverFactory.fromProperties(piqueData, propertiesPath);
+	}
 }
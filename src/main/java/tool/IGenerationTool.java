@@ -36,7 +36,15 @@ public interface IGenerationTool {
      * executes the command, and logs the process and potential errors.
      *
      * @param projectLocation The file path of the project directory for which to generate the SBOM.
+     * @return the path of the generated SBOM, or null if generation failed
      */
-    void generateSource(Path projectLocation, Path sbomDirectory);
-    void generateImage(Path projectLocation, Path sbomDirectory);
+    Path generateSource(Path projectLocation, Path sbomDirectory);
+
+    /**
+     * Generates an SBOM for the docker image named in the given text file.
+     *
+     * @param projectLocation text file containing a single docker image in the format name:tag
+     * @return the path of the generated SBOM, or null if generation failed
+     */
+    Path generateImage(Path projectLocation, Path sbomDirectory);
 }
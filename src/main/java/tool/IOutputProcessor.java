@@ -38,5 +38,21 @@ import java.util.Map;
 public interface IOutputProcessor<T> {
     JSONArray getVulnerabilitiesFromToolOutput(String results);
     List<T> processToolVulnerabilities(JSONArray jsonVulns);
+    List<T> processToolReport(IVulnerabilityReportReader report);
     void addDiagnostics(List<T> toolVulnerabilities, Map<String, Diagnostic> diagnostics);
+
+    /**
+     * Streaming counterpart of the three batch methods: returns a sink that resolves CWEs for the findings pushed
+     * into it and adds them to the given diagnostics as it goes.
+     */
+    IFindingSink newFindingSink(Map<String, Diagnostic> diagnostics);
+
+    /**
+     * Pushes every finding of the report through a new sink into the given diagnostics.
+     */
+    default void streamToolReport(IVulnerabilityReportReader report, Map<String, Diagnostic> diagnostics) {
+        try (IFindingSink sink = newFindingSink(diagnostics)) {
+            report.readInto(sink);
+        }
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Pull-based reader over a tool report. Each call to {@link #next()} parses just enough of the report to return
+ * the next finding, so only the finding currently being read is held in memory, never the whole report.
+ *
+ * <p>Malformed reports surface as {@link java.io.UncheckedIOException} or {@link IllegalStateException} from
+ * {@link #hasNext()} and {@link #next()}.</p>
+ */
+public interface IVulnerabilityReportReader extends Iterator<RawVulnerabilityData>, Closeable {
+
+    /**
+     * Pushes every remaining finding of the report into the sink, in report order.
+     */
+    default void readInto(IFindingSink sink) {
+        forEachRemaining(sink::accept);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for report readers built on Gson's streaming {@link JsonReader}. Subclasses implement
+ * {@link #readNext()}, which advances the underlying reader to the next finding.
+ */
+public abstract class JsonReportReader implements IVulnerabilityReportReader {
+    protected final JsonReader reader;
+    private RawVulnerabilityData next;
+    private boolean finished;
+
+    protected JsonReportReader(Reader report) {
+        this.reader = new JsonReader(report);
+    }
+
+    /**
+     * Reads the next finding from the report.
+     *
+     * @return the next finding, or null once the report holds no more findings
+     * @throws IOException if the report cannot be read or is not valid JSON
+     */
+    protected abstract RawVulnerabilityData readNext() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public RawVulnerabilityData next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RawVulnerabilityData current = next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Consumes the members of the current object until the member with the given name.
+     *
+     * @return true if the reader is positioned at the value of the named member, false if the object ended
+     * without it (the reader is then positioned before the end of the object)
+     */
+    protected boolean seekMember(String name) throws IOException {
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(name)) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the members of the current object until an array-valued member with the given name. Members with
+     * that name but another kind of value (e.g. null) are skipped.
+     *
+     * @return true if the reader is positioned at the start of the named array, false if the object ended without
+     * it (the reader is then positioned before the end of the object)
+     */
+    protected boolean seekArray(String name) throws IOException {
+        while (seekMember(name)) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Reads the current value as a string. Numbers and booleans are converted, other values are skipped and read
+     * as an empty string.
+     */
+    protected String nextString() throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            default:
+                reader.skipValue();
+                return "";
+        }
+    }
+
+    /**
+     * Reads the current value as a list of strings. Anything other than an array of strings reads as an empty list.
+     */
+    protected List<String> nextStringList() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String value = nextString();
+            if (!value.isEmpty()) {
+                values.add(value);
+            }
+        }
+        reader.endArray();
+        return values;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.analysis.ITool;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of raw tool reports. A report is stored under the SHA-256 of the SBOM's content, the tool's
+ * name and version and the build time of its vulnerability database, so re-evaluating an unchanged SBOM with the same
+ * scanner and database reuses the report instead of running the scanner again. Reports are only cached for tools
+ * whose database is pinned by {@link VulnerabilityDbManager}, otherwise the database could change between two scans.
+ *
+ * <ul>
+ *     <li>{@code scan-cache.enabled} - whether to cache reports (default true)</li>
+ *     <li>{@code scan-cache.directory} - where reports are kept (default {@code <results.directory>/cache/scan-results})</li>
+ *     <li>{@code scan-cache.max-mb} - size limit, least recently used reports are evicted beyond it (default 2048)</li>
+ * </ul>
+ */
+public class ScanResultCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanResultCache.class);
+    private static final Pattern VERSION = Pattern.compile("(?im)^\\s*version\\s*:\\s*v?(\\S+)");
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Function<String, String> toolVersions;
+    private final Function<String, String> databaseVersions;
+    private final Map<String, String> versionCache = new ConcurrentHashMap<>();
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+
+    /**
+     * @param directory where reports are kept, null to disable the cache
+     * @param maxBytes size limit of the cache
+     * @param toolVersions version of a tool by tool name, null if unknown
+     * @param databaseVersions build time of a tool's pinned database by tool name, null if not pinned
+     */
+    public ScanResultCache(Path directory, long maxBytes, Function<String, String> toolVersions, Function<String, String> databaseVersions) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.toolVersions = toolVersions;
+        this.databaseVersions = databaseVersions;
+        if (directory != null) {
+            load();
+        }
+    }
+
+    /**
+     * Creates the cache configured by a properties file, using the tools' own version output and the databases pinned
+     * by {@link VulnerabilityDbManager#shared()}.
+     */
+    public static ScanResultCache fromProperties(Properties prop, Path resultsDir) {
+        if (!Boolean.parseBoolean(prop.getProperty("scan-cache.enabled", "true").trim())) {
+            return new ScanResultCache(null, 0, tool -> null, tool -> null);
+        }
+        String directory = prop.getProperty("scan-cache.directory", "").trim();
+        Path cacheDir = directory.isEmpty() ? resultsDir.resolve("cache").resolve("scan-results") : Paths.get(directory);
+        long maxBytes = Long.parseLong(prop.getProperty("scan-cache.max-mb", "2048").trim()) * 1024 * 1024;
+        return new ScanResultCache(cacheDir, maxBytes, ScanResultCache::readToolVersion, ScanResultCache::pinnedDatabaseVersion);
+    }
+
+    /**
+     * @return build time of the tool's database pinned by {@link VulnerabilityDbManager#shared()}, null if not pinned
+     */
+    static String pinnedDatabaseVersion(String tool) {
+        VulnerabilityDbManager.DbStatus status = VulnerabilityDbManager.shared().getPinned().get(tool);
+        return status == null ? null : status.getBuilt();
+    }
+
+    /**
+     * @return the tools, each consulting the cache before running its scanner, or the tools themselves if the cache
+     * is disabled
+     */
+    public Set<ITool> wrap(Set<ITool> tools) {
+        if (directory == null) {
+            return tools;
+        }
+        return tools.stream().map(tool -> new CachingTool(tool, this)).collect(Collectors.toSet());
+    }
+
+    /**
+     * Looks up the report of a previous scan of the same SBOM content with the same tool and database.
+     *
+     * @return the cached report, empty on a miss or if the report cannot be cached
+     */
+    public Optional<Path> lookup(String tool, Path sbom) {
+        Optional<Path> entry = entryFor(tool, sbom);
+        if (!entry.isPresent()) {
+            bypassed.incrementAndGet();
+            return Optional.empty();
+        }
+        Path file = entry.get();
+        Entry cached = entries.get(file);
+        if (cached == null || !Files.isRegularFile(file)) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        cached.lastAccess = System.currentTimeMillis();
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(cached.lastAccess));
+        } catch (IOException e) {
+            LOGGER.debug("Unable to record access to {}", file, e);
+        }
+        hits.incrementAndGet();
+        return Optional.of(file);
+    }
+
+    /**
+     * Stores the report of a scan, evicting least recently used reports beyond the size limit.
+     */
+    public void store(String tool, Path sbom, Path report) {
+        Optional<Path> entry = entryFor(tool, sbom);
+        if (!entry.isPresent()) {
+            return;
+        }
+        Path file = entry.get();
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.copy(report, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            entries.put(file, new Entry(Files.size(file), System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to cache the {} report for {}", tool, sbom, e);
+            return;
+        }
+        evict(file);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return lookups of reports that cannot be cached, e.g. because the tool's database is not pinned
+     */
+    public long getBypassed() {
+        return bypassed.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return total size of the cached reports in bytes
+     */
+    public long getBytes() {
+        return entries.values().stream().mapToLong(entry -> entry.size).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ScanResultCache{entries=" + size() + ", bytes=" + getBytes() + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", bypassed=" + getBypassed() + "}";
+    }
+
+    private Optional<Path> entryFor(String tool, Path sbom) {
+        String toolVersion = versionCache.computeIfAbsent("tool:" + tool, key -> Optional.ofNullable(toolVersions.apply(tool)).orElse(""));
+        String databaseVersion = databaseVersions.apply(tool);
+        if (toolVersion.isEmpty() || databaseVersion == null) {
+            return Optional.empty();
+        }
+        try {
+            String key = tool + "\n" + toolVersion + "\n" + databaseVersion + "\n" + sha256(sbom);
+            return Optional.of(directory.resolve(tool + "-" + hex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8))) + ".json"));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to hash {}", sbom, e);
+            return Optional.empty();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized void evict(Path keep) {
+        long total = getBytes();
+        while (total > maxBytes) {
+            Optional<Map.Entry<Path, Entry>> oldest = entries.entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(keep))
+                    .min((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+            if (!oldest.isPresent()) {
+                break;
+            }
+            entries.remove(oldest.get().getKey());
+            total -= oldest.get().getValue().size;
+            try {
+                Files.deleteIfExists(oldest.get().getKey());
+            } catch (IOException e) {
+                LOGGER.warn("Unable to evict {}", oldest.get().getKey(), e);
+            }
+        }
+    }
+
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".json")).forEach(file -> {
+                try {
+                    entries.put(file, new Entry(Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+                } catch (IOException e) {
+                    LOGGER.debug("Skipping unreadable cache entry {}", file, e);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read the scan result cache in {}", directory, e);
+        }
+    }
+
+    /**
+     * @return the version the tool reports, null if it cannot be determined
+     */
+    static String readToolVersion(String tool) {
+        String[] cmd;
+        switch (tool) {
+            case "grype":
+                cmd = new String[]{"grype", "version"};
+                break;
+            case "trivy":
+                cmd = new String[]{"trivy", "version"};
+                break;
+            case "cve_bin_tool":
+                cmd = new String[]{"cve-bin-tool", "--version"};
+                break;
+            default:
+                return null;
+        }
+        try {
+            ProcessResult result = new ProcessRunner(cmd).run();
+            if (!result.isSuccess()) {
+                return null;
+            }
+            Matcher matcher = VERSION.matcher(result.getOutput());
+            return matcher.find() ? matcher.group(1) : result.getOutput().trim();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to determine the version of {}", tool, e);
+            return null;
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static class Entry {
+        private final long size;
+        private volatile long lastAccess;
+
+        Entry(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -25,11 +25,16 @@ package tool;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+import utilities.ScanContext;
+import utilities.ScanWorkspace;
 import utilities.helperFunctions;
 
 public class SyftSbomGenerationWrapper implements IGenerationTool {
@@ -50,32 +55,45 @@ public class SyftSbomGenerationWrapper implements IGenerationTool {
      *
      * @param projectLocation The file path of the project directory for which to generate the SBOM.
      */
-    public void generateSource(Path projectLocation, Path sbomDirectory) {
+    public Path generateSource(Path projectLocation, Path sbomDirectory) {
         LOGGER.info("Syft Generation --- Generating SBOM for {}", projectLocation.toString());
         File generatedSbom = new File(sbomDirectory.toString() + "/sbom-trivy-cdx-" + projectLocation.getFileName() + ".json");
         String spec = "cyclonedx-json"; // output format
 
+        // generate into a workspace of its own and move the finished SBOM into place
+        ScanWorkspace workspace = ScanWorkspace.create("syft-sbom");
+        Path workspaceSbom = workspace.resolve(generatedSbom.getName());
         // command for running syft SBOM generation on the command line
         String[] cmd = {"syft",
                 projectLocation.toAbsolutePath().toString(),
-                "--file", generatedSbom.toPath().toAbsolutePath().toString(),
+                "--file", workspaceSbom.toAbsolutePath().toString(),
                 "-o", spec};
         LOGGER.info(Arrays.toString(cmd));
         // runs the command built above and captures the output, trivy itself will handle the file saving
         try {
-            helperFunctions.getOutputFromProgram(cmd,LOGGER);
-            LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
-            System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            ProcessResult result = new ProcessRunner(cmd).echoTo(LOGGER).timeout(ScanContext.toolTimeout("syft")).run();
+            if (result.isSuccess() && Files.isRegularFile(workspaceSbom)) {
+                workspace.publish(workspaceSbom, generatedSbom.toPath());
+                LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
+                System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            }
+            else {
+                workspace.markFailed();
+                LOGGER.error("syft did not generate an SBOM for {}, {}:\n{}", projectLocation, result, result.getOutput());
+            }
         } catch (IOException e) {
+            workspace.markFailed();
             LOGGER.error("Failed to run syft for SBOM generation");
             LOGGER.error(e.toString());
             e.printStackTrace();
+        } finally {
+            workspace.close();
         }
 
-
+        return workspace.isFailed() ? null : generatedSbom.toPath();
     }
 
-    public void generateImage(Path projectLocation, Path sbomDirectory) {
+    public Path generateImage(Path projectLocation, Path sbomDirectory) {
         LOGGER.info("Syft Generation --- Generating SBOM for {}", projectLocation.toString());
         File generatedSbom = new File(sbomDirectory.toString() + "/sbom-trivy-cdx-" + projectLocation.getFileName() + ".json");
         String spec = "cyclonedx-json"; // output format
@@ -90,26 +108,41 @@ public class SyftSbomGenerationWrapper implements IGenerationTool {
             LOGGER.error("Failed to read image name from file: {}", projectLocation);
             LOGGER.error("Expected input format: text file containing a single docker image in the format name:tag");
             LOGGER.error("Skipping generation");
-            return;
+            return null;
         }
 
+        // generate into a workspace of its own and move the finished SBOM into place
+        ScanWorkspace workspace = ScanWorkspace.create("syft-sbom");
+        Path workspaceSbom = workspace.resolve(generatedSbom.getName());
         // TODO: update Syft version such that it generates CDX 1.6 with this command
         // command for running syft SBOM generation on the command line
         String[] cmd = {"syft",
                 imageName,
-                "--file", generatedSbom.toPath().toAbsolutePath().toString(),
+                "--file", workspaceSbom.toAbsolutePath().toString(),
                 "-o", spec};
         LOGGER.info(Arrays.toString(cmd));
         // runs the command built above and captures the output, trivy itself will handle the file saving
         try {
-            helperFunctions.getOutputFromProgram(cmd,LOGGER);
-            LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
-            System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            ProcessResult result = new ProcessRunner(cmd).echoTo(LOGGER).timeout(ScanContext.toolTimeout("syft")).run();
+            if (result.isSuccess() && Files.isRegularFile(workspaceSbom)) {
+                workspace.publish(workspaceSbom, generatedSbom.toPath());
+                LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
+                System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            }
+            else {
+                workspace.markFailed();
+                LOGGER.error("syft did not generate an SBOM for {}, {}:\n{}", projectLocation, result, result.getOutput());
+            }
         } catch (IOException e) {
+            workspace.markFailed();
             LOGGER.error("Failed to run syft for SBOM generation");
             LOGGER.error(e.toString());
             e.printStackTrace();
+        } finally {
+            workspace.close();
         }
+
+        return workspace.isFailed() ? null : generatedSbom.toPath();
     }
 
 
@@ -36,10 +36,19 @@ import java.util.Map;
 
 public class ToolOutputProcessor implements IOutputProcessor<RelevantVulnerabilityData> {
     private final VulnerabilityService vulnerabilityService;
+    private final FindingMode findingMode;
     private static final Logger LOGGER = LoggerFactory.getLogger(ToolOutputProcessor.class);
 
     public ToolOutputProcessor(VulnerabilityService vulnerabilityService) {
+        this(vulnerabilityService, FindingMode.INDIVIDUAL);
+    }
+
+    /**
+     * @param findingMode whether diagnostics get a finding per vulnerability or aggregated findings per severity
+     */
+    public ToolOutputProcessor(VulnerabilityService vulnerabilityService, FindingMode findingMode) {
         this.vulnerabilityService = vulnerabilityService;
+        this.findingMode = findingMode;
     }
 
     /**
@@ -66,6 +75,18 @@ public class ToolOutputProcessor implements IOutputProcessor<RelevantVulnerabili
         return vulnerabilityService.processVulnerabilities(jsonVulns);
     }
 
+    /**
+     * Processes a tool report read incrementally into java objects. Only the lightweight fields of each finding
+     * are kept while the report is read; CWEs are resolved once the whole report has been read.
+     *
+     * @param report streaming reader over the tool report
+     * @return ArrayList of RelevantVulnerabilityData java objects
+     */
+    @Override
+    public List<RelevantVulnerabilityData> processToolReport(IVulnerabilityReportReader report) {
+        return vulnerabilityService.processReport(report);
+    }
+
     /**
      * Builds Finding and Diagnostic objects from the list of ToolVulnerabilities generated previously.
      * Adds the new Diagnostics to the PIQUE tree.
@@ -78,22 +99,53 @@ public class ToolOutputProcessor implements IOutputProcessor<RelevantVulnerabili
         String toolName = vulnerabilityService.getToolName();
 
         LOGGER.info("Adding diagnostics for tool: {}", toolName);
+        if (findingMode == FindingMode.AGGREGATE) {
+            DiagnosticAccumulator accumulator = new DiagnosticAccumulator(diagnostics, toolName);
+            toolVulnerabilities.forEach(accumulator::add);
+            accumulator.apply();
+            return;
+        }
         int i = 0;
         for (RelevantVulnerabilityData relevantVulnerabilityData : toolVulnerabilities) {
-            for (String cwe: relevantVulnerabilityData.getCwe()) {
-                SbomDiagnostic diag = (SbomDiagnostic) diagnostics.get(cwe + toolName);
-                if (diag == null) {
-                    diag = (SbomDiagnostic) diagnostics.get("CWE-other" + toolName);
-                    LOGGER.warn("CVE with CWE outside of CWE-699 found.");
-                }
-                Finding finding = new Finding("", 0, 0, relevantVulnerabilityData.getSeverity());
-                finding.setName(relevantVulnerabilityData.getCve() + " " + i);
-                //findings.setName("same name");
-                diag.updatePackages(relevantVulnerabilityData.getPackageName(), relevantVulnerabilityData.getPackageVersion());
-                diag.setChild(finding);
-                LOGGER.info("Added finding: {} to diagnostic: {}", finding.getName(), diag.getName());
-                i++;
+            i = addFindings(relevantVulnerabilityData, diagnostics, toolName, i);
+        }
+    }
+
+    /**
+     * Returns a sink that resolves CWEs in batches while the report is still being read and adds the resulting
+     * findings to the given diagnostics in report order.
+     *
+     * @param diagnostics Map of diagnostics for Tool output
+     * @return sink to push the findings of one tool report into
+     */
+    @Override
+    public IFindingSink newFindingSink(Map<String, Diagnostic> diagnostics) {
+        return new DiagnosticFindingSink(vulnerabilityService, diagnostics, findingMode);
+    }
+
+    /**
+     * Adds one finding per CWE of the vulnerability to the matching diagnostic, or to CWE-other for CWEs outside
+     * of the model.
+     *
+     * @param index number of findings already added for this tool output, used to keep finding names unique
+     * @return the index to use for the next finding
+     */
+    static int addFindings(RelevantVulnerabilityData relevantVulnerabilityData, Map<String, Diagnostic> diagnostics, String toolName, int index) {
+        int i = index;
+        for (String cwe: relevantVulnerabilityData.getCwe()) {
+            SbomDiagnostic diag = (SbomDiagnostic) diagnostics.get(cwe + toolName);
+            if (diag == null) {
+                diag = (SbomDiagnostic) diagnostics.get("CWE-other" + toolName);
+                LOGGER.debug("CVE with CWE outside of CWE-699 found.");
             }
+            Finding finding = new Finding("", 0, 0, relevantVulnerabilityData.getSeverity());
+            finding.setName(relevantVulnerabilityData.getCve() + " " + i);
+            //findings.setName("same name");
+            diag.updatePackages(relevantVulnerabilityData.getPackageName(), relevantVulnerabilityData.getPackageVersion());
+            diag.setChild(finding);
+            LOGGER.debug("Added finding: {} to diagnostic: {}", finding.getName(), diag.getName());
+            i++;
         }
+        return i;
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.analysis.ITool;
+import pique.model.Diagnostic;
+import utilities.ScanContext;
+import utilities.ScanOutcome;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs the analysis tools of one SBOM, up to a configurable number at the same time. Each scanner is an external
+ * process that spends much of its time loading its own vulnerability database, so running them side by side
+ * brings the time per SBOM down to roughly that of the slowest scanner.
+ *
+ * <p>Diagnostic maps are returned in tool name order once every tool has finished, so the result does not depend
+ * on which tool finishes first.</p>
+ *
+ * <p>Tools run in the {@link ScanContext} of the calling thread, so its deadline and cancellation apply to them on
+ * whichever thread they run; a tool that has not started by the time the scan has ended is skipped.</p>
+ */
+public class ToolRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolRunner.class);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final int concurrency;
+
+    /**
+     * @param concurrency maximum number of tools running at the same time, 1 to run them one after another
+     */
+    public ToolRunner(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Runs every tool and returns the diagnostics of each, e.g. to be applied to a project in one pass by
+     * {@link evaluator.SbomProject#updateDiagnosticsWithFindings(Collection)}.
+     *
+     * @param tools tools to run
+     * @param runTool runs a single tool and returns its diagnostics, e.g. {@code tool -> runTool(projectDir, tool)}
+     * @return the diagnostics of each tool, in tool name order
+     */
+    public List<Map<String, Diagnostic>> runEach(Collection<ITool> tools, Function<ITool, Map<String, Diagnostic>> runTool) {
+        List<ITool> ordered = new ArrayList<>(tools);
+        ordered.sort(Comparator.comparing(ITool::getName));
+        Optional<ScanContext> context = ScanContext.current();
+        Function<ITool, Map<String, Diagnostic>> scopedRunTool = tool ->
+                context.map(scan -> runInContext(scan, tool, runTool)).orElseGet(() -> runTool.apply(tool));
+
+        List<Map<String, Diagnostic>> toolDiagnostics = new ArrayList<>();
+        if (concurrency == 1 || ordered.size() <= 1) {
+            ordered.forEach(tool -> toolDiagnostics.add(scopedRunTool.apply(tool)));
+            return toolDiagnostics;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, ordered.size()), runnable -> {
+            Thread thread = new Thread(runnable, "tool-runner-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<ITool, Future<Map<String, Diagnostic>>> results = new LinkedHashMap<>();
+            for (ITool tool : ordered) {
+                results.put(tool, executor.submit(() -> scopedRunTool.apply(tool)));
+            }
+            for (Map.Entry<ITool, Future<Map<String, Diagnostic>>> result : results.entrySet()) {
+                try {
+                    toolDiagnostics.add(result.getValue().get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("{} failed", result.getKey().getName(), e.getCause());
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException(result.getKey().getName() + " failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for " + result.getKey().getName(), e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return toolDiagnostics;
+    }
+
+    private static Map<String, Diagnostic> runInContext(ScanContext scan, ITool tool, Function<ITool, Map<String, Diagnostic>> runTool) {
+        if (scan.isCancelled() || scan.isExpired()) {
+            ScanOutcome outcome = scan.isCancelled() ? ScanOutcome.CANCELLED : ScanOutcome.TIMED_OUT;
+            LOGGER.warn("Skipping {} for {}, the scan has {}", tool.getName(), scan.getName(), scan.isCancelled() ? "been cancelled" : "timed out");
+            scan.record(tool.getName(), outcome);
+            return Collections.emptyMap();
+        }
+        return scan.call(() -> runTool.apply(tool));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import com.google.gson.stream.JsonToken;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming reader for Trivy JSON reports. Walks {@code Results[].Vulnerabilities[]} of every scanned target one
+ * vulnerability at a time and keeps only the id, severity, package name, version and purl
+ * ({@code PkgIdentifier.PURL}) and reported CWEs ({@code CweIDs}) of each; descriptions,
+ * references, CVSS vectors and every other member of the report are skipped without being materialized.
+ */
+public class TrivyReportReader extends JsonReportReader {
+    private enum State { START, RESULTS, VULNERABILITIES }
+
+    private State state = State.START;
+
+    /**
+     * @param report Trivy JSON report written with {@code --format json}
+     * @throws IOException if the report cannot be opened
+     */
+    public TrivyReportReader(Path report) throws IOException {
+        this(Files.newBufferedReader(report, StandardCharsets.UTF_8));
+    }
+
+    public TrivyReportReader(Reader report) {
+        super(report);
+    }
+
+    @Override
+    protected RawVulnerabilityData readNext() throws IOException {
+        if (state == State.START) {
+            reader.beginObject();
+            if (!seekArray("Results")) {
+                return null;
+            }
+            reader.beginArray();
+            state = State.RESULTS;
+        }
+
+        while (true) {
+            if (state == State.VULNERABILITIES) {
+                while (reader.hasNext()) {
+                    RawVulnerabilityData vulnerability = readVulnerability();
+                    if (vulnerability != null) {
+                        return vulnerability;
+                    }
+                }
+                reader.endArray();
+                // skip the members of the result that follow its vulnerabilities
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    reader.skipValue();
+                }
+                reader.endObject();
+                state = State.RESULTS;
+            }
+
+            if (!reader.hasNext()) {
+                return null;
+            }
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            if (seekArray("Vulnerabilities")) {
+                reader.beginArray();
+                state = State.VULNERABILITIES;
+            }
+            else {
+                reader.endObject();
+            }
+        }
+    }
+
+    private RawVulnerabilityData readVulnerability() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String id = "";
+        String severity = "";
+        String packageName = "";
+        String packageVersion = "";
+        String purl = "";
+        List<String> cweIds = Collections.emptyList();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "VulnerabilityID":
+                    id = nextString();
+                    break;
+                case "Severity":
+                    severity = nextString();
+                    break;
+                case "PkgName":
+                    packageName = nextString();
+                    break;
+                case "InstalledVersion":
+                    packageVersion = nextString();
+                    break;
+                case "CweIDs":
+                    cweIds = nextStringList();
+                    break;
+                case "PkgIdentifier":
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        break;
+                    }
+                    reader.beginObject();
+                    if (seekMember("PURL")) {
+                        purl = nextString();
+                        // skip what follows the purl
+                        while (reader.hasNext()) {
+                            reader.nextName();
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new RawVulnerabilityData(id, severity, packageName, packageVersion, cweIds, Collections.emptyList(), purl);
+    }
+}
@@ -25,12 +25,20 @@ package tool;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+import utilities.ScanContext;
+import utilities.ScanWorkspace;
 import utilities.helperFunctions;
 
 /**
@@ -56,33 +64,57 @@ public class TrivySbomGenerationWrapper implements IGenerationTool {
      *
      * @param projectLocation The file path of the project directory for which to generate the SBOM.
      */
-    public void generateSource(Path projectLocation, Path sbomDirectory) {
+    public Path generateSource(Path projectLocation, Path sbomDirectory) {
         LOGGER.info("Trivy Generation --- Generating SBOM for source code: {}", projectLocation.toString());
         File generatedSbom = new File(sbomDirectory.toString() + "/sbom-trivy-cdx-" + projectLocation.getFileName() + ".json");
         String spec = "cyclonedx"; // output format
 
+        // generate into a workspace of its own and move the finished SBOM into place
+        ScanWorkspace workspace = ScanWorkspace.create("trivy-sbom");
+        Path workspaceSbom = workspace.resolve(generatedSbom.getName());
         // command for running Trivy SBOM generation on the command line
         // trivy fs --format {spec} --output {output_name.json} {file_system}
-        String[] cmd = {"trivy",
+        List<String> command = new ArrayList<>(Arrays.asList("trivy",
                 "fs", // arg to indicate file system generation
                 "--format", spec,
-                "--output", generatedSbom.toPath().toAbsolutePath().toString(), // output path
-                projectLocation.toAbsolutePath().toString()}; // product under analysis path
+                "--output", workspaceSbom.toAbsolutePath().toString())); // output path
+        // use the shared Trivy server when one is configured, its vulnerability database is already loaded,
+        // otherwise the database pinned at the start of the run
+        Optional<String> server = TrivyServer.sharedUrl();
+        if (server.isPresent()) {
+            command.addAll(Arrays.asList("--server", server.get()));
+        }
+        else {
+            command.addAll(VulnerabilityDbManager.shared().trivyOptions());
+        }
+        command.add(projectLocation.toAbsolutePath().toString()); // product under analysis path
+        String[] cmd = command.toArray(new String[0]);
         LOGGER.info(Arrays.toString(cmd));
         // runs the command built above and captures the output, trivy itself will handle the file saving
         try {
-            helperFunctions.getOutputFromProgram(cmd,LOGGER);
-            LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
-            System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            ProcessResult result = new ProcessRunner(cmd).echoTo(LOGGER).timeout(ScanContext.toolTimeout("trivy")).run();
+            if (result.isSuccess() && Files.isRegularFile(workspaceSbom)) {
+                workspace.publish(workspaceSbom, generatedSbom.toPath());
+                LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
+                System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            }
+            else {
+                workspace.markFailed();
+                LOGGER.error("Trivy did not generate an SBOM for {}, {}:\n{}", projectLocation, result, result.getOutput());
+            }
         } catch (IOException e) {
+            workspace.markFailed();
             LOGGER.error("Failed to run Trivy for SBOM generation");
             LOGGER.error(e.toString());
             e.printStackTrace();
+        } finally {
+            workspace.close();
         }
 
+        return workspace.isFailed() ? null : generatedSbom.toPath();
     }
 
-    public void generateImage(Path projectLocation, Path sbomDirectory) {
+    public Path generateImage(Path projectLocation, Path sbomDirectory) {
         LOGGER.info("Trivy Generation --- Generating SBOM for image: {}", projectLocation.toString());
 
         File generatedSbom = new File(sbomDirectory.toString() + "/sbom-trivy-cdx-" + projectLocation.getFileName() + ".json");
@@ -98,24 +130,49 @@ public class TrivySbomGenerationWrapper implements IGenerationTool {
             LOGGER.error("Failed to read image name from file: {}", projectLocation);
             LOGGER.error("Expected input format: text file containing a single docker image in the format name:tag");
             LOGGER.error("Skipping generation");
-            return;
+            return null;
         }
 
-        String[] cmd = {"trivy",
+        // generate into a workspace of its own and move the finished SBOM into place
+        ScanWorkspace workspace = ScanWorkspace.create("trivy-sbom");
+        Path workspaceSbom = workspace.resolve(generatedSbom.getName());
+        List<String> command = new ArrayList<>(Arrays.asList("trivy",
                 "image", // arg to indicate image generation
                 "--format", spec,
-                "--output", generatedSbom.toPath().toAbsolutePath().toString(), // output path
-                imageName}; // product under analysis path
+                "--output", workspaceSbom.toAbsolutePath().toString())); // output path
+        // use the shared Trivy server when one is configured, its vulnerability database is already loaded,
+        // otherwise the database pinned at the start of the run
+        Optional<String> server = TrivyServer.sharedUrl();
+        if (server.isPresent()) {
+            command.addAll(Arrays.asList("--server", server.get()));
+        }
+        else {
+            command.addAll(VulnerabilityDbManager.shared().trivyOptions());
+        }
+        command.add(imageName); // product under analysis path
+        String[] cmd = command.toArray(new String[0]);
         LOGGER.info(Arrays.toString(cmd));
         // runs the command built above and captures the output, trivy itself will handle the file saving
         try {
-            helperFunctions.getOutputFromProgram(cmd,LOGGER);
-            LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
-            System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            ProcessResult result = new ProcessRunner(cmd).echoTo(LOGGER).timeout(ScanContext.toolTimeout("trivy")).run();
+            if (result.isSuccess() && Files.isRegularFile(workspaceSbom)) {
+                workspace.publish(workspaceSbom, generatedSbom.toPath());
+                LOGGER.info("Exporting SBOM to: {}", generatedSbom.toPath());
+                System.out.println("Exporting SBOM to: " + generatedSbom.toPath());
+            }
+            else {
+                workspace.markFailed();
+                LOGGER.error("Trivy did not generate an SBOM for {}, {}:\n{}", projectLocation, result, result.getOutput());
+            }
         } catch (IOException e) {
+            workspace.markFailed();
             LOGGER.error("Failed to run Trivy for SBOM generation");
             LOGGER.error(e.toString());
             e.printStackTrace();
+        } finally {
+            workspace.close();
         }
+
+        return workspace.isFailed() ? null : generatedSbom.toPath();
     }
 }
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utilities.ProcessRunner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Starts and supervises one local {@code trivy server}, so that Trivy scans and SBOM generations share a single warm
+ * vulnerability database instead of every {@code trivy} process loading and checking its own. The server is started
+ * on first use, checked through its {@code /healthz} endpoint before a scan unless it answered a moment ago, restarted
+ * when it stops answering, and stopped when the JVM exits. Scans only wait for each other while the server is being
+ * started or restarted.
+ *
+ * <ul>
+ *     <li>{@code trivy.server.enabled} - run Trivy in client/server mode (default false)</li>
+ *     <li>{@code trivy.server.listen} - host:port the server listens on (default 127.0.0.1:4954)</li>
+ *     <li>{@code trivy.server.startup-seconds} - how long a newly started server may take to become healthy,
+ *     it downloads its database on first start (default 300)</li>
+ * </ul>
+ *
+ * <p>A healthy server already listening on that address, e.g. one started by another evaluation on the same host,
+ * is used as it is. If no server can be started, scans fall back to standalone {@code trivy} and starting the server
+ * is retried a minute later.</p>
+ */
+public class TrivyServer implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrivyServer.class);
+    private static final String DEFAULT_LISTEN = "127.0.0.1:4954";
+    private static final int HEALTH_CHECK_TIMEOUT_MILLIS = 1_000;
+    private static final long HEALTH_POLL_MILLIS = 250;
+    /**
+     * How long a running server may fail health checks, e.g. while busy with a large scan, before it is restarted
+     */
+    private static final Duration UNHEALTHY_GRACE = Duration.ofSeconds(5);
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    /**
+     * How long a successful health check is trusted before the server is asked again
+     */
+    private static final Duration HEALTHY_FOR = Duration.ofSeconds(5);
+    private static volatile TrivyServer shared;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            TrivyServer server = shared;
+            if (server != null) {
+                server.close();
+            }
+        }, "trivy-server-shutdown"));
+    }
+
+    private final String listen;
+    private final Supplier<ProcessRunner> command;
+    private final Duration startupTimeout;
+    private final Duration healthyFor;
+    private volatile Instant healthyUntil;
+    private ProcessRunner.RunningProcess process;
+    private Instant retryAfter;
+    private int starts;
+
+    /**
+     * @param listen host:port the server listens on
+     * @param command runner for the server process
+     * @param startupTimeout how long a newly started server may take to become healthy
+     */
+    public TrivyServer(String listen, Supplier<ProcessRunner> command, Duration startupTimeout) {
+        this(listen, command, startupTimeout, HEALTHY_FOR);
+    }
+
+    /**
+     * @param listen host:port the server listens on
+     * @param command runner for the server process
+     * @param startupTimeout how long a newly started server may take to become healthy
+     * @param healthyFor how long a successful health check is trusted before the server is asked again
+     */
+    public TrivyServer(String listen, Supplier<ProcessRunner> command, Duration startupTimeout, Duration healthyFor) {
+        this.listen = listen;
+        this.command = command;
+        this.startupTimeout = startupTimeout;
+        this.healthyFor = healthyFor;
+    }
+
+    /**
+     * Applies the Trivy server settings of a properties file, stopping a previously configured server.
+     */
+    public static void configure(Properties prop) {
+        TrivyServer previous = shared;
+        if (Boolean.parseBoolean(prop.getProperty("trivy.server.enabled", "false").trim())) {
+            String listen = prop.getProperty("trivy.server.listen", DEFAULT_LISTEN).trim();
+            Duration startupTimeout = Duration.ofSeconds(Long.parseLong(prop.getProperty("trivy.server.startup-seconds", "300").trim()));
+            shared = new TrivyServer(listen, () -> {
+                // the server serves the database pinned at the start of the run, if any
+                List<String> cmd = new ArrayList<>(Arrays.asList("trivy", "server", "--listen", listen));
+                cmd.addAll(VulnerabilityDbManager.shared().trivyOptions());
+                return new ProcessRunner(cmd.toArray(new String[0])).onLine(LOGGER::debug).unscoped();
+            }, startupTimeout);
+        }
+        else {
+            shared = null;
+        }
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * @return the URL of the configured server to pass to {@code trivy --server}, started if necessary, or empty if
+     * Trivy should run standalone
+     */
+    public static Optional<String> sharedUrl() {
+        TrivyServer server = shared;
+        return server == null ? Optional.empty() : server.ensureRunning();
+    }
+
+    public String getUrl() {
+        return "http://" + listen;
+    }
+
+    /**
+     * @return how often this supervisor has started the server
+     */
+    public synchronized int getStarts() {
+        return starts;
+    }
+
+    /**
+     * Makes sure a healthy server is listening, starting or restarting it if necessary.
+     *
+     * @return the server URL, or empty if no server could be started
+     */
+    public Optional<String> ensureRunning() {
+        Instant trustedUntil = healthyUntil;
+        if (trustedUntil != null && Instant.now().isBefore(trustedUntil) || checkHealth()) {
+            return Optional.of(getUrl());
+        }
+        return restart();
+    }
+
+    /**
+     * Waits for a server that stopped answering, or starts a new one.
+     */
+    private synchronized Optional<String> restart() {
+        // another scan may have restarted the server while this one waited for the lock
+        if (checkHealth()) {
+            return Optional.of(getUrl());
+        }
+        if (process != null && process.getProcess().isAlive() && awaitHealthy(UNHEALTHY_GRACE)) {
+            return Optional.of(getUrl());
+        }
+        if (retryAfter != null && Instant.now().isBefore(retryAfter)) {
+            return Optional.empty();
+        }
+
+        if (process != null) {
+            LOGGER.warn("Trivy server on {} stopped answering, restarting it", listen);
+            process.close();
+            process = null;
+        }
+        try {
+            LOGGER.info("Starting Trivy server on {}", listen);
+            starts++;
+            process = command.get().start();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to start Trivy server on {}, scanning without it", listen, e);
+            retryAfter = Instant.now().plus(RETRY_DELAY);
+            return Optional.empty();
+        }
+
+        if (awaitHealthy(startupTimeout)) {
+            LOGGER.info("Trivy server listening on {}", listen);
+            retryAfter = null;
+            return Optional.of(getUrl());
+        }
+        LOGGER.warn("Trivy server on {} did not become healthy within {}, scanning without it", listen, startupTimeout);
+        process.close();
+        process = null;
+        retryAfter = Instant.now().plus(RETRY_DELAY);
+        return Optional.empty();
+    }
+
+    /**
+     * @return whether the server answers its health check
+     */
+    public boolean isHealthy() {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(getUrl() + "/healthz").openConnection();
+            connection.setConnectTimeout(HEALTH_CHECK_TIMEOUT_MILLIS);
+            connection.setReadTimeout(HEALTH_CHECK_TIMEOUT_MILLIS);
+            return connection.getResponseCode() == HttpURLConnection.HTTP_OK;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Stops the server if this supervisor started it.
+     */
+    @Override
+    public synchronized void close() {
+        healthyUntil = null;
+        if (process != null) {
+            LOGGER.info("Stopping Trivy server on {}", listen);
+            process.close();
+            process = null;
+        }
+    }
+
+    private boolean awaitHealthy(Duration timeout) {
+        Instant deadline = Instant.now().plus(timeout);
+        while (Instant.now().isBefore(deadline)) {
+            if (process != null && !process.getProcess().isAlive()) {
+                return false;
+            }
+            if (checkHealth()) {
+                return true;
+            }
+            try {
+                Thread.sleep(HEALTH_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return checkHealth();
+    }
+
+    /**
+     * @return whether the server answers its health check, trusting it for a while if it does
+     */
+    private boolean checkHealth() {
+        if (isHealthy()) {
+            healthyUntil = Instant.now().plus(healthyFor);
+            return true;
+        }
+        healthyUntil = null;
+        return false;
+    }
+}
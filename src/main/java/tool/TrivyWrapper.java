@@ -25,13 +25,20 @@ package tool;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
-import org.json.JSONArray;
+import cweResolution.CweResolutionMode;
+import cweResolution.CweResolverFactory;
+import cweResolution.ICweResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +47,11 @@ import pique.analysis.Tool;
 import pique.model.Diagnostic;
 import presentation.PiqueData;
 import toolOutputObjects.RelevantVulnerabilityData;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+import utilities.ScanContext;
+import utilities.ScanOutcome;
+import utilities.ScanWorkspace;
 import utilities.helperFunctions;
 
 /**
@@ -52,9 +64,11 @@ import utilities.helperFunctions;
  */
 public class TrivyWrapper extends Tool implements ITool  {
 	private final PiqueData piqueData;
+	private final ICweResolver cweResolver;
 	private final String toolName = " Trivy Diagnostic";
 	private final String propertiesPath;
 	private static final Logger LOGGER = LoggerFactory.getLogger(TrivyWrapper.class);
+	private static final String DEFAULT_TIMEOUT = "30m";
 	/**
 	 * Constructs a TrivyWrapper instance.
 	 *
@@ -62,11 +76,24 @@ public class TrivyWrapper extends Tool implements ITool  {
 	public TrivyWrapper(PiqueData piqueData) {
 		super("trivy", null);
 		this.piqueData = piqueData;
+		this.cweResolver = null;
 		this.propertiesPath = "src/main/resources/pique-properties.properties";
 	}
 	public TrivyWrapper(PiqueData piqueData, String propertiesPath) {
 		super("trivy", null);
 		this.piqueData = piqueData;
+		this.cweResolver = null;
+		this.propertiesPath = propertiesPath;
+	}
+
+	/**
+	 * Constructs a TrivyWrapper that resolves CWEs through the given resolver, typically the run-scoped resolver
+	 * shared by every tool of an evaluation or derivation run.
+	 */
+	public TrivyWrapper(PiqueData piqueData, String propertiesPath, ICweResolver cweResolver) {
+		super("trivy", null);
+		this.piqueData = piqueData;
+		this.cweResolver = cweResolver;
 		this.propertiesPath = propertiesPath;
 	}
 
@@ -81,26 +108,67 @@ public class TrivyWrapper extends Tool implements ITool  {
 	@Override
 	public Path analyze(Path projectLocation) {
 		LOGGER.info(this.getName() + "  Analyzing "+ projectLocation.toString());
+		// only components not seen with the current database are scanned when the component cache is enabled
+		return ComponentScanCache.shared().scan(getName(), projectLocation, this::scan, TrivyReportReader::new);
+	}
+
+	/**
+	 * Trivy gives up after its own timeout (5 minutes by default), so it is given as long as the process may run
+	 * before it is killed: the tool timeout, or what is left of the scan's deadline if that passes first. Without
+	 * either, Trivy keeps the 30 minutes it always had.
+	 *
+	 * @return the value of Trivy's {@code --timeout} option
+	 */
+	private String trivyTimeout() {
+		Duration timeout = ScanContext.toolTimeout(getName());
+		Instant scanDeadline = ScanContext.current().map(ScanContext::getDeadline).orElse(null);
+		if (scanDeadline != null) {
+			Duration remaining = Duration.between(Instant.now(), scanDeadline);
+			timeout = timeout == null || remaining.compareTo(timeout) < 0 ? remaining : timeout;
+		}
+		if (timeout == null) {
+			return DEFAULT_TIMEOUT;
+		}
+		// Trivy reads Go durations, rounded up to whole seconds
+		return Math.max(1, timeout.plusMillis(999).getSeconds()) + "s";
+	}
 
-		// clear previous results
-		File tempResults = new File(System.getProperty("user.dir") + "/out/trivy.json");
-		tempResults.delete();
-		tempResults.getParentFile().mkdirs();
+	private Path scan(Path projectLocation) {
+		// write results into a workspace of their own, released by parseAnalysis once they have been read
+		ScanWorkspace workspace = ScanWorkspace.create("trivy");
+		File tempResults = workspace.resolve("trivy.json").toFile();
 
 		// command for running Trivy on the command line
-		String[] cmd = {"trivy",
-				"--timeout", "30m",
+		List<String> command = new ArrayList<>(Arrays.asList("trivy",
+				"--timeout", trivyTimeout(),
 				"sbom",
 				"--format", "json",
 				//"--quiet",
-				"--output",tempResults.toPath().toAbsolutePath().toString(), // output path
-				projectLocation.toAbsolutePath().toString()}; // product under analysis path
+				"--output",tempResults.toPath().toAbsolutePath().toString())); // output path
+		// scan against the shared Trivy server when one is configured, its vulnerability database is already loaded,
+		// otherwise offline against the database pinned at the start of the run
+		Optional<String> server = TrivyServer.sharedUrl();
+		if (server.isPresent()) {
+			command.addAll(Arrays.asList("--server", server.get()));
+		}
+		else {
+			command.addAll(VulnerabilityDbManager.shared().trivyOptions());
+		}
+		command.add(projectLocation.toAbsolutePath().toString()); // product under analysis path
+		String[] cmd = command.toArray(new String[0]);
 		LOGGER.info(Arrays.toString(cmd));
 
 		// runs the command built above and captures the output, trivy itself will handle the file saving
 		try {
-			helperFunctions.getOutputFromProgram(cmd,LOGGER);
+			ProcessResult result = new ProcessRunner(cmd).echoTo(LOGGER).timeout(ScanContext.toolTimeout(getName())).run();
+			ScanContext.report(getName(), result.getOutcome());
+			if (!result.isSuccess()) {
+				workspace.markFailed();
+				LOGGER.error("Trivy failed, {}:\n{}", result, result.getOutput());
+			}
 		} catch (IOException  e) {
+			workspace.markFailed();
+			ScanContext.report(getName(), ScanOutcome.FAILED);
 			LOGGER.error("Failed to run Trivy");
 			LOGGER.error(e.toString());
 			e.printStackTrace();
@@ -120,8 +188,9 @@ public class TrivyWrapper extends Tool implements ITool  {
 	 */
 	@Override
 	public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
-		IOutputProcessor<RelevantVulnerabilityData> outputProcessor = new ToolOutputProcessor(new VulnerabilityService(piqueData, toolName));
-		String results = "";
+		IOutputProcessor<RelevantVulnerabilityData> outputProcessor = new ToolOutputProcessor(
+				new VulnerabilityService(getCweResolver(), toolName, CweResolutionMode.fromProperties(propertiesPath)),
+				FindingMode.fromProperties(propertiesPath));
 
 		System.out.println(this.getName() + " Parsing Analysis...");
 		LOGGER.debug(this.getName() + " Parsing Analysis...");
@@ -134,20 +203,26 @@ public class TrivyWrapper extends Tool implements ITool  {
             throw new RuntimeException(e);
         }
 
-        // Read and process Trivy output
-		try {
-			results = helperFunctions.readFileContent(toolResults);
-		} catch (IOException e) {
+        // stream Trivy output, covering the vulnerabilities of every scanned target
+		boolean parsed = false;
+		try (IVulnerabilityReportReader report = FindingsReportReader.isFindingsReport(toolResults)
+				? new FindingsReportReader(toolResults) : new TrivyReportReader(toolResults)) {
+			outputProcessor.streamToolReport(report, diagnostics);
+			parsed = true;
+		} catch (NoSuchFileException e) {
 			LOGGER.info("No results to read from Trivy.");
+		} catch (IOException | UncheckedIOException | IllegalStateException e) {
+			// the findings applied before the failure would be exported as a clean but partial result
+			LOGGER.error("Unable to read results from {} output, reporting the scan as failed", toolName, e);
+			ScanContext.report(getName(), ScanOutcome.FAILED);
+			try {
+				diagnostics = helperFunctions.initializeDiagnostics(this.getName(), propertiesPath);
+			} catch (IOException initializationError) {
+				throw new RuntimeException(initializationError);
+			}
 		}
 
-		JSONArray vulnerabilities = outputProcessor.getVulnerabilitiesFromToolOutput(results);
-		if (vulnerabilities != null) {
-			List<RelevantVulnerabilityData> trivyVulnerabilities = outputProcessor.processToolVulnerabilities(vulnerabilities);
-			outputProcessor.addDiagnostics(trivyVulnerabilities, diagnostics);
-		} else {
-			LOGGER.warn("Vulnerability array was empty.");
-		}
+		ScanWorkspace.release(toolResults, parsed);
 
 		return diagnostics;
 	}
@@ -164,7 +239,7 @@ public class TrivyWrapper extends Tool implements ITool  {
 		final String[] cmd = {"trivy", "version"};
 
 		try {
-			helperFunctions.getOutputFromProgram(cmd, LOGGER);
+			new ProcessRunner(cmd).echoTo(LOGGER).run();
 		} catch (IOException e) {
 			e.printStackTrace();
 			LOGGER.error("Failed to initialize " + this.getName());
@@ -173,4 +248,8 @@ public class TrivyWrapper extends Tool implements ITool  {
 
 		return toolRoot;
 	}
+
+	private ICweResolver getCweResolver() {
+		return cweResolver != null ? cweResolver : CweResolverFactory.fromProperties(piqueData, propertiesPath);
+	}
 }
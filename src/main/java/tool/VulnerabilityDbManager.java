@@ -0,0 +1,373 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Owns the lifecycle of the scanners' vulnerability databases. Left alone, every Grype and Trivy process checks for
+ * a database update and CVE-bin-tool updates daily, so the concurrent scans of a batch all try to update or validate
+ * the same databases. In pinned mode the databases are instead refreshed once, by {@link #refresh(Collection, Path)}
+ * at the start of a run, and every later scan runs with updates disabled against that snapshot.
+ *
+ * <ul>
+ *     <li>{@code vulnerability-db.mode} - {@code pinned} or {@code auto}, which leaves updating to each tool
+ *     invocation (default pinned)</li>
+ *     <li>{@code vulnerability-db.refresh-hours} - skip the refresh when the databases were refreshed less than this
+ *     many hours ago (default 0: refresh on every run)</li>
+ *     <li>{@code vulnerability-db.directory} - where the pinned databases are kept (default: each tool's own cache
+ *     directory)</li>
+ * </ul>
+ *
+ * <p>The build time of each database is recorded in {@value #STATUS_FILE} in the results directory, so results can be
+ * traced back to the data they were computed from.</p>
+ */
+public class VulnerabilityDbManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VulnerabilityDbManager.class);
+    public static final String STATUS_FILE = "vulnerability-db-status.json";
+    private static final Pattern GRYPE_BUILT = Pattern.compile("(?im)^\\s*\"?built\"?\\s*[:=]\\s*\"?([^\"\\r\\n,]+)");
+    private static final Pattern TRIVY_UPDATED_AT = Pattern.compile("(?im)^\\s*\"?UpdatedAt\"?\\s*[:=]\\s*\"?([^\"\\r\\n,]+)");
+    private static volatile VulnerabilityDbManager shared = new VulnerabilityDbManager(false, Duration.ZERO, null, "");
+
+    private final boolean pinnedMode;
+    private final Duration refreshInterval;
+    private final Path directory;
+    private final String nvdApiKey;
+    private final Map<String, DbStatus> pinned = new ConcurrentHashMap<>();
+
+    /**
+     * @param pinnedMode whether scans run offline against databases refreshed by {@link #refresh(Collection, Path)}
+     * @param refreshInterval databases refreshed more recently than this are not refreshed again
+     * @param directory where the pinned databases are kept, null for each tool's own cache directory
+     * @param nvdApiKey NVD API key used to refresh CVE-bin-tool's database
+     */
+    public VulnerabilityDbManager(boolean pinnedMode, Duration refreshInterval, Path directory, String nvdApiKey) {
+        this.pinnedMode = pinnedMode;
+        this.refreshInterval = refreshInterval;
+        this.directory = directory;
+        this.nvdApiKey = nvdApiKey;
+    }
+
+    /**
+     * Applies the database settings of a properties file to every scan started afterwards.
+     */
+    public static void configure(Properties prop) {
+        boolean pinnedMode = !prop.getProperty("vulnerability-db.mode", "pinned").trim().equalsIgnoreCase("auto");
+        Duration refreshInterval = Duration.ofHours(Long.parseLong(prop.getProperty("vulnerability-db.refresh-hours", "0").trim()));
+        String directory = prop.getProperty("vulnerability-db.directory", "").trim();
+        shared = new VulnerabilityDbManager(pinnedMode, refreshInterval, directory.isEmpty() ? null : Paths.get(directory),
+                prop.getProperty("nvd-api-key-path", ""));
+    }
+
+    /**
+     * @return the manager configured for this run
+     */
+    public static VulnerabilityDbManager shared() {
+        return shared;
+    }
+
+    /**
+     * Refreshes the database of each of the given tools, unless it was refreshed within the refresh interval, pins
+     * every database whose build time is known, and records the build times in the results directory. A tool whose
+     * database cannot be refreshed or inspected is left to update itself on every scan.
+     *
+     * @param tools tool names, as returned by {@code ITool.getName()}
+     * @param resultsDir where to record the database status
+     * @return the status of each tool's database
+     */
+    public synchronized Map<String, DbStatus> refresh(Collection<String> tools, Path resultsDir) {
+        if (!pinnedMode) {
+            return Collections.emptyMap();
+        }
+        Path statusFile = resultsDir.resolve(STATUS_FILE);
+        Map<String, DbStatus> previous = readStatus(statusFile);
+        Map<String, DbStatus> statuses = new TreeMap<>(previous);
+        for (String tool : new TreeSet<>(tools)) {
+            DbStatus last = previous.get(tool);
+            boolean due = last == null || last.getRefreshedAt() == null
+                    || !Instant.now().isBefore(last.getRefreshedAt().plus(refreshInterval));
+            Instant refreshedAt = last == null ? null : last.getRefreshedAt();
+            if (due) {
+                LOGGER.info("Refreshing the {} vulnerability database", tool);
+                System.out.println("Refreshing the " + tool + " vulnerability database");
+                if (run(refreshCommand(tool), tool + " database refresh")) {
+                    refreshedAt = Instant.now();
+                }
+            }
+            String built = readBuildTime(tool);
+            if (built == null) {
+                LOGGER.warn("Unable to determine the {} database build time, {} scans will update their database themselves", tool, tool);
+                pinned.remove(tool);
+                continue;
+            }
+            DbStatus status = new DbStatus(tool, built, refreshedAt);
+            pinned.put(tool, status);
+            statuses.put(tool, status);
+            LOGGER.info("Pinned the {} vulnerability database built {}", tool, built);
+        }
+        writeStatus(statusFile, statuses);
+        return statuses;
+    }
+
+    /**
+     * @return whether the tool's scans run against a pinned database, with updates disabled
+     */
+    public boolean isPinned(String tool) {
+        return pinned.containsKey(tool);
+    }
+
+    /**
+     * @return status of the pinned databases, by tool name
+     */
+    public Map<String, DbStatus> getPinned() {
+        return Collections.unmodifiableMap(new TreeMap<>(pinned));
+    }
+
+    /**
+     * @return environment variables for a Grype scan
+     */
+    public Map<String, String> grypeEnvironment() {
+        Map<String, String> environment = new LinkedHashMap<>();
+        if (directory != null) {
+            environment.put("GRYPE_DB_CACHE_DIR", directory.resolve("grype").toAbsolutePath().toString());
+        }
+        if (isPinned("grype")) {
+            environment.put("GRYPE_DB_AUTO_UPDATE", "false");
+            // the snapshot's age was checked when it was refreshed, a long batch must not start failing half way
+            environment.put("GRYPE_DB_VALIDATE_AGE", "false");
+        }
+        return environment;
+    }
+
+    /**
+     * @return options for a standalone Trivy scan or SBOM generation, or for starting the Trivy server
+     */
+    public List<String> trivyOptions() {
+        List<String> options = new ArrayList<>();
+        if (directory != null) {
+            options.addAll(Arrays.asList("--cache-dir", directory.resolve("trivy").toAbsolutePath().toString()));
+        }
+        if (isPinned("trivy")) {
+            options.addAll(Arrays.asList("--skip-db-update", "--skip-java-db-update"));
+        }
+        return options;
+    }
+
+    /**
+     * @return value of CVE-bin-tool's {@code -u} option for a scan
+     */
+    public String cveBinToolUpdateMode() {
+        return isPinned("cve_bin_tool") ? "never" : "daily";
+    }
+
+    /**
+     * Extracts the database build time from the output of {@code grype db status} or {@code trivy version}.
+     *
+     * @return the build time as reported by the tool, or null if the output does not contain it
+     */
+    public static String parseBuildTime(String tool, String statusOutput) {
+        Pattern pattern = tool.equals("trivy") ? TRIVY_UPDATED_AT : GRYPE_BUILT;
+        Matcher matcher = pattern.matcher(statusOutput);
+        return matcher.find() ? matcher.group(1).trim() : null;
+    }
+
+    private String[] refreshCommand(String tool) {
+        switch (tool) {
+            case "grype":
+                return new String[]{"grype", "db", "update"};
+            case "trivy": {
+                List<String> cmd = new ArrayList<>(Arrays.asList("trivy", "image", "--download-db-only"));
+                if (directory != null) {
+                    cmd.addAll(Arrays.asList("--cache-dir", directory.resolve("trivy").toAbsolutePath().toString()));
+                }
+                return cmd.toArray(new String[0]);
+            }
+            case "cve_bin_tool":
+                return new String[]{"cve-bin-tool", "--disable-version-check", "--nvd-api-key", nvdApiKey, "-u", "now"};
+            default:
+                throw new IllegalArgumentException("No vulnerability database known for " + tool);
+        }
+    }
+
+    private String readBuildTime(String tool) {
+        switch (tool) {
+            case "grype":
+                return readBuildTime(tool, "grype", "db", "status");
+            case "trivy": {
+                List<String> cmd = new ArrayList<>(Arrays.asList("trivy", "version"));
+                if (directory != null) {
+                    cmd.addAll(Arrays.asList("--cache-dir", directory.resolve("trivy").toAbsolutePath().toString()));
+                }
+                return readBuildTime(tool, cmd.toArray(new String[0]));
+            }
+            case "cve_bin_tool": {
+                // CVE-bin-tool has no status command, its database file is rewritten on every update
+                Path database = Paths.get(System.getProperty("user.home"), ".cache", "cve-bin-tool", "cve.db");
+                try {
+                    return Files.getLastModifiedTime(database).toInstant().toString();
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+            default:
+                return null;
+        }
+    }
+
+    private String readBuildTime(String tool, String... cmd) {
+        try {
+            ProcessRunner runner = new ProcessRunner(cmd);
+            if (cmd[0].equals("grype")) {
+                grypeEnvironment().forEach(runner::environment);
+            }
+            ProcessResult result = runner.run();
+            return result.isSuccess() ? parseBuildTime(tool, result.getOutput()) : null;
+        } catch (IOException e) {
+            LOGGER.warn("Unable to run {}", cmd[0], e);
+            return null;
+        }
+    }
+
+    private boolean run(String[] cmd, String description) {
+        try {
+            ProcessRunner runner = new ProcessRunner(cmd).echoTo(LOGGER);
+            if (cmd[0].equals("grype")) {
+                grypeEnvironment().forEach(runner::environment);
+            }
+            ProcessResult result = runner.run();
+            if (!result.isSuccess()) {
+                LOGGER.warn("{} failed, {}:\n{}", description, result, result.getOutput());
+            }
+            return result.isSuccess();
+        } catch (IOException e) {
+            LOGGER.warn("{} failed", description, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads a database status file, as written by {@link #writeStatus(Path, Map)}.
+     *
+     * @return status by tool name, empty if the file does not exist or cannot be read
+     */
+    public static Map<String, DbStatus> readStatus(Path statusFile) {
+        Map<String, DbStatus> statuses = new TreeMap<>();
+        if (!Files.isRegularFile(statusFile)) {
+            return statuses;
+        }
+        try {
+            JsonObject json = JsonParser.parseString(new String(Files.readAllBytes(statusFile), StandardCharsets.UTF_8)).getAsJsonObject();
+            for (Map.Entry<String, JsonElement> tool : json.entrySet()) {
+                JsonObject entry = tool.getValue().getAsJsonObject();
+                String refreshedAt = entry.has("refreshedAt") ? entry.get("refreshedAt").getAsString() : "";
+                statuses.put(tool.getKey(), new DbStatus(tool.getKey(), entry.has("built") ? entry.get("built").getAsString() : null,
+                        refreshedAt.isEmpty() ? null : Instant.parse(refreshedAt)));
+            }
+        } catch (IOException | JsonParseException | IllegalStateException | DateTimeParseException e) {
+            LOGGER.warn("Ignoring unreadable vulnerability database status {}", statusFile, e);
+            statuses.clear();
+        }
+        return statuses;
+    }
+
+    /**
+     * Writes a database status file, replacing it atomically.
+     */
+    public static void writeStatus(Path statusFile, Map<String, DbStatus> statuses) {
+        JsonObject json = new JsonObject();
+        statuses.forEach((tool, status) -> {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("built", status.getBuilt());
+            entry.addProperty("refreshedAt", status.getRefreshedAt() == null ? "" : status.getRefreshedAt().toString());
+            json.add(tool, entry);
+        });
+        try {
+            Files.createDirectories(statusFile.toAbsolutePath().getParent());
+            Path temp = statusFile.resolveSibling(statusFile.getFileName() + ".tmp");
+            Files.write(temp, new GsonBuilder().setPrettyPrinting().create().toJson(json).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, statusFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to record the vulnerability database status in {}", statusFile, e);
+        }
+    }
+
+    /**
+     * Build time of a tool's vulnerability database and when it was last refreshed.
+     */
+    @Getter
+    public static class DbStatus {
+        private final String tool;
+        /**
+         * The build time as reported by the tool
+         */
+        private final String built;
+        /**
+         * When the database was last refreshed by this manager, null if never
+         */
+        private final Instant refreshedAt;
+
+        public DbStatus(String tool, String built, Instant refreshedAt) {
+            this.tool = tool;
+            this.built = built;
+            this.refreshedAt = refreshedAt;
+        }
+
+        @Override
+        public String toString() {
+            return tool + " built " + built;
+        }
+    }
+}
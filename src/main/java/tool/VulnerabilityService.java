@@ -23,8 +23,9 @@
  */
 package tool;
 
-import exceptions.ApiCallException;
-import exceptions.DataAccessException;
+import cweResolution.CweResolutionMode;
+import cweResolution.ICweResolver;
+import cweResolution.PiqueDataCweResolver;
 import lombok.Getter;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -32,12 +33,18 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import presentation.PiqueData;
+import toolOutputObjects.RawVulnerabilityData;
 import toolOutputObjects.RelevantVulnerabilityData;
 import utilities.helperFunctions;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,13 +52,24 @@ public class VulnerabilityService {
     private final String GRYPE = "Grype";
     private final String TRIVY = "Trivy";
     private final String PARSE_JSON_ERROR_MESSAGE = "Unable to parse json. ";
-    private final PiqueData piqueData;
+    private static final Pattern CVE_ID_PATTERN = Pattern.compile("CVE-\\d{3,4}-\\d{3,4}(?=.*)");
+    private final ICweResolver cweResolver;
+    private final CweResolutionMode resolutionMode;
     @Getter private final String toolName;
     private static final Logger LOGGER = LoggerFactory.getLogger(VulnerabilityService.class);
 
     public VulnerabilityService(PiqueData piqueData, String toolName) {
-        this.piqueData = piqueData;
+        this(new PiqueDataCweResolver(piqueData), toolName);
+    }
+
+    public VulnerabilityService(ICweResolver cweResolver, String toolName) {
+        this(cweResolver, toolName, CweResolutionMode.DATABASE);
+    }
+
+    public VulnerabilityService(ICweResolver cweResolver, String toolName, CweResolutionMode resolutionMode) {
+        this.cweResolver = cweResolver;
         this.toolName = toolName;
+        this.resolutionMode = resolutionMode;
     }
 
     /**
@@ -106,6 +124,19 @@ public class VulnerabilityService {
         return data;
     }
 
+    /**
+     * Processes the findings of a streaming report reader. Only the raw fields of each finding are kept while
+     * the report is read; CWEs are resolved in bulk afterwards.
+     *
+     * @param report findings read incrementally from tool output
+     * @return List of formatted vulnerability data, in report order
+     */
+    public List<RelevantVulnerabilityData> processReport(Iterator<RawVulnerabilityData> report) {
+        List<RawVulnerabilityData> findings = new ArrayList<>();
+        report.forEachRemaining(findings::add);
+        return resolveVulnerabilityData(findings);
+    }
+
     private JSONArray extractGrypeVulnerabilities(String results) {
         try {
             JSONArray matches = new JSONObject(results).optJSONArray("matches");
@@ -141,8 +172,10 @@ public class VulnerabilityService {
         try {
             JSONArray resultsArray = new JSONObject(results).optJSONArray("Results");
             JSONArray vulnerabilities = new JSONArray();
-            if (resultsArray != null && resultsArray.length() > 0) {
-                JSONArray vulnerabilitiesArray = resultsArray.optJSONObject(0).optJSONArray("Vulnerabilities");
+            // every scanned target has its own entry in Results
+            for (int r = 0; resultsArray != null && r < resultsArray.length(); r++) {
+                JSONObject result = resultsArray.optJSONObject(r);
+                JSONArray vulnerabilitiesArray = result == null ? null : result.optJSONArray("Vulnerabilities");
                 for (int i = 0; vulnerabilitiesArray != null && i < vulnerabilitiesArray.length(); i++) {
                     JSONObject vulnerability = vulnerabilitiesArray.optJSONObject(i);
                     if (vulnerability != null) vulnerabilities.put(vulnerability);
@@ -174,44 +207,98 @@ public class VulnerabilityService {
     }
 
     private List<RelevantVulnerabilityData> formatVulnerabilityData(JSONArray jsonVulns, String idKey, String severityKey, String packageNameKey, String packageVersionKey) {
-        List<RelevantVulnerabilityData> toolVulnerabilities = new ArrayList<>();
+        List<RawVulnerabilityData> findings = new ArrayList<>(jsonVulns.length());
 
         for (int i = 0; i < jsonVulns.length(); i++) {
             JSONObject jsonFinding = extractJsonFinding(jsonVulns, i);
-            String rawId = extractRawId(jsonFinding, idKey);
-            String packageVersion = extractPackageVersion(jsonFinding, packageVersionKey);
-            String packageName = extractPackageName(jsonFinding, packageNameKey);
-
-
-            if (!fetchCwes(rawId).isEmpty()) {
-                LOGGER.info("CVE with CWEs found: {}", rawId);
-                toolVulnerabilities.add(
-                        new RelevantVulnerabilityData(
-                                        formatVulnerabilityId(rawId),
-                                        fetchCwes(rawId),
-                                        helperFunctions.severityToInt(extractSeverity(jsonFinding, severityKey)),
-                                        packageName,
-                                        packageVersion));
+            findings.add(new RawVulnerabilityData(
+                    extractRawId(jsonFinding, idKey),
+                    extractSeverity(jsonFinding, severityKey),
+                    extractPackageName(jsonFinding, packageNameKey),
+                    extractPackageVersion(jsonFinding, packageVersionKey),
+                    extractPayloadCwes(jsonFinding),
+                    Collections.emptyList()));
+        }
+
+        return resolveVulnerabilityData(findings);
+    }
+
+    /**
+     * Resolves the CWEs for a batch of findings in two phases: the distinct vulnerability ids are resolved with a
+     * single bulk lookup first, then the relevant vulnerability data is built from the resolved map. Findings
+     * without CWEs are assigned to CWE-unknown.
+     *
+     * <p>In {@link CweResolutionMode#PAYLOAD_FIRST} mode, findings carrying CWEs in the tool payload are not looked
+     * up at all, and GHSA findings are looked up by their first CVE alias when the tool reports one.</p>
+     *
+     * @param findings findings extracted from tool output
+     * @return List of formatted vulnerability data, in the same order as findings
+     */
+    public List<RelevantVulnerabilityData> resolveVulnerabilityData(List<RawVulnerabilityData> findings) {
+        List<RelevantVulnerabilityData> toolVulnerabilities = new ArrayList<>(findings.size());
+
+        Set<String> vulnIds = new LinkedHashSet<>();
+        int fromPayload = 0;
+        for (RawVulnerabilityData finding : findings) {
+            if (usesPayloadCwes(finding)) {
+                fromPayload++;
+            }
+            else {
+                vulnIds.add(lookupId(finding));
+            }
+        }
+        if (fromPayload > 0) {
+            LOGGER.info("Took CWEs of {} findings from {} output", fromPayload, toolName);
+        }
+        Map<String, List<String>> cwesById = fetchCwes(vulnIds);
+
+        for (RawVulnerabilityData finding : findings) {
+            String rawId = finding.getVulnerabilityId();
+            List<String> cwes = usesPayloadCwes(finding)
+                    ? finding.getPayloadCwes()
+                    : cwesById.getOrDefault(lookupId(finding), Collections.emptyList());
+
+            if (!cwes.isEmpty()) {
+                LOGGER.debug("CVE with CWEs found: {}", rawId);
             }
             // add to unknown if no CWEs found
             else {
-                LOGGER.info("CVE with unknown CWE found: {}", rawId);
-                toolVulnerabilities.add(
-                        new RelevantVulnerabilityData(
-                                formatVulnerabilityId(rawId),
-                                Collections.singletonList("CWE-unknown"),
-                                helperFunctions.severityToInt(extractSeverity(jsonFinding, severityKey)),
-                                packageName,
-                                packageVersion));
+                LOGGER.debug("CVE with unknown CWE found: {}", rawId);
+                cwes = Collections.singletonList("CWE-unknown");
             }
+            toolVulnerabilities.add(
+                    new RelevantVulnerabilityData(
+                            formatVulnerabilityId(rawId),
+                            cwes,
+                            helperFunctions.severityToInt(finding.getSeverity()),
+                            finding.getPackageName(),
+                            finding.getPackageVersion()));
         }
 
         return toolVulnerabilities;
     }
 
+    private boolean usesPayloadCwes(RawVulnerabilityData finding) {
+        return resolutionMode == CweResolutionMode.PAYLOAD_FIRST && !finding.getPayloadCwes().isEmpty();
+    }
+
+    /**
+     * @return the id to look the finding up by: its own id, or in payload-first mode the first CVE alias of a GHSA id
+     */
+    private String lookupId(RawVulnerabilityData finding) {
+        String rawId = finding.getVulnerabilityId();
+        if (resolutionMode == CweResolutionMode.PAYLOAD_FIRST && rawId.contains("GHSA")) {
+            for (String alias : finding.getAliases()) {
+                if (alias.startsWith("CVE-")) {
+                    return alias;
+                }
+            }
+        }
+        return rawId;
+    }
+
     private String formatVulnerabilityId(String id) {
-        Pattern pattern = Pattern.compile("CVE-\\d{3,4}-\\d{3,4}(?=.*)");
-        Matcher matcher = pattern.matcher(id);
+        Matcher matcher = CVE_ID_PATTERN.matcher(id);
 
         return matcher.find() ? id.substring(0, matcher.end()) : "";
     }
@@ -226,27 +313,16 @@ public class VulnerabilityService {
         return new JSONObject();
     }
 
-    private List<String> fetchCwes(String vulnId) {
-        try {
-            if (vulnId.contains("GHSA")) {
-                Thread.sleep(500);
-                return piqueData.getCweIdsFromGhsa(vulnId);
-            }
-            else if (vulnId.contains("CVE")) {
-                return piqueData.getCweName(vulnId);
-            }
-            else {
-                System.out.println("Skipping - unknown vulnerability ID format: " + vulnId);
-                LOGGER.warn("Skipping - unknown vulnerability ID format: {}", vulnId);
-                return Collections.emptyList();
+    private Map<String, List<String>> fetchCwes(Collection<String> vulnIds) {
+        Map<String, List<String>> cwesById = cweResolver.resolveAll(vulnIds);
+
+        for (String vulnId : vulnIds) {
+            if (!cwesById.containsKey(vulnId)) {
+                System.out.println("Error fetching CWEs for " + vulnId);
+                LOGGER.warn("Error fetching CWEs for {}", vulnId);
             }
-        } catch (ApiCallException | DataAccessException | IndexOutOfBoundsException | NullPointerException | InterruptedException e) {
-            System.out.println("Error fetching CWEs for " + vulnId);
-            System.out.println("Call failed with error " + e.getMessage());
-            LOGGER.warn("Error fetching CWEs for {}", vulnId);
-            LOGGER.warn("Call failed with error ", e);
         }
-        return Collections.emptyList();
+        return cwesById;
     }
 
     private String extractRawId(JSONObject jsonFinding, String idKey) {
@@ -276,6 +352,18 @@ public class VulnerabilityService {
         return "";
     }
 
+    private List<String> extractPayloadCwes(JSONObject jsonFinding) {
+        JSONArray cweIds = jsonFinding.optJSONArray("CweIDs");
+        List<String> cwes = new ArrayList<>();
+        for (int i = 0; cweIds != null && i < cweIds.length(); i++) {
+            String cwe = cweIds.optString(i);
+            if (!cwe.isEmpty()) {
+                cwes.add(cwe);
+            }
+        }
+        return cwes;
+    }
+
     private String extractSeverity(JSONObject jsonFinding, String severityKey) {
         try {
             return jsonFinding.optString(severityKey);
@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolOutputObjects;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The fields of a single tool finding needed to build {@link RelevantVulnerabilityData}, before its CWEs have
+ * been resolved.
+ */
+@Getter
+public class RawVulnerabilityData {
+    private final String vulnerabilityId;
+    private final String severity;
+    private final String packageName;
+    private final String packageVersion;
+    /** CWEs reported by the tool itself, e.g. Trivy's CweIDs */
+    private final List<String> payloadCwes;
+    /** Other ids the tool reports for the same vulnerability, e.g. the CVEs in Grype's relatedVulnerabilities */
+    private final List<String> aliases;
+    /** Package URL of the affected package, empty if the tool does not report one */
+    private final String purl;
+
+    public RawVulnerabilityData(String vulnerabilityId, String severity, String packageName, String packageVersion) {
+        this(vulnerabilityId, severity, packageName, packageVersion, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public RawVulnerabilityData(String vulnerabilityId, String severity, String packageName, String packageVersion,
+                                List<String> payloadCwes, List<String> aliases) {
+        this(vulnerabilityId, severity, packageName, packageVersion, payloadCwes, aliases, "");
+    }
+
+    public RawVulnerabilityData(String vulnerabilityId, String severity, String packageName, String packageVersion,
+                                List<String> payloadCwes, List<String> aliases, String purl) {
+        this.vulnerabilityId = vulnerabilityId;
+        this.severity = severity;
+        this.packageName = packageName;
+        this.packageVersion = packageVersion;
+        this.payloadCwes = payloadCwes;
+        this.aliases = aliases;
+        this.purl = purl;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of a program run by {@link ProcessRunner}: how it ended, its exit code and the tail of its combined output.
+ */
+@Getter
+public class ProcessResult {
+    private final List<String> command;
+    private final ScanOutcome outcome;
+    /**
+     * Exit code of the program, -1 if it timed out or was not started
+     */
+    private final int exitCode;
+    /**
+     * The last characters of the combined stdout and stderr
+     */
+    private final String output;
+    /**
+     * Whether earlier output was dropped to stay within the capture limit
+     */
+    private final boolean truncated;
+
+    public ProcessResult(List<String> command, int exitCode, String output, boolean truncated, ScanOutcome outcome) {
+        this.command = command;
+        this.outcome = outcome;
+        this.exitCode = exitCode;
+        this.output = output;
+        this.truncated = truncated;
+    }
+
+    /**
+     * @return whether the program ran to completion and exited with code 0
+     */
+    public boolean isSuccess() {
+        return outcome == ScanOutcome.COMPLETED;
+    }
+
+    @Override
+    public String toString() {
+        switch (outcome) {
+            case TIMED_OUT:
+                return command.get(0) + " timed out";
+            case CANCELLED:
+                return command.get(0) + " was cancelled";
+            default:
+                return command.get(0) + " exited with code " + exitCode;
+        }
+    }
+}
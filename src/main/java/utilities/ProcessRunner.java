@@ -0,0 +1,366 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs an external program, such as a scanner or SBOM generator, and drains its output on two dedicated pump threads
+ * per process. Only the last {@link #captureLimit(int) captureLimit} characters of the combined stdout and stderr are
+ * kept, so chatty tools cannot grow memory without bound, while every line can still be streamed to a listener as it
+ * is produced.
+ *
+ * <p>A program is killed together with all of its child processes once its {@link #timeout(Duration) timeout} or
+ * the deadline of the current {@link ScanContext} passes, or when that scan is cancelled; the result then reports
+ * {@link ScanOutcome#TIMED_OUT} or {@link ScanOutcome#CANCELLED} instead of an exit code.</p>
+ *
+ * <pre>
+ *     ProcessResult result = new ProcessRunner("grype", "version").echoTo(LOGGER).run();
+ *     if (!result.isSuccess()) { ... }
+ * </pre>
+ */
+public class ProcessRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessRunner.class);
+
+    /**
+     * Characters of output kept by default, enough for the error report at the end of a failed run
+     */
+    public static final int DEFAULT_CAPTURE_LIMIT = 64 * 1024;
+
+    /**
+     * How long to wait for the pumps to drain once the process has exited; a grandchild holding the pipes open
+     * must not block the caller
+     */
+    private static final long PUMP_DRAIN_MILLIS = 5_000;
+
+    private final List<String> command;
+    private final Map<String, String> environment = new LinkedHashMap<>();
+    private Path directory;
+    private int captureLimit = DEFAULT_CAPTURE_LIMIT;
+    private Consumer<String> lineListener = line -> { };
+    private Duration timeout;
+    private boolean scoped = true;
+
+    public ProcessRunner(String... command) {
+        this.command = Arrays.asList(command.clone());
+    }
+
+    /**
+     * @param chars characters of combined output to keep, 0 keeps none
+     */
+    public ProcessRunner captureLimit(int chars) {
+        if (chars < 0) {
+            throw new IllegalArgumentException("capture limit must not be negative: " + chars);
+        }
+        this.captureLimit = chars;
+        return this;
+    }
+
+    /**
+     * Streams every output line to the listener as soon as it is read. The listener is called from the pump
+     * threads, stdout and stderr lines may interleave.
+     */
+    public ProcessRunner onLine(Consumer<String> listener) {
+        this.lineListener = listener;
+        return this;
+    }
+
+    /**
+     * Logs every output line at debug level. Pass {@code System.out::println} to {@link #onLine} instead to see a
+     * tool's output on the console.
+     */
+    public ProcessRunner echoTo(Logger logger) {
+        return onLine(logger::debug);
+    }
+
+    /**
+     * Sets an environment variable for the process, on top of the environment of this JVM.
+     */
+    public ProcessRunner environment(String name, String value) {
+        environment.put(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the working directory of the process (default: the working directory of this JVM).
+     */
+    public ProcessRunner directory(Path directory) {
+        this.directory = directory;
+        return this;
+    }
+
+    /**
+     * Sets how long the program may run before it is killed (default: until the deadline of the current scan).
+     *
+     * @param timeout the timeout, null or zero for none
+     */
+    public ProcessRunner timeout(Duration timeout) {
+        this.timeout = timeout == null || timeout.isZero() ? null : timeout;
+        return this;
+    }
+
+    /**
+     * Detaches the program from the current {@link ScanContext}, for long-lived services shared by many scans that
+     * must outlive the scan which happens to start them.
+     */
+    public ProcessRunner unscoped() {
+        this.scoped = false;
+        return this;
+    }
+
+    /**
+     * Starts the process and its output pumps.
+     *
+     * @throws IOException if the program cannot be started
+     */
+    public RunningProcess start() throws IOException {
+        ScanContext context = scoped ? ScanContext.current().orElse(null) : null;
+        Instant deadline = timeout == null ? null : Instant.now().plus(timeout);
+        if (context != null && context.getDeadline() != null && (deadline == null || context.getDeadline().isBefore(deadline))) {
+            deadline = context.getDeadline();
+        }
+
+        LOGGER.debug("Executing: {}", String.join(" ", command));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().putAll(environment);
+        if (directory != null) {
+            builder.directory(directory.toFile());
+        }
+        Process process = builder.start();
+        // nothing is ever written to the program, it must not wait for input
+        process.getOutputStream().close();
+        return new RunningProcess(process, command, new OutputTail(captureLimit), lineListener, deadline, context);
+    }
+
+    /**
+     * Runs the program to completion.
+     *
+     * @return exit code and captured output
+     * @throws IOException if the program cannot be started, or the calling thread is interrupted while waiting
+     */
+    public ProcessResult run() throws IOException {
+        // a scan that has already ended does not start any more programs
+        ScanContext context = scoped ? ScanContext.current().orElse(null) : null;
+        if (context != null && (context.isCancelled() || context.isExpired())) {
+            ScanOutcome outcome = context.isCancelled() ? ScanOutcome.CANCELLED : ScanOutcome.TIMED_OUT;
+            return new ProcessResult(command, -1, "", false, outcome);
+        }
+        try (RunningProcess running = start()) {
+            return running.waitFor();
+        }
+    }
+
+    /**
+     * A started process whose output is being pumped. Closing it destroys the process if it is still running.
+     */
+    public static class RunningProcess implements AutoCloseable {
+        private final Process process;
+        private final List<String> command;
+        private final OutputTail output;
+        private final Thread stdoutPump;
+        private final Thread stderrPump;
+        private final Instant deadline;
+        private final ScanContext context;
+
+        private RunningProcess(Process process, List<String> command, OutputTail output, Consumer<String> lineListener,
+                               Instant deadline, ScanContext context) {
+            this.process = process;
+            this.command = command;
+            this.output = output;
+            this.deadline = deadline;
+            this.context = context;
+            if (context != null) {
+                context.register(process);
+            }
+            String name = "process-pump-" + process.pid();
+            this.stdoutPump = pump(process.getInputStream(), name + "-out", output, lineListener);
+            this.stderrPump = pump(process.getErrorStream(), name + "-err", output, lineListener);
+        }
+
+        /**
+         * @return the underlying process, e.g. to check {@link Process#isAlive()} or reach its descendants
+         */
+        public Process getProcess() {
+            return process;
+        }
+
+        /**
+         * Waits for the process to exit and its output to be drained, killing the process tree if the deadline
+         * passes first.
+         *
+         * @throws InterruptedIOException if the calling thread is interrupted, the process tree is destroyed then
+         */
+        public ProcessResult waitFor() throws InterruptedIOException {
+            try {
+                boolean exited = true;
+                if (deadline == null) {
+                    process.waitFor();
+                } else {
+                    long remaining = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+                    exited = process.waitFor(remaining, TimeUnit.MILLISECONDS);
+                }
+                if (!exited) {
+                    LOGGER.warn("{} did not finish by its deadline, killing it and its child processes", command.get(0));
+                    destroyTree(process);
+                    process.waitFor(PUMP_DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                stdoutPump.join(PUMP_DRAIN_MILLIS);
+                stderrPump.join(PUMP_DRAIN_MILLIS);
+
+                ScanOutcome outcome;
+                if (!exited) {
+                    outcome = ScanOutcome.TIMED_OUT;
+                } else if (context != null && context.isCancelled()) {
+                    outcome = ScanOutcome.CANCELLED;
+                } else {
+                    outcome = process.exitValue() == 0 ? ScanOutcome.COMPLETED : ScanOutcome.FAILED;
+                }
+                int exitCode = exited ? process.exitValue() : -1;
+                return new ProcessResult(command, exitCode, output.toString(), output.isTruncated(), outcome);
+            } catch (InterruptedException e) {
+                destroyTree(process);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + command.get(0));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (context != null) {
+                context.unregister(process);
+            }
+            if (process.isAlive()) {
+                destroyTree(process);
+                try {
+                    process.waitFor(PUMP_DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private static Thread pump(InputStream stream, String name, OutputTail output, Consumer<String> lineListener) {
+            Thread pump = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charset.defaultCharset()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        output.append(line);
+                        try {
+                            lineListener.accept(line);
+                        } catch (RuntimeException e) {
+                            LOGGER.warn("Output listener failed on {}", name, e);
+                        }
+                    }
+                } catch (IOException e) {
+                    // the stream is closed when the process is destroyed, there is nothing left to read then
+                    LOGGER.debug("Stopped reading {}", name, e);
+                }
+            }, name);
+            pump.setDaemon(true);
+            pump.start();
+            return pump;
+        }
+    }
+
+    /**
+     * Kills the process and every process it started, children first so none of them is orphaned on the way.
+     */
+    static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Ring buffer keeping the last characters of the output, whole lines as far as the limit allows.
+     */
+    private static class OutputTail {
+        private final char[] buffer;
+        private int start;
+        private int length;
+        private boolean truncated;
+
+        OutputTail(int limit) {
+            this.buffer = new char[limit];
+        }
+
+        synchronized void append(String line) {
+            for (int i = 0; i < line.length(); i++) {
+                put(line.charAt(i));
+            }
+            put('\n');
+        }
+
+        private void put(char c) {
+            if (buffer.length == 0) {
+                truncated = true;
+                return;
+            }
+            if (length < buffer.length) {
+                buffer[(start + length) % buffer.length] = c;
+                length++;
+            } else {
+                buffer[start] = c;
+                start = (start + 1) % buffer.length;
+                truncated = true;
+            }
+        }
+
+        synchronized boolean isTruncated() {
+            return truncated;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder tail = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                tail.append(buffer[(start + i) % buffer.length]);
+            }
+            // drop the partial first line of a truncated tail
+            if (truncated) {
+                int firstLineEnd = tail.indexOf("\n");
+                if (firstLineEnd >= 0 && firstLineEnd < tail.length() - 1) {
+                    tail.delete(0, firstLineEnd + 1);
+                }
+            }
+            return tail.toString();
+        }
+    }
+}
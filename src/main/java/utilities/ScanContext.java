@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Deadline and cancellation state of the scan of one SBOM. Every program started through {@link ProcessRunner} while
+ * a scan context is {@link #call(Supplier) current} is killed, together with its child processes, once the scan's
+ * deadline passes or the scan is cancelled, so a single pathological SBOM cannot stall a whole batch.
+ *
+ * <ul>
+ *     <li>{@code timeout.sbom-minutes} - deadline for scanning one SBOM with all of its tools (0 or empty: none)</li>
+ *     <li>{@code timeout.tool-minutes.<tool>} - deadline for a single invocation of a tool, e.g.
+ *     {@code timeout.tool-minutes.grype} (0 or empty: none)</li>
+ * </ul>
+ *
+ * <p>Tool wrappers {@link #report(String, ScanOutcome) report} how their invocation ended, so a scan cut short by a
+ * timeout is told apart from one that completed without findings.</p>
+ */
+public class ScanContext {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanContext.class);
+    private static final ThreadLocal<ScanContext> CURRENT = new ThreadLocal<>();
+    private static final String TOOL_TIMEOUT_PREFIX = "timeout.tool-minutes.";
+    private static final Map<String, Duration> TOOL_TIMEOUTS = new ConcurrentHashMap<>();
+    private static volatile Duration sbomTimeout;
+
+    private final String name;
+    private final Instant deadline;
+    private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+    private final SortedMap<String, ScanOutcome> toolOutcomes = new ConcurrentSkipListMap<>();
+    private volatile boolean cancelled;
+
+    /**
+     * @param name what is being scanned, used in log messages
+     * @param timeout time the scan may take from now on, null for none
+     */
+    public ScanContext(String name, Duration timeout) {
+        this.name = name;
+        this.deadline = timeout == null ? null : Instant.now().plus(timeout);
+    }
+
+    /**
+     * Applies the timeout settings of a properties file to every scan and tool invocation started afterwards.
+     */
+    public static void configure(Properties prop) {
+        sbomTimeout = minutes(prop.getProperty("timeout.sbom-minutes"));
+        TOOL_TIMEOUTS.clear();
+        for (String key : prop.stringPropertyNames()) {
+            Duration timeout = minutes(prop.getProperty(key));
+            if (key.startsWith(TOOL_TIMEOUT_PREFIX) && timeout != null) {
+                TOOL_TIMEOUTS.put(key.substring(TOOL_TIMEOUT_PREFIX.length()), timeout);
+            }
+        }
+    }
+
+    /**
+     * Opens the context for scanning one SBOM, with the configured {@code timeout.sbom-minutes} deadline.
+     */
+    public static ScanContext open(String name) {
+        return new ScanContext(name, sbomTimeout);
+    }
+
+    /**
+     * @return the configured timeout of a single invocation of the tool, or null if it has none
+     */
+    public static Duration toolTimeout(String tool) {
+        return TOOL_TIMEOUTS.get(tool);
+    }
+
+    /**
+     * @return the scan context of the calling thread, if any
+     */
+    public static Optional<ScanContext> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Records how a tool invocation ended in the scan context of the calling thread, if any.
+     */
+    public static void report(String tool, ScanOutcome outcome) {
+        current().ifPresent(context -> context.record(tool, outcome));
+    }
+
+    /**
+     * Runs the action with this context as the calling thread's current scan context.
+     */
+    public <T> T call(Supplier<T> action) {
+        ScanContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Cancels the scan: programs it is running are killed along with their child processes, and tools that have not
+     * started yet are skipped.
+     */
+    public void cancel() {
+        if (!cancelled) {
+            LOGGER.warn("Cancelling scan of {}", name);
+        }
+        cancelled = true;
+        processes.forEach(ProcessRunner::destroyTree);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return whether the deadline of the scan has passed
+     */
+    public boolean isExpired() {
+        return deadline != null && !Instant.now().isBefore(deadline);
+    }
+
+    /**
+     * @return the deadline of the scan, or null if it has none
+     */
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records how a tool invocation ended, keeping the worst outcome if the tool ran more than once.
+     */
+    public void record(String tool, ScanOutcome outcome) {
+        toolOutcomes.merge(tool, outcome, ScanOutcome::worst);
+    }
+
+    /**
+     * @return how each tool's invocations ended, by tool name
+     */
+    public Map<String, ScanOutcome> getToolOutcomes() {
+        return Collections.unmodifiableMap(toolOutcomes);
+    }
+
+    /**
+     * @return the worst outcome of the scan's tools, or {@link ScanOutcome#CANCELLED} if the scan was cancelled
+     */
+    public ScanOutcome getOutcome() {
+        ScanOutcome outcome = cancelled ? ScanOutcome.CANCELLED : ScanOutcome.COMPLETED;
+        for (ScanOutcome toolOutcome : toolOutcomes.values()) {
+            outcome = outcome.worst(toolOutcome);
+        }
+        return outcome;
+    }
+
+    void register(Process process) {
+        processes.add(process);
+        if (cancelled) {
+            ProcessRunner.destroyTree(process);
+        }
+    }
+
+    void unregister(Process process) {
+        processes.remove(process);
+    }
+
+    private static Duration minutes(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        long minutes = Long.parseLong(value.trim());
+        return minutes > 0 ? Duration.ofMinutes(minutes) : null;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + getOutcome() + " " + toolOutcomes;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Thrown when the scan of an SBOM was cut short by a timeout or cancellation, so its results would be incomplete.
+ */
+public class ScanIncompleteException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final ScanOutcome outcome;
+
+    public ScanIncompleteException(Path sbom, ScanOutcome outcome, Map<String, ScanOutcome> toolOutcomes) {
+        super("Scan of " + sbom + " " + outcome.name().toLowerCase().replace('_', ' ') + ", tools: " + toolOutcomes);
+        this.outcome = outcome;
+    }
+
+    public ScanOutcome getOutcome() {
+        return outcome;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A scratch directory of its own for a single tool invocation, so scans and SBOM generations can run at the same
+ * time in one JVM or on one host without overwriting each other's output. The directory is deleted when the
+ * workspace is closed, unless the invocation was marked as failed and {@code workspace.retain-on-failure} is set,
+ * in which case it is kept for inspection.
+ *
+ * <ul>
+ *     <li>{@code workspace.directory} - where workspaces are created (default: the system temp directory)</li>
+ *     <li>{@code workspace.retain-on-failure} - keep the workspace of failed invocations (default false)</li>
+ * </ul>
+ *
+ * <p>Tool wrappers create a workspace in {@code analyze} and release it once {@code parseAnalysis} has read the
+ * results, see {@link #release(Path, boolean)}. Workspaces still open when the JVM exits are deleted then.</p>
+ */
+public class ScanWorkspace implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanWorkspace.class);
+    private static final Map<Path, ScanWorkspace> OPEN_WORKSPACES = new ConcurrentHashMap<>();
+    private static volatile Path workspaceRoot = Paths.get(System.getProperty("java.io.tmpdir"));
+    private static volatile boolean retainOnFailure = false;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                new ArrayList<>(OPEN_WORKSPACES.values()).forEach(ScanWorkspace::close), "scan-workspace-cleanup"));
+    }
+
+    private final Path directory;
+    private volatile boolean failed;
+
+    private ScanWorkspace(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Applies the workspace settings of a properties file to every workspace created afterwards.
+     */
+    public static void configure(Properties prop) {
+        String directory = prop.getProperty("workspace.directory", "").trim();
+        workspaceRoot = directory.isEmpty() ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(directory);
+        retainOnFailure = Boolean.parseBoolean(prop.getProperty("workspace.retain-on-failure", "false").trim());
+    }
+
+    /**
+     * Creates a new, empty workspace.
+     *
+     * @param name short name of the invocation, used as prefix of the directory name (e.g. "grype")
+     * @return the open workspace
+     * @throws UncheckedIOException if the directory cannot be created
+     */
+    public static ScanWorkspace create(String name) {
+        try {
+            Files.createDirectories(workspaceRoot);
+            Path directory = Files.createTempDirectory(workspaceRoot, "pique-" + name + "-").toAbsolutePath();
+            ScanWorkspace workspace = new ScanWorkspace(directory);
+            OPEN_WORKSPACES.put(directory, workspace);
+            LOGGER.debug("Created scan workspace {}", directory);
+            return workspace;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create a scan workspace in " + workspaceRoot, e);
+        }
+    }
+
+    /**
+     * @return the open workspace containing the given file, if any
+     */
+    public static Optional<ScanWorkspace> owning(Path file) {
+        for (Path parent = file.toAbsolutePath(); parent != null; parent = parent.getParent()) {
+            ScanWorkspace workspace = OPEN_WORKSPACES.get(parent);
+            if (workspace != null) {
+                return Optional.of(workspace);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Closes the workspace containing the given file, e.g. a tool's results once they have been parsed. Does
+     * nothing for files outside of any workspace.
+     *
+     * @param file file inside the workspace
+     * @param succeeded false to mark the invocation as failed before closing
+     */
+    public static void release(Path file, boolean succeeded) {
+        if (file == null) {
+            return;
+        }
+        owning(file).ifPresent(workspace -> {
+            if (!succeeded) {
+                workspace.markFailed();
+            }
+            workspace.close();
+        });
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the path of a file inside the workspace
+     */
+    public Path resolve(String fileName) {
+        return directory.resolve(fileName);
+    }
+
+    /**
+     * Marks the invocation as failed, so the workspace is retained on close if configured.
+     */
+    public void markFailed() {
+        failed = true;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Moves a file out of the workspace to its final location, replacing any existing file there. The move is
+     * atomic where the file system supports it, so readers never see a partially written file.
+     */
+    public void publish(Path fileInWorkspace, Path target) throws IOException {
+        if (target.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+        }
+        try {
+            Files.move(fileInWorkspace, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(fileInWorkspace, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the workspace, or keeps it if the invocation failed and retain-on-failure is set.
+     */
+    @Override
+    public void close() {
+        if (OPEN_WORKSPACES.remove(directory) == null) {
+            return;
+        }
+        if (failed && retainOnFailure) {
+            LOGGER.warn("Keeping workspace of failed invocation for inspection: {}", directory);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete scan workspace {}", directory, e);
+        }
+    }
+}
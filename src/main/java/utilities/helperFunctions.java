@@ -30,11 +30,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
-import model.SbomQualityModelImport;
-import model.SbomDiagnostic;
+import model.QualityModelTemplateCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +51,7 @@ import pique.utility.PiqueProperties;
  */
 public class helperFunctions {
 	private static final Logger LOGGER = LoggerFactory.getLogger(helperFunctions.class);
+	private static final Map<String, Path> BLANK_QM_PATHS = new ConcurrentHashMap<>();
 
 	/**
 	 * This function finds all diagnostics associated with a certain toolName and returns them in a Map with the diagnostic name as the key.
@@ -61,63 +61,49 @@ public class helperFunctions {
 	 * @return All diagnostics in the model structure with tool equal to toolName
 	 */
 	public static Map<String, Diagnostic> initializeDiagnostics(String toolName, String propertiesPath) throws IOException {
-		// load the qm structure
-		Properties prop = null;
-		try {
-			prop = propertiesPath == null || propertiesPath.isEmpty() ? PiqueProperties.getProperties() : PiqueProperties.getProperties(propertiesPath);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		Path blankqmFilePath = Paths.get(prop.getProperty("blankqm.filepath"));
-
-		// Custom quality model import so that we can use SBOMDiagnostic
-		SbomQualityModelImport qmImport = new SbomQualityModelImport(blankqmFilePath);
-		QualityModel qmDescription = qmImport.importQualityModel();
-
-		Map<String, Diagnostic> diagnostics = new HashMap<>();
-
-		// for each diagnostic in the model, if it is associated with this tool,
-		// add it to the list of diagnostics
-		for (ModelNode x : qmDescription.getDiagnostics().values()) {
-			Diagnostic diag = (SbomDiagnostic) x;
-			if (diag.getToolName().equals(toolName)) {
-				diagnostics.put(diag.getName(),diag);
+		// the blank model is parsed once per run, every call gets fresh instances of the tool's diagnostics
+		Path blankqmFilePath = BLANK_QM_PATHS.computeIfAbsent(propertiesPath == null ? "" : propertiesPath, path -> {
+			try {
+				return Paths.get(getProperties(path).getProperty("blankqm.filepath"));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
+		});
+		try {
+			return QualityModelTemplateCache.shared().diagnostics(blankqmFilePath, toolName);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
+	}
 
-		return diagnostics;
+	/**
+	 * Loads the given properties file, or PIQUE's default properties file when no path is given.
+	 *
+	 * @param propertiesPath path to the properties file, may be null or empty
+	 * @return the loaded properties
+	 * @throws IOException if the properties file cannot be read
+	 */
+	public static Properties getProperties(String propertiesPath) throws IOException {
+		return propertiesPath == null || propertiesPath.isEmpty() ? PiqueProperties.getProperties() : PiqueProperties.getProperties(propertiesPath);
 	}
 
-	 /**
-	  * Taken directly from https://stackoverflow.com/questions/13008526/runtime-getruntime-execcmd-hanging
-	  * 
-	  * @param program - A string as would be passed to Runtime.getRuntime().exec(program)
-	  * @return the text output of the command. Includes input and error.
-	  * @throws IOException
-	  */
+	/**
+	 * Runs a program to completion and returns its output. Only the last {@link ProcessRunner#DEFAULT_CAPTURE_LIMIT}
+	 * characters are returned and the exit code is not reported, use {@link ProcessRunner} directly for either.
+	 *
+	 * @param program - the program and its arguments
+	 * @return the tail of the text output of the command. Includes input and error.
+	 * @throws IOException if the program cannot be started
+	 */
+	@Deprecated
 	public static String getOutputFromProgram(String[] program, Logger logger) throws IOException {
-		if(logger!=null) logger.debug("Executing: " + String.join(" ", program));
-	    Process proc = Runtime.getRuntime().exec(program);
-	    return Stream.of(proc.getErrorStream(), proc.getInputStream()).parallel().map((InputStream isForOutput) -> {
-	        StringBuilder output = new StringBuilder();
-	        try (BufferedReader br = new BufferedReader(new InputStreamReader(isForOutput))) {
-	            String line;
-	            while ((line = br.readLine()) != null) {
-	            	if(logger!=null) {
-	            		logger.debug(line);
-	            		System.out.println(line);
-	            	}
-	                output.append(line);
-	                output.append("\n");
-	            }
-	        } catch (IOException e) {
-	        	logger.error("Failed to get output of execution.");
-	            throw new RuntimeException(e);
-	        }
-	        return output;
-	    }).collect(Collectors.joining());
+		ProcessRunner runner = new ProcessRunner(program);
+		if (logger != null) {
+			runner.echoTo(logger);
+		}
+		return runner.run().getOutput();
 	}
-	
+
 	 /**
 	  * Reads a given file paths contents into a string and returns the results.
 	  * 
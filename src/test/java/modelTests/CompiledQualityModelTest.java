@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package modelTests;
+
+import evaluator.CompiledQualityModel;
+import evaluator.NumericVerifier;
+import evaluator.QualityAspectEvaluator;
+import org.junit.Test;
+import model.SbomQualityModelImport;
+import pique.evaluation.DefaultFactorEvaluator;
+import pique.evaluation.DefaultProductFactorEvaluator;
+import pique.evaluation.Evaluator;
+import pique.model.Measure;
+import pique.model.ModelNode;
+import pique.model.ProductFactor;
+import pique.model.QualityAspect;
+import pique.model.QualityModel;
+import pique.model.Tqi;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompiledQualityModelTest {
+
+    /**
+     * Measure evaluator returning a value set by the test, standing in for the utility function of a measure
+     */
+    private static class FixedEvaluator extends Evaluator {
+        private final Map<String, BigDecimal> values;
+
+        FixedEvaluator(Map<String, BigDecimal> values) {
+            this.values = values;
+        }
+
+        @Override
+        public BigDecimal evaluate(ModelNode node) {
+            return values.get(node.getName());
+        }
+    }
+
+    /**
+     * TQI over 3 quality aspects over 6 product factors, one of them shared by two aspects and one weighted
+     * negatively, over 60 measures; each node has the evaluator of its kind in the shipped model definitions
+     */
+    private static QualityModel model(Map<String, BigDecimal> measureValues) {
+        Random random = new Random(7);
+        FixedEvaluator fixed = new FixedEvaluator(measureValues);
+        ProductFactor[] factors = new ProductFactor[6];
+        for (int f = 0; f < factors.length; f++) {
+            Map<String, BigDecimal> weights = new HashMap<>();
+            factors[f] = new ProductFactor("PF" + f, "", new DefaultProductFactorEvaluator(), null, null, weights, null);
+            for (int m = 0; m < 10; m++) {
+                Measure measure = new Measure("M" + f + "." + m, "", fixed, null, null, null, null, false);
+                factors[f].setChild(measure);
+                weights.put(measure.getName(), BigDecimal.valueOf(random.nextDouble() / 10));
+            }
+        }
+        Map<String, BigDecimal> tqiWeights = new HashMap<>();
+        Tqi tqi = new Tqi("TQI", "", new DefaultFactorEvaluator(), null, null, tqiWeights, null);
+        for (int a = 0; a < 3; a++) {
+            Map<String, BigDecimal> weights = new HashMap<>();
+            QualityAspect aspect = new QualityAspect("QA" + a, "", new QualityAspectEvaluator(), null, null, weights, null);
+            for (int f = 2 * a; f <= 2 * a + 2 && f < factors.length; f++) {
+                aspect.setChild(factors[f]);
+                weights.put(factors[f].getName(), BigDecimal.valueOf(a == 1 && f == 3 ? -2.0 : 0.4));
+            }
+            tqi.setChild(aspect);
+            tqiWeights.put(aspect.getName(), BigDecimal.valueOf(1.0 / 3));
+        }
+        QualityModel model = new QualityModel();
+        model.setName("test");
+        model.setTqi(tqi);
+        return model;
+    }
+
+    private static Map<String, BigDecimal> measureValues(long seed) {
+        Random random = new Random(seed);
+        Map<String, BigDecimal> values = new HashMap<>();
+        for (int f = 0; f < 6; f++) {
+            for (int m = 0; m < 10; m++) {
+                values.put("M" + f + "." + m, BigDecimal.valueOf(random.nextDouble()));
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void TestCompiledMatchesObjectGraph() {
+        QualityModel model = model(measureValues(1));
+        CompiledQualityModel compiled = CompiledQualityModel.compile(model);
+
+        CompiledQualityModel.Comparison comparison = compiled.compare(CompiledQualityModel.DEFAULT_TOLERANCE);
+
+        assertTrue(comparison.toString(), comparison.isWithinTolerance());
+        assertEquals(model.getTqi().getValue().doubleValue(), compiled.evaluateRoot(), CompiledQualityModel.DEFAULT_TOLERANCE);
+        // the shared product factor is compiled once
+        assertEquals(1 + 3 + 6 + 60, compiled.size());
+        assertEquals(60, compiled.getLeafCount());
+        assertEquals("TQI", compiled.getName(compiled.size() - 1));
+    }
+
+    @Test
+    public void TestNegativeAspectIsClampedAtZero() {
+        Map<String, BigDecimal> values = measureValues(2);
+        QualityModel model = model(values);
+        CompiledQualityModel compiled = CompiledQualityModel.compile(model);
+
+        double[] result = compiled.evaluate();
+
+        assertEquals(0.0, result[compiled.indexOf("QA1")], 0.0);
+        assertTrue(compiled.compare(CompiledQualityModel.DEFAULT_TOLERANCE).isWithinTolerance());
+    }
+
+    @Test
+    public void TestBindToAnotherInstance() {
+        CompiledQualityModel compiled = CompiledQualityModel.compile(model(measureValues(1)));
+        QualityModel other = model(measureValues(3));
+
+        CompiledQualityModel bound = compiled.bind(other);
+
+        assertEquals(other.getTqi().getValue().doubleValue(), bound.evaluateRoot(), CompiledQualityModel.DEFAULT_TOLERANCE);
+        assertTrue(bound.compare(CompiledQualityModel.DEFAULT_TOLERANCE).isWithinTolerance());
+    }
+
+    @Test
+    public void TestVerifierSamplesConfiguredFraction() {
+        NumericVerifier none = new NumericVerifier(0.0, CompiledQualityModel.DEFAULT_TOLERANCE);
+        NumericVerifier all = new NumericVerifier(1.0, CompiledQualityModel.DEFAULT_TOLERANCE);
+        NumericVerifier tenth = new NumericVerifier(0.1, CompiledQualityModel.DEFAULT_TOLERANCE);
+
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String project = "sbom-" + i;
+            assertFalse(none.isSampled(project));
+            assertTrue(all.isSampled(project));
+            assertEquals(tenth.isSampled(project), tenth.isSampled(project));
+            sampled += tenth.isSampled(project) ? 1 : 0;
+        }
+        assertEquals(1000, sampled, 150);
+    }
+
+    @Test
+    public void TestVerifierReportsDisagreement() {
+        CompiledQualityModel compiled = CompiledQualityModel.compile(model(measureValues(1)));
+        NumericVerifier verifier = new NumericVerifier(1.0, CompiledQualityModel.DEFAULT_TOLERANCE);
+        // no difference is within a negative tolerance
+        NumericVerifier strict = new NumericVerifier(1.0, -1.0);
+
+        assertTrue(verifier.verify("sbom", compiled));
+        assertFalse(strict.verify("sbom", compiled));
+
+        assertEquals(1, verifier.getSampled());
+        assertEquals(0, verifier.getDisagreements());
+        assertEquals(1, strict.getDisagreements());
+        assertTrue(verifier.getMaxDifference() <= CompiledQualityModel.DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void TestApplyStoresCompiledValues() throws ReflectiveOperationException {
+        QualityModel model = model(measureValues(4));
+        CompiledQualityModel compiled = CompiledQualityModel.compile(model);
+
+        double[] values = compiled.apply();
+
+        assertEquals(compiled.evaluateRoot(), values[values.length - 1], 0.0);
+        // the value field is what the model export writes, getValue() would evaluate the node again
+        Field value = ModelNode.class.getDeclaredField("value");
+        value.setAccessible(true);
+        assertEquals(values[values.length - 1], ((BigDecimal) value.get(model.getTqi())).doubleValue(), 0.0);
+        for (ModelNode aspect : model.getTqi().getChildren().values()) {
+            assertEquals(aspect.getName(), values[compiled.indexOf(aspect.getName())], ((BigDecimal) value.get(aspect)).doubleValue(), 0.0);
+        }
+        assertEquals(model.getTqi().getValue().doubleValue(), values[values.length - 1], CompiledQualityModel.DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void TestUnboundModelMustBeBound() {
+        CompiledQualityModel unbound = CompiledQualityModel.compile(model(measureValues(1))).unbind();
+        QualityModel other = model(measureValues(5));
+
+        try {
+            unbound.evaluate();
+            fail("an unbound model has no leaves to read");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertEquals(other.getTqi().getValue().doubleValue(), unbound.bind(other).evaluateRoot(), CompiledQualityModel.DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void TestCompiledMatchesShippedModelDefinition() {
+        QualityModel model = new SbomQualityModelImport(Paths.get("src/test/resources/pique-sbom-model-definition-grype-trivy-pdf-TEST.json")).importQualityModel();
+        // weights as a derivation would assign them, and fixed measure values in place of the utility functions
+        Random random = new Random(11);
+        Map<String, BigDecimal> measureValues = new HashMap<>();
+        FixedEvaluator fixed = new FixedEvaluator(measureValues);
+        Map<String, ModelNode> factors = new HashMap<>();
+        model.getTqi().setWeights(new HashMap<>());
+        for (ModelNode aspect : model.getTqi().getChildren().values()) {
+            model.getTqi().getWeights().put(aspect.getName(), BigDecimal.valueOf(random.nextDouble()));
+            aspect.setWeights(new HashMap<>());
+            for (ModelNode factor : aspect.getChildren().values()) {
+                aspect.getWeights().put(factor.getName(), BigDecimal.valueOf(random.nextDouble() / 10));
+                factors.put(factor.getName(), factor);
+            }
+        }
+        int measures = 0;
+        for (ModelNode factor : factors.values()) {
+            Map<String, ModelNode> fixedMeasures = new HashMap<>();
+            factor.setWeights(new HashMap<>());
+            for (String name : factor.getChildren().keySet()) {
+                fixedMeasures.put(name, new Measure(name, "", fixed, null, null, null, null, false));
+                measureValues.put(name, BigDecimal.valueOf(random.nextDouble()));
+                factor.getWeights().put(name, BigDecimal.valueOf(random.nextDouble()));
+                measures++;
+            }
+            factor.setChildren(fixedMeasures);
+        }
+        CompiledQualityModel compiled = CompiledQualityModel.compile(model);
+
+        CompiledQualityModel.Comparison comparison = compiled.compare(CompiledQualityModel.DEFAULT_TOLERANCE);
+
+        assertTrue(comparison.toString(), comparison.isWithinTolerance());
+        assertTrue(comparison.getGraphRoot() > 0.0);
+        // TQI, aspects and product factors are all compiled, only the measures are left to the object graph
+        assertEquals(1 + model.getTqi().getChildren().size() + factors.size(), compiled.size() - compiled.getLeafCount());
+        assertEquals(42, factors.size());
+        assertEquals(measures, compiled.getLeafCount());
+    }
+}
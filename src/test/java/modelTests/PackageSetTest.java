@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package modelTests;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import model.PackageDictionary;
+import model.PackageSet;
+import model.SbomDiagnostic;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PackageSetTest {
+
+    @Test
+    public void TestPackagesAreSharedAcrossDiagnostics() {
+        PackageDictionary dictionary = new PackageDictionary();
+        PackageSet first = new PackageSet(dictionary);
+        PackageSet second = new PackageSet(dictionary);
+
+        first.addId(dictionary.id("openssl", "1.1.1"));
+        first.addId(dictionary.id("lodash", "4.17.20"));
+        first.addId(dictionary.id("openssl", "1.1.1"));
+        second.add("lodash:4.17.20");
+
+        assertEquals(2, dictionary.size());
+        assertEquals(new HashSet<>(Arrays.asList("openssl:1.1.1", "lodash:4.17.20")), first);
+        assertEquals(new HashSet<>(Arrays.asList("lodash:4.17.20")), second);
+        assertFalse(second.contains("openssl:1.1.1"));
+        assertFalse(second.contains("unknown:1.0"));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void TestCloneCopiesPackages() {
+        SbomDiagnostic diagnostic = new SbomDiagnostic("CWE-79 Grype Diagnostic", "", "grype", new HashSet<>());
+        diagnostic.updatePackages("lodash", "4.17.20");
+
+        SbomDiagnostic clone = (SbomDiagnostic) diagnostic.clone();
+        clone.updatePackages("minimist", "1.2.5");
+
+        assertEquals(1, diagnostic.getPackages().size());
+        assertEquals(2, clone.getPackages().size());
+        assertTrue(clone.getPackages().contains("lodash:4.17.20"));
+    }
+
+    @Test
+    public void TestExportedAsStrings() {
+        SbomDiagnostic diagnostic = new SbomDiagnostic("CWE-79 Grype Diagnostic", "", "grype", new HashSet<>());
+        diagnostic.updatePackages("lodash", "4.17.20");
+        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+
+        String json = gson.toJson(diagnostic);
+
+        // other exposed fields of the node are left to PIQUE
+        JsonArray packages = JsonParser.parseString(json).getAsJsonObject().getAsJsonArray("packages");
+        assertEquals(1, packages.size());
+        assertEquals("lodash:4.17.20", packages.get(0).getAsString());
+        assertEquals(diagnostic.getPackages(), gson.fromJson(json, SbomDiagnostic.class).getPackages());
+    }
+
+    @Test
+    public void TestExportDoesNotDependOnDictionaryOrder() {
+        PackageDictionary first = new PackageDictionary();
+        PackageDictionary second = new PackageDictionary();
+        Arrays.asList("zlib:1.3.1", "busybox:1.36.1", "musl:1.2.4").forEach(first::id);
+        Arrays.asList("musl:1.2.4", "zlib:1.3.1", "busybox:1.36.1").forEach(second::id);
+        PackageSet firstPackages = new PackageSet(first);
+        PackageSet secondPackages = new PackageSet(second);
+        for (String key : Arrays.asList("zlib:1.3.1", "musl:1.2.4", "busybox:1.36.1")) {
+            firstPackages.add(key);
+            secondPackages.add(key);
+        }
+        PackageSet.Adapter adapter = new PackageSet.Adapter();
+
+        assertEquals("[\"busybox:1.36.1\",\"musl:1.2.4\",\"zlib:1.3.1\"]", adapter.toJson(firstPackages));
+        assertEquals(adapter.toJson(firstPackages), adapter.toJson(secondPackages));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package modelTests;
+
+import model.QualityModelTemplateCache;
+import model.SbomDiagnostic;
+import org.junit.Test;
+import pique.model.Diagnostic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class QualityModelTemplateCacheTest {
+
+    private static final Path MODEL = Paths.get("src/test/resources/pique-sbom-model-definition-grype-trivy-pdf-TEST.json");
+
+    private static Path copyOfModel() throws IOException {
+        Path copy = Files.createTempFile("quality-model", ".json");
+        Files.copy(MODEL, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    @Test
+    public void TestModelIsParsedOnce() throws IOException {
+        QualityModelTemplateCache cache = new QualityModelTemplateCache();
+        Path model = copyOfModel();
+
+        Map<String, Diagnostic> first = cache.diagnostics(model, "grype");
+        Map<String, Diagnostic> second = cache.diagnostics(model, "grype");
+        Map<String, Diagnostic> trivy = cache.diagnostics(model, "trivy");
+
+        assertEquals(1, cache.getParses());
+        assertFalse(first.isEmpty());
+        assertEquals(first.keySet(), second.keySet());
+        assertFalse(trivy.isEmpty());
+        assertTrue(trivy.values().stream().allMatch(diagnostic -> diagnostic.getToolName().equals("trivy")));
+
+        // every call hands out nodes of its own
+        String name = first.keySet().iterator().next();
+        assertNotSame(first.get(name), second.get(name));
+        ((SbomDiagnostic) first.get(name)).updatePackages("lodash", "4.17.20");
+        assertFalse(((SbomDiagnostic) second.get(name)).getPackages().contains("lodash:4.17.20"));
+    }
+
+    @Test
+    public void TestChangedModelIsParsedAgain() throws IOException {
+        QualityModelTemplateCache cache = new QualityModelTemplateCache();
+        Path model = copyOfModel();
+        int grype = cache.diagnostics(model, "grype").size();
+
+        // touched without changes
+        Files.setLastModifiedTime(model, FileTime.fromMillis(Files.getLastModifiedTime(model).toMillis() + 2000));
+        cache.diagnostics(model, "grype");
+        assertEquals(1, cache.getParses());
+
+        String content = new String(Files.readAllBytes(model), StandardCharsets.UTF_8);
+        Files.write(model, content.replaceAll("\"toolName\" ?: ?\"grype\"", "\"toolName\":\"grype-renamed\"").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(model, FileTime.fromMillis(Files.getLastModifiedTime(model).toMillis() + 4000));
+
+        assertEquals(0, cache.diagnostics(model, "grype").size());
+        assertEquals(grype, cache.diagnostics(model, "grype-renamed").size());
+        assertEquals(2, cache.getParses());
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package modelTests;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import evaluator.SbomProject;
+import model.QualityModelTemplateCache;
+import model.SbomDiagnostic;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pique.analysis.ITool;
+import pique.analysis.Tool;
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import runnable.SbomPipeline;
+import tool.ToolRunner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SbomPipelineTest {
+
+    private static final Path MODEL = Paths.get("src/test/resources/pique-sbom-model-definition-grype-trivy-pdf-TEST.json");
+    private static final Gson EXPORT = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Reports the lines of an SBOM fixture of the form {@code tool,diagnostic,package,version,vulnerability} that
+     * belong to it, as findings on the model's diagnostics of the tool
+     */
+    private static class FixtureTool extends Tool {
+
+        FixtureTool(String name) {
+            super(name, null);
+        }
+
+        @Override
+        public Path analyze(Path sbom) {
+            return sbom;
+        }
+
+        @Override
+        public Map<String, Diagnostic> parseAnalysis(Path sbom) {
+            Map<String, Diagnostic> diagnostics = QualityModelTemplateCache.shared().diagnostics(MODEL, getName());
+            try {
+                for (String line : Files.readAllLines(sbom)) {
+                    String[] fields = line.split(",");
+                    if (!fields[0].equals(getName())) {
+                        continue;
+                    }
+                    SbomDiagnostic diagnostic = (SbomDiagnostic) diagnostics.get(fields[1]);
+                    diagnostic.setChild(new Finding(fields[4], 0, 0, 4));
+                    diagnostic.updatePackages(fields[2], fields[3]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return diagnostics;
+        }
+
+        @Override
+        public Path initialize(Path toolRoot) {
+            return toolRoot;
+        }
+    }
+
+    /**
+     * @return the exported diagnostics with findings of each measure, in name order
+     */
+    private static String export(SbomProject project) {
+        Map<String, List<String>> export = new TreeMap<>();
+        for (Map.Entry<String, ModelNode> measure : project.getQualityModel().getMeasures().entrySet()) {
+            for (ModelNode diagnostic : new TreeMap<>(measure.getValue().getChildren()).values()) {
+                if (!diagnostic.getChildren().isEmpty()) {
+                    export.computeIfAbsent(measure.getKey(), name -> new ArrayList<>())
+                            .add(diagnostic.getName() + " " + new TreeMap<>(diagnostic.getChildren()).keySet() + " " + EXPORT.toJson(diagnostic));
+                }
+            }
+        }
+        return project.getName() + " " + export;
+    }
+
+    private Evaluation evaluate(List<Path> sboms, int evaluationWorkers) {
+        List<ITool> tools = Arrays.asList(new FixtureTool("grype"), new FixtureTool("trivy"));
+        ToolRunner toolRunner = new ToolRunner(2);
+        Set<QualityModel> models = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        try (SbomPipeline<String> pipeline = new SbomPipeline<>(1, 1, evaluationWorkers, sbom -> {
+            QualityModel model = QualityModelTemplateCache.shared().instance(MODEL);
+            models.add(model);
+            SbomProject project = new SbomProject(sbom.getFileName().toString(), sbom, model);
+            project.updateDiagnosticsWithFindings(toolRunner.runEach(tools, tool -> tool.parseAnalysis(tool.analyze(sbom))));
+            return export(project);
+        })) {
+            sboms.forEach(pipeline::evaluate);
+            pipeline.awaitEvaluation();
+            assertTrue(pipeline.getEvaluationFailures().isEmpty());
+            return new Evaluation(new ArrayList<>(pipeline.getEvaluated().values()), models.size());
+        }
+    }
+
+    /**
+     * The exports of a run in SBOM order, and how many quality model instances the run used
+     */
+    private static class Evaluation {
+        private final List<String> exports;
+        private final int models;
+
+        Evaluation(List<String> exports, int models) {
+            this.exports = exports;
+            this.models = models;
+        }
+    }
+
+    @Test
+    public void TestEvaluationStartsBeforeGenerationFinishes() throws InterruptedException {
+        CountDownLatch firstEvaluated = new CountDownLatch(1);
+        try (SbomPipeline<String> pipeline = new SbomPipeline<>(1, 1, 1, sbom -> {
+            firstEvaluated.countDown();
+            return sbom.getFileName().toString();
+        })) {
+            pipeline.generateSource(Paths.get("fast"), target -> Paths.get("sboms", "fast.json"));
+            // the image target only finishes once the first SBOM has been evaluated
+            pipeline.generateImage(Paths.get("slow"), target -> {
+                try {
+                    assertTrue(firstEvaluated.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return Paths.get("sboms", "slow.json");
+            });
+            pipeline.awaitGeneration();
+            pipeline.awaitEvaluation();
+
+            assertEquals(0, pipeline.getGenerationFailures().size());
+            assertEquals(Arrays.asList("fast.json", "slow.json"), Arrays.asList(pipeline.getEvaluated().values().toArray()));
+        }
+    }
+
+    @Test
+    public void TestFailuresAreRecordedPerTarget() {
+        try (SbomPipeline<String> pipeline = new SbomPipeline<>(2, 2, 2, sbom -> {
+            if (sbom.getFileName().toString().startsWith("bad")) {
+                throw new IllegalStateException("evaluation failed");
+            }
+            return sbom.getFileName().toString();
+        })) {
+            pipeline.generateSource(Paths.get("missing"), target -> null);
+            pipeline.generateImage(Paths.get("broken"), target -> {
+                throw new IllegalStateException("pull failed");
+            });
+            pipeline.generateSource(Paths.get("good"), target -> Paths.get("good.json"));
+            pipeline.generateImage(Paths.get("bad"), target -> Paths.get("bad.json"));
+            pipeline.awaitGeneration();
+            pipeline.awaitEvaluation();
+
+            assertEquals(Arrays.asList(Paths.get("broken"), Paths.get("missing")),
+                    Arrays.asList(pipeline.getGenerationFailures().keySet().toArray()));
+            assertEquals(1, pipeline.getEvaluated().size());
+            assertEquals(1, pipeline.getEvaluationFailures().size());
+            assertEquals("evaluation failed", pipeline.getEvaluationFailures().values().iterator().next().getMessage());
+        }
+    }
+
+    @Test
+    public void TestSbomIsEvaluatedOnce() {
+        AtomicInteger evaluations = new AtomicInteger();
+        try (SbomPipeline<Integer> pipeline = new SbomPipeline<>(1, 1, 2, sbom -> evaluations.incrementAndGet())) {
+            Path sbom = Paths.get("sboms", "project.json");
+            pipeline.generateSource(Paths.get("project"), target -> sbom);
+            pipeline.awaitGeneration();
+            assertTrue(pipeline.isQueued(sbom.toAbsolutePath()));
+            pipeline.evaluate(Paths.get("sboms", ".", "project.json"));
+            pipeline.awaitEvaluation();
+
+            assertEquals(1, evaluations.get());
+            assertEquals(1, pipeline.getEvaluated().size());
+        }
+    }
+
+    @Test
+    public void TestParallelEvaluationMatchesOneWorker() throws IOException {
+        String[] packages = {"minimist", "lodash", "express", "acorn", "zlib", "openssl", "busybox", "qs"};
+        String[] diagnostics = {"CWE-79 Grype Diagnostic", "CWE-89 Trivy Diagnostic", "CWE-787 Grype Diagnostic", "CWE-79 Trivy Diagnostic"};
+        List<Path> sboms = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            List<String> lines = new ArrayList<>();
+            // every SBOM reports a different mix of packages, first seen in an order that is not sorted
+            for (int j = packages.length - 1; j >= 0; j--) {
+                if ((i + j) % 3 != 0) {
+                    String diagnostic = diagnostics[(i * j) % diagnostics.length];
+                    lines.add(diagnostic.split(" ")[1].toLowerCase() + "," + diagnostic + "," + packages[j] + "," + i + ".0,VULN-" + i + "-" + j);
+                }
+            }
+            Path sbom = temp.getRoot().toPath().resolve("sbom-" + i + ".txt");
+            Files.write(sbom, lines);
+            sboms.add(sbom);
+        }
+
+        Evaluation sequential = evaluate(sboms, 1);
+        Evaluation parallel = evaluate(sboms, 4);
+
+        assertEquals(sboms.size(), sequential.exports.size());
+        assertEquals(sequential.exports, parallel.exports);
+        // every SBOM was evaluated on a quality model instance of its own
+        assertEquals(sboms.size(), sequential.models);
+        assertEquals(sboms.size(), parallel.models);
+        for (int i = 0; i < sboms.size(); i++) {
+            String export = parallel.exports.get(i);
+            // an SBOM's export only lists its own packages, which carry its index as their version
+            assertTrue(export.startsWith("sbom-" + i + ".txt "));
+            assertTrue(export.contains(":" + i + ".0"));
+            assertFalse(export.contains(":" + (i + 1) % sboms.size() + ".0"));
+        }
+    }
+}
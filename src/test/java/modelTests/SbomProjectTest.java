@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package modelTests;
+
+import evaluator.SbomProject;
+import model.SbomDiagnostic;
+import model.SbomQualityModelImport;
+import org.junit.Test;
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SbomProjectTest {
+
+    private static final Path MODEL = Paths.get("src/test/resources/pique-sbom-model-definition-grype-trivy-pdf-TEST.json");
+
+    /**
+     * The test model with one diagnostic shared by a second measure, as name matching in the model import does for
+     * a diagnostic listed under several measures
+     */
+    private static QualityModel model() {
+        QualityModel model = new SbomQualityModelImport(MODEL).importQualityModel();
+        Map<String, ModelNode> measures = model.getMeasures();
+        ModelNode shared = measures.get("CWE-79 Measure").getChildren().get("CWE-79 Grype Diagnostic");
+        measures.get("CWE-89 Measure").setChild(shared);
+        return model;
+    }
+
+    private static Map<String, Diagnostic> toolDiagnostics(String tool, String... findings) {
+        Map<String, Diagnostic> diagnostics = new HashMap<>();
+        for (String finding : findings) {
+            String[] parts = finding.split("=");
+            SbomDiagnostic diagnostic = (SbomDiagnostic) diagnostics.computeIfAbsent(parts[0],
+                    name -> new SbomDiagnostic(name, "", tool, new HashSet<>()));
+            diagnostic.setChild(new Finding(parts[1], 0, 0, 4));
+            diagnostic.updatePackages(parts[1], "1.0");
+        }
+        return diagnostics;
+    }
+
+    /**
+     * The per-tool triple loop the diagnostic index replaced
+     */
+    private static void updateOneByOne(SbomProject project, List<Map<String, Diagnostic>> toolDiagnostics) {
+        for (Map<String, Diagnostic> diagnosticsWithFindings : toolDiagnostics) {
+            for (Diagnostic diagnostic : diagnosticsWithFindings.values()) {
+                for (ModelNode measure : project.getQualityModel().getMeasures().values()) {
+                    for (ModelNode oldDiagnostic : measure.getChildren().values()) {
+                        if (oldDiagnostic.getName().equals(diagnostic.getName())) {
+                            oldDiagnostic.setChildren(diagnostic.getChildren());
+                            ((SbomDiagnostic) oldDiagnostic).setPackages(((SbomDiagnostic) diagnostic).getPackages());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return findings and packages of every diagnostic under a measure, by measure and diagnostic name
+     */
+    private static Map<String, List<Object>> state(SbomProject project) {
+        Map<String, List<Object>> state = new TreeMap<>();
+        project.getQualityModel().getMeasures().forEach((measureName, measure) ->
+                measure.getChildren().values().forEach(diagnostic -> state.put(measureName + " / " + diagnostic.getName(),
+                        Arrays.asList(new TreeMap<>(diagnostic.getChildren()).keySet(),
+                                new ArrayList<>(new TreeSet<>(((SbomDiagnostic) diagnostic).getPackages()))))));
+        return state;
+    }
+
+    @Test
+    public void TestBulkUpdateMatchesToolByToolUpdate() {
+        List<Map<String, Diagnostic>> toolDiagnostics = Arrays.asList(
+                toolDiagnostics("grype", "CWE-79 Grype Diagnostic=lodash", "CWE-20 Grype Diagnostic=minimist",
+                        "CWE-not-in-model Grype Diagnostic=left-pad"),
+                // a later tool reporting the same diagnostic replaces the findings of the earlier one
+                toolDiagnostics("trivy", "CWE-79 Grype Diagnostic=express", "CWE-79 Trivy Diagnostic=express"));
+
+        SbomProject bulk = new SbomProject("bulk", model());
+        bulk.updateDiagnosticsWithFindings(toolDiagnostics);
+        SbomProject oneByOne = new SbomProject("one-by-one", model());
+        updateOneByOne(oneByOne, toolDiagnostics);
+
+        Map<String, List<Object>> expected = state(oneByOne);
+        assertEquals(expected, state(bulk));
+        // the shared diagnostic took the last tool's findings under both of its measures
+        assertEquals(Arrays.asList("express:1.0"), expected.get("CWE-89 Measure / CWE-79 Grype Diagnostic").get(1));
+        assertEquals(Arrays.asList("express:1.0"), expected.get("CWE-79 Measure / CWE-79 Grype Diagnostic").get(1));
+        assertFalse(expected.keySet().stream().anyMatch(key -> key.contains("not-in-model")));
+    }
+}
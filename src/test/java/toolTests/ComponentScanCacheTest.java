@@ -0,0 +1,297 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import tool.ComponentScanCache;
+import tool.FindingsReportReader;
+import tool.GrypeReportReader;
+import toolOutputObjects.RawVulnerabilityData;
+import utilities.ScanWorkspace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ComponentScanCacheTest {
+
+    /**
+     * Scanner writing a Grype report with one finding per vulnerable component it is handed, keeping the SBOMs it saw
+     */
+    private static class FakeGrype implements Function<Path, Path> {
+        private final List<JsonObject> scanned = new ArrayList<>();
+        private final Predicate<String> vulnerable;
+        private boolean failNext;
+
+        FakeGrype() {
+            this(name -> name.startsWith("vulnerable"));
+        }
+
+        FakeGrype(Predicate<String> vulnerable) {
+            this.vulnerable = vulnerable;
+        }
+
+        @Override
+        public Path apply(Path sbom) {
+            try {
+                JsonObject bom = JsonParser.parseString(new String(Files.readAllBytes(sbom), StandardCharsets.UTF_8)).getAsJsonObject();
+                scanned.add(bom);
+                StringBuilder matches = new StringBuilder();
+                for (JsonElement element : bom.getAsJsonArray("components")) {
+                    JsonObject component = element.getAsJsonObject();
+                    if (vulnerable.test(component.get("name").getAsString())) {
+                        matches.append(matches.length() == 0 ? "" : ",")
+                                .append("{\"vulnerability\":{\"id\":\"CVE-").append(component.get("name").getAsString())
+                                .append("\",\"severity\":\"High\"},\"artifact\":{\"name\":\"").append(component.get("name").getAsString())
+                                .append("\",\"version\":\"").append(component.get("version").getAsString())
+                                .append("\",\"purl\":\"").append((component.has("purl") ? component.get("purl").getAsString() : "")).append("\"}}");
+                    }
+                }
+                ScanWorkspace workspace = ScanWorkspace.create("fake-grype");
+                Path report = workspace.resolve("grype.json");
+                Files.write(report, ("{\"matches\":[" + matches + "]}").getBytes(StandardCharsets.UTF_8));
+                if (failNext) {
+                    failNext = false;
+                    workspace.markFailed();
+                }
+                return report;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static String component(String name, String version) {
+        return "{\"type\":\"library\",\"name\":\"" + name + "\",\"version\":\"" + version
+                + "\",\"purl\":\"pkg:npm/" + name + "@" + version + "\"}";
+    }
+
+    private static Path sbom(String... components) throws IOException {
+        Path sbom = Files.createTempFile("sbom", ".json");
+        String content = "{\"bomFormat\":\"CycloneDX\",\"specVersion\":\"1.5\","
+                + "\"metadata\":{\"component\":{\"type\":\"application\",\"name\":\"app\",\"version\":\"1.0\",\"purl\":\"pkg:npm/app@1.0\"}},"
+                + "\"components\":[" + String.join(",", components) + "],"
+                + "\"dependencies\":[{\"ref\":\"pkg:npm/app@1.0\"}]}";
+        Files.write(sbom, content.getBytes(StandardCharsets.UTF_8));
+        return sbom;
+    }
+
+    private static List<RawVulnerabilityData> read(Path report) throws IOException {
+        assertTrue(FindingsReportReader.isFindingsReport(report));
+        List<RawVulnerabilityData> findings = new ArrayList<>();
+        try (FindingsReportReader reader = new FindingsReportReader(report)) {
+            reader.forEachRemaining(findings::add);
+        }
+        return findings;
+    }
+
+    private static ComponentScanCache cache(Path directory, String databaseVersion) {
+        return new ComponentScanCache(directory, tool -> "0.74.0", tool -> databaseVersion);
+    }
+
+    @Test
+    public void TestOnlyNewComponentsAreScanned() throws IOException {
+        ComponentScanCache cache = cache(Files.createTempDirectory("component-cache"), "2024-05-20");
+        FakeGrype grype = new FakeGrype();
+
+        List<RawVulnerabilityData> first = read(cache.scan("grype",
+                sbom(component("vulnerable-a", "1.0"), component("clean-b", "2.0")), grype, GrypeReportReader::new));
+        List<RawVulnerabilityData> second = read(cache.scan("grype",
+                sbom(component("vulnerable-a", "1.0"), component("clean-b", "2.0"), component("vulnerable-c", "3.0")), grype, GrypeReportReader::new));
+
+        assertEquals(1, first.size());
+        assertEquals(2, grype.scanned.size());
+        JsonArray delta = grype.scanned.get(1).getAsJsonArray("components");
+        assertEquals(1, delta.size());
+        assertEquals("vulnerable-c", delta.get(0).getAsJsonObject().get("name").getAsString());
+        // the application is context for every delta, its dependency list only refers to components in the SBOM
+        assertTrue(grype.scanned.get(1).getAsJsonObject("metadata").has("component"));
+        assertEquals(0, grype.scanned.get(1).getAsJsonArray("dependencies").size());
+
+        assertEquals(2, second.size());
+        assertEquals("CVE-vulnerable-a", second.get(0).getVulnerabilityId());
+        assertEquals("pkg:npm/vulnerable-a@1.0", second.get(0).getPurl());
+        assertEquals("CVE-vulnerable-c", second.get(1).getVulnerabilityId());
+        assertEquals(3, cache.getScannedComponents());
+        assertEquals(2, cache.getCachedComponents());
+    }
+
+    @Test
+    public void TestFullyCachedSbomRunsNoScan() throws IOException {
+        Path directory = Files.createTempDirectory("component-cache");
+        FakeGrype grype = new FakeGrype();
+        cache(directory, "2024-05-20").scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new);
+
+        // a new run reads the components back from disk
+        ComponentScanCache reopened = cache(directory, "2024-05-20");
+        List<RawVulnerabilityData> findings = read(reopened.scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new));
+
+        assertEquals(1, grype.scanned.size());
+        assertEquals(1, findings.size());
+        assertEquals(1, reopened.getCachedComponents());
+        assertEquals(0, reopened.getScannedComponents());
+    }
+
+    @Test
+    public void TestNewDatabaseScansEveryComponentAgain() throws IOException {
+        Path directory = Files.createTempDirectory("component-cache");
+        FakeGrype grype = new FakeGrype();
+        cache(directory, "2024-05-20").scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new);
+        cache(directory, "2024-05-21").scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new);
+
+        assertEquals(2, grype.scanned.size());
+        assertEquals(1, grype.scanned.get(1).getAsJsonArray("components").size());
+        assertTrue(grype.scanned.get(1).getAsJsonObject("metadata").has("component"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void TestFallsBackToFullScan() throws IOException {
+        FakeGrype grype = new FakeGrype();
+        Path spdx = Files.createTempFile("sbom", ".json");
+        Files.write(spdx, "{\"spdxVersion\":\"SPDX-2.3\",\"components\":[]}".getBytes(StandardCharsets.UTF_8));
+
+        Path report = cache(Files.createTempDirectory("component-cache"), "2024-05-20").scan("grype", spdx, grype, GrypeReportReader::new);
+        assertFalse(FindingsReportReader.isFindingsReport(report));
+
+        // without a pinned database every SBOM is scanned in full
+        ComponentScanCache unpinned = cache(Files.createTempDirectory("component-cache"), null);
+        unpinned.scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new);
+        unpinned.scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new);
+        assertEquals(3, grype.scanned.size());
+        assertEquals(2, unpinned.getFullScans());
+    }
+
+    @Test
+    public void TestComponentsWithoutPurlAreScannedWithEveryDelta() throws IOException {
+        ComponentScanCache cache = cache(Files.createTempDirectory("component-cache"), "2024-05-20");
+        FakeGrype grype = new FakeGrype();
+        String withoutPurl = "{\"type\":\"library\",\"name\":\"vulnerable-x\",\"version\":\"1\"}";
+
+        List<RawVulnerabilityData> first = read(cache.scan("grype", sbom(component("vulnerable-a", "1.0"), withoutPurl), grype, GrypeReportReader::new));
+        List<RawVulnerabilityData> second = read(cache.scan("grype", sbom(component("vulnerable-a", "1.0"), withoutPurl), grype, GrypeReportReader::new));
+
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+        // the second delta holds the component without a purl alone, vulnerable-a comes from the cache
+        assertEquals(2, grype.scanned.size());
+        JsonArray delta = grype.scanned.get(1).getAsJsonArray("components");
+        assertEquals(1, delta.size());
+        assertEquals("vulnerable-x", delta.get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals(0, cache.getFullScans());
+    }
+
+    @Test
+    public void TestImageSbomKeepsOperatingSystemContext() throws IOException {
+        Path image = Paths.get("src/test/resources/benchmark/sbom-trivy-cdx-image.txt.json");
+        ComponentScanCache cache = cache(Files.createTempDirectory("component-cache"), "2024-05-20");
+        FakeGrype grype = new FakeGrype(name -> name.equals("alpine") || name.equals("busybox") || name.equals("zlib"));
+
+        List<RawVulnerabilityData> first = read(cache.scan("grype", image, grype, GrypeReportReader::new));
+
+        // every package plus the operating system, which has no purl
+        assertEquals(16, grype.scanned.get(0).getAsJsonArray("components").size());
+        assertEquals(3, first.size());
+        assertEquals(0, cache.getFullScans());
+
+        // the next build of the image upgrades zlib
+        String content = new String(Files.readAllBytes(image), StandardCharsets.UTF_8).replace("zlib@1.3.1-r0", "zlib@1.3.1-r1")
+                .replace("\"version\": \"1.3.1-r0\"", "\"version\": \"1.3.1-r1\"");
+        Path upgraded = Files.createTempFile("sbom", ".json");
+        Files.write(upgraded, content.getBytes(StandardCharsets.UTF_8));
+        List<RawVulnerabilityData> second = read(cache.scan("grype", upgraded, grype, GrypeReportReader::new));
+
+        JsonObject delta = grype.scanned.get(1);
+        List<String> names = new ArrayList<>();
+        delta.getAsJsonArray("components").forEach(component -> names.add(component.getAsJsonObject().get("name").getAsString()));
+        assertEquals(Arrays.asList("alpine", "zlib"), names);
+        assertEquals("alpine:3.19", delta.getAsJsonObject("metadata").getAsJsonObject("component").get("name").getAsString());
+        // the operating system still lists the packages of the delta as its own
+        JsonObject os = delta.getAsJsonArray("dependencies").get(0).getAsJsonObject();
+        assertEquals(delta.getAsJsonArray("components").get(0).getAsJsonObject().get("bom-ref").getAsString(), os.get("ref").getAsString());
+        assertEquals(1, os.getAsJsonArray("dependsOn").size());
+        assertTrue(os.getAsJsonArray("dependsOn").get(0).getAsString().contains("zlib@1.3.1-r1"));
+
+        // busybox from the cache, the operating system and zlib from the delta
+        assertEquals(3, second.size());
+        assertEquals(14, cache.getCachedComponents());
+        assertEquals(15 + 1, cache.getScannedComponents());
+    }
+
+    @Test
+    public void TestFailedDeltaScansInFull() throws IOException {
+        ComponentScanCache cache = cache(Files.createTempDirectory("component-cache"), "2024-05-20");
+        FakeGrype grype = new FakeGrype();
+        cache.scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new);
+
+        grype.failNext = true;
+        Path report = cache.scan("grype", sbom(component("vulnerable-a", "1.0"), component("vulnerable-b", "2.0")), grype, GrypeReportReader::new);
+
+        // the cached component's findings are not lost with the failed delta
+        assertFalse(FindingsReportReader.isFindingsReport(report));
+        assertEquals(3, grype.scanned.size());
+        assertEquals(2, grype.scanned.get(2).getAsJsonArray("components").size());
+        List<RawVulnerabilityData> findings = new ArrayList<>();
+        try (GrypeReportReader reader = new GrypeReportReader(report)) {
+            reader.forEachRemaining(findings::add);
+        }
+        assertEquals(2, findings.size());
+        assertEquals(1, cache.getFullScans());
+    }
+
+    @Test
+    public void TestToolVersionIsReadOncePerRun() throws IOException {
+        AtomicInteger versionReads = new AtomicInteger();
+        ComponentScanCache cache = new ComponentScanCache(Files.createTempDirectory("component-cache"),
+                tool -> versionReads.incrementAndGet() > 0 ? "0.74.0" : null, tool -> "2024-05-20");
+        FakeGrype grype = new FakeGrype();
+
+        for (int i = 0; i < 3; i++) {
+            cache.scan("grype", sbom(component("vulnerable-a", "1.0")), grype, GrypeReportReader::new);
+        }
+
+        assertEquals(1, versionReads.get());
+        assertEquals(1, grype.scanned.size());
+    }
+}
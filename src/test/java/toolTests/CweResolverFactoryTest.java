@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import cweResolution.CweResolverFactory;
+import cweResolution.ICweResolver;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CweResolverFactoryTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void closeChains() {
+        CweResolverFactory.closeAll();
+    }
+
+    /**
+     * @return a properties file keeping the CWE cache in the temporary folder
+     */
+    private String properties(String name) throws IOException {
+        Path cacheFile = temp.getRoot().toPath().resolve(name + ".tsv");
+        Path properties = temp.getRoot().toPath().resolve(name + ".properties");
+        Files.write(properties, Collections.singletonList("cwe-cache.path=" + cacheFile.toString().replace('\\', '/')));
+        return properties.toString();
+    }
+
+    @Test
+    public void TestChainIsShared() throws IOException {
+        String properties = properties("shared");
+
+        assertSame(CweResolverFactory.fromProperties(null, properties), CweResolverFactory.fromProperties(null, properties));
+    }
+
+    @Test
+    public void TestChainIsBuiltAnewAfterClosing() throws IOException {
+        String properties = properties("run");
+
+        ICweResolver firstRun = CweResolverFactory.fromProperties(null, properties);
+        CweResolverFactory.closeAll();
+        ICweResolver secondRun = CweResolverFactory.fromProperties(null, properties);
+
+        assertNotSame(firstRun, secondRun);
+        assertSame(secondRun, CweResolverFactory.fromProperties(null, properties));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import cweResolution.CweSnapshotBuilder;
+import cweResolution.SnapshotCweResolver;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class CweSnapshotTest {
+
+    private static final String NVD_11_FEED = "{\"CVE_data_type\":\"CVE\",\"CVE_Items\":["
+            + "{\"cve\":{\"CVE_data_meta\":{\"ID\":\"CVE-2021-0001\"},\"problemtype\":{\"problemtype_data\":"
+            + "[{\"description\":[{\"lang\":\"en\",\"value\":\"CWE-79\"},{\"lang\":\"en\",\"value\":\"CWE-89\"}]}]}}},"
+            + "{\"cve\":{\"CVE_data_meta\":{\"ID\":\"CVE-2021-0002\"},\"problemtype\":{\"problemtype_data\":"
+            + "[{\"description\":[]}]}}}]}";
+
+    private static final String NVD_20_FEED = "{\"format\":\"NVD_CVE\",\"vulnerabilities\":["
+            + "{\"cve\":{\"id\":\"CVE-2023-0003\",\"weaknesses\":["
+            + "{\"source\":\"nvd@nist.gov\",\"type\":\"Primary\",\"description\":[{\"lang\":\"en\",\"value\":\"CWE-787\"}]},"
+            + "{\"source\":\"cna@example.com\",\"type\":\"Secondary\",\"description\":[{\"lang\":\"en\",\"value\":\"CWE-787\"}]}]}}]}";
+
+    private static final String GHSA_ADVISORY = "{\"id\":\"GHSA-abcd-efgh-ijkl\",\"aliases\":[\"CVE-2023-0003\"],"
+            + "\"database_specific\":{\"cwe_ids\":[\"CWE-400\"],\"severity\":\"HIGH\"}}";
+
+    @Test
+    public void TestImportedFeedsResolve() throws IOException {
+        Path dir = Files.createTempDirectory("cwe-snapshot");
+        Path nvd11 = dir.resolve("nvdcve-1.1-2021.json");
+        Files.write(nvd11, NVD_11_FEED.getBytes(StandardCharsets.UTF_8));
+        Path nvd20 = dir.resolve("nvdcve-2.0-2023.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(nvd20))) {
+            out.write(NVD_20_FEED.getBytes(StandardCharsets.UTF_8));
+        }
+        Path advisories = Files.createDirectories(dir.resolve("advisories/github-reviewed/2023/01/GHSA-abcd-efgh-ijkl"));
+        Files.write(advisories.resolve("GHSA-abcd-efgh-ijkl.json"), GHSA_ADVISORY.getBytes(StandardCharsets.UTF_8));
+
+        CweSnapshotBuilder builder = new CweSnapshotBuilder();
+        assertEquals(2, builder.addNvdFeed(nvd11));
+        assertEquals(1, builder.addNvdFeed(nvd20));
+        assertEquals(1, builder.addGithubAdvisories(dir.resolve("advisories")));
+        Path index = dir.resolve("cwe-snapshot.idx");
+        builder.write(index);
+
+        SnapshotCweResolver resolver = new SnapshotCweResolver(index);
+        assertEquals(4, resolver.size());
+        assertEquals(Arrays.asList("CWE-79", "CWE-89"), resolver.resolve("CVE-2021-0001"));
+        assertEquals(Collections.emptyList(), resolver.resolve("CVE-2021-0002"));
+        assertEquals(Collections.singletonList("CWE-787"), resolver.resolve("CVE-2023-0003"));
+        assertEquals(Collections.singletonList("CWE-400"), resolver.resolve("GHSA-abcd-efgh-ijkl"));
+        assertEquals(Collections.emptyList(), resolver.resolve("CVE-1999-9999"));
+    }
+
+    @Test
+    public void TestLookupAcrossLargeIndex() throws IOException {
+        CweSnapshotBuilder builder = new CweSnapshotBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.put("CVE-2020-" + i, Collections.singletonList("CWE-" + (i % 1000)));
+        }
+        Path index = Files.createTempDirectory("cwe-snapshot").resolve("cwe-snapshot.idx");
+        builder.write(index);
+
+        SnapshotCweResolver resolver = new SnapshotCweResolver(index);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(Collections.singletonList("CWE-" + (i % 1000)), resolver.resolve("CVE-2020-" + i));
+        }
+        assertEquals(Collections.emptyList(), resolver.resolve("CVE-2020-"));
+        assertEquals(Collections.emptyList(), resolver.resolve("CVE-2020-50000"));
+        assertEquals(Collections.emptyList(), resolver.resolve("A"));
+        assertEquals(Collections.emptyList(), resolver.resolve("ZZZ"));
+    }
+
+    @Test
+    public void TestEmptySnapshot() throws IOException {
+        Path index = Files.createTempDirectory("cwe-snapshot").resolve("cwe-snapshot.idx");
+        new CweSnapshotBuilder().write(index);
+        assertEquals(Collections.emptyList(), new SnapshotCweResolver(index).resolve("CVE-2021-0001"));
+    }
+}
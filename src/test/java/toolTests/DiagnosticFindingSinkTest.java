@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import cweResolution.ICweResolver;
+import model.AggregatedFinding;
+import model.SbomDiagnostic;
+import org.junit.Test;
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import pique.model.ModelNode;
+import tool.DiagnosticFindingSink;
+import tool.FindingMode;
+import tool.ToolOutputProcessor;
+import tool.VulnerabilityService;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DiagnosticFindingSinkTest {
+    private static final String TOOL_NAME = " Grype Diagnostic";
+
+    /**
+     * Stand-in for the resolver chain with a fixed CWE mapping
+     */
+    private static class FixedResolver implements ICweResolver {
+        @Override
+        public List<String> resolve(String vulnId) {
+            switch (Integer.parseInt(vulnId.substring(vulnId.lastIndexOf('-') + 1)) % 4) {
+                case 0: return Collections.singletonList("CWE-79");
+                case 1: return Arrays.asList("CWE-79", "CWE-89");
+                case 2: return Collections.singletonList("CWE-1");
+                default: return Collections.emptyList();
+            }
+        }
+    }
+
+    @Test
+    public void TestStreamingMatchesBatchProcessing() {
+        List<RawVulnerabilityData> findings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            findings.add(new RawVulnerabilityData("CVE-2021-" + (1000 + i % 300), "High", "package-" + (i % 17), "1.0." + (i % 3)));
+        }
+        VulnerabilityService service = new VulnerabilityService(new FixedResolver(), TOOL_NAME);
+
+        Map<String, Diagnostic> batchDiagnostics = newDiagnostics();
+        new ToolOutputProcessor(service).addDiagnostics(service.resolveVulnerabilityData(findings), batchDiagnostics);
+
+        Map<String, Diagnostic> streamedDiagnostics = newDiagnostics();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (DiagnosticFindingSink sink = new DiagnosticFindingSink(service, streamedDiagnostics, 7, executor)) {
+            findings.forEach(sink::accept);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (String name : batchDiagnostics.keySet()) {
+            SbomDiagnostic expected = (SbomDiagnostic) batchDiagnostics.get(name);
+            SbomDiagnostic actual = (SbomDiagnostic) streamedDiagnostics.get(name);
+            assertEquals(name, expected.getChildren().keySet(), actual.getChildren().keySet());
+            assertEquals(name, expected.getPackages(), actual.getPackages());
+        }
+        assertEquals(1250, streamedDiagnostics.values().stream().mapToInt(diagnostic -> diagnostic.getChildren().size()).sum());
+    }
+
+    @Test
+    public void TestAggregatedFindingsMatchIndividualFindings() {
+        List<RawVulnerabilityData> findings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            findings.add(new RawVulnerabilityData("CVE-2021-" + (1000 + i % 300), i % 2 == 0 ? "High" : "Low", "package-" + (i % 17), "1.0." + (i % 3)));
+        }
+        VulnerabilityService service = new VulnerabilityService(new FixedResolver(), TOOL_NAME);
+
+        Map<String, Diagnostic> individualDiagnostics = newDiagnostics();
+        new ToolOutputProcessor(service).addDiagnostics(service.resolveVulnerabilityData(findings), individualDiagnostics);
+
+        Map<String, Diagnostic> aggregatedDiagnostics = newDiagnostics();
+        try (DiagnosticFindingSink sink = new DiagnosticFindingSink(service, aggregatedDiagnostics, 7, Runnable::run, FindingMode.AGGREGATE)) {
+            findings.forEach(sink::accept);
+        }
+
+        for (String name : individualDiagnostics.keySet()) {
+            SbomDiagnostic expected = (SbomDiagnostic) individualDiagnostics.get(name);
+            SbomDiagnostic actual = (SbomDiagnostic) aggregatedDiagnostics.get(name);
+            assertEquals(name, expected.getPackages(), actual.getPackages());
+            // one finding per severity, carrying the number and total severity of the individual findings
+            assertEquals(name, expected.getChildren().values().stream().map(finding -> ((Finding) finding).getSeverity()).distinct().count(),
+                    actual.getChildren().size());
+            assertEquals(name, expected.getChildren().size(),
+                    actual.getChildren().values().stream().mapToInt(finding -> ((AggregatedFinding) finding).getCount()).sum());
+            assertEquals(name, expected.getChildren().values().stream().mapToInt(finding -> ((Finding) finding).getSeverity()).sum(),
+                    actual.getChildren().values().stream().mapToInt(finding -> ((AggregatedFinding) finding).getCount() * ((Finding) finding).getSeverity()).sum());
+            assertEquals(name, 0, expected.getValue().compareTo(actual.getValue()));
+            assertEquals(name, 0, sum(expected.getChildren().values()).compareTo(sum(actual.getChildren().values())));
+            // evaluating again does not compound the count
+            assertEquals(name, 0, sum(actual.getChildren().values()).compareTo(sum(actual.getChildren().values())));
+        }
+        assertTrue(aggregatedDiagnostics.get("CWE-other" + TOOL_NAME).getChildren().size() > 0);
+    }
+
+    private static BigDecimal sum(Collection<ModelNode> findings) {
+        return findings.stream().map(ModelNode::getValue).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static Map<String, Diagnostic> newDiagnostics() {
+        Map<String, Diagnostic> diagnostics = new HashMap<>();
+        for (String cwe : Arrays.asList("CWE-79", "CWE-89", "CWE-other", "CWE-unknown")) {
+            diagnostics.put(cwe + TOOL_NAME, new SbomDiagnostic(cwe + TOOL_NAME, "", "grype", new HashSet<>()));
+        }
+        return diagnostics;
+    }
+}
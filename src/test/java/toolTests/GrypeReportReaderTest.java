@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import org.junit.Test;
+import tool.GrypeReportReader;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class GrypeReportReaderTest {
+
+    private static final String REPORT = "{\"matches\":["
+            + "{\"vulnerability\":{\"id\":\"CVE-2021-23337\",\"dataSource\":\"https://nvd.nist.gov\",\"severity\":\"High\","
+            + "\"cvss\":[{\"metrics\":{\"baseScore\":7.2}}]},"
+            + "\"matchDetails\":[{\"type\":\"exact-direct-match\",\"found\":{\"versionConstraint\":\"< 4.17.21\"}}],"
+            + "\"artifact\":{\"name\":\"lodash\",\"version\":\"4.17.20\",\"purl\":\"pkg:npm/lodash@4.17.20\",\"locations\":[{\"path\":\"/package-lock.json\"}]}},"
+            + "{\"artifact\":{\"name\":\"minimist\",\"version\":\"1.2.5\"},"
+            + "\"vulnerability\":{\"severity\":\"Critical\",\"id\":\"GHSA-xvch-5gv4-984h\"},"
+            + "\"relatedVulnerabilities\":[{\"id\":\"CVE-2021-44906\",\"namespace\":\"nvd:cpe\"}]},"
+            + "{\"matchDetails\":[],\"artifact\":{\"name\":\"no-vulnerability\",\"version\":\"1.0.0\"}}"
+            + "],\"source\":{\"type\":\"sbom\"},\"descriptor\":{\"name\":\"grype\",\"version\":\"0.74.0\"}}";
+
+    @Test
+    public void TestReadsMatchesInOrder() throws IOException {
+        List<RawVulnerabilityData> matches = readAll(REPORT);
+
+        assertEquals(2, matches.size());
+        assertEquals("CVE-2021-23337", matches.get(0).getVulnerabilityId());
+        assertEquals("High", matches.get(0).getSeverity());
+        assertEquals("lodash", matches.get(0).getPackageName());
+        assertEquals("4.17.20", matches.get(0).getPackageVersion());
+        assertEquals("pkg:npm/lodash@4.17.20", matches.get(0).getPurl());
+        assertEquals("", matches.get(1).getPurl());
+        assertEquals("GHSA-xvch-5gv4-984h", matches.get(1).getVulnerabilityId());
+        assertEquals("Critical", matches.get(1).getSeverity());
+        assertEquals("minimist", matches.get(1).getPackageName());
+        assertEquals(Collections.emptyList(), matches.get(0).getAliases());
+        assertEquals(Collections.singletonList("CVE-2021-44906"), matches.get(1).getAliases());
+    }
+
+    @Test
+    public void TestMatchesAfterOtherMembers() throws IOException {
+        List<RawVulnerabilityData> matches = readAll("{\"source\":{\"type\":\"sbom\"},\"matches\":null,"
+                + "\"matches\":[{\"vulnerability\":{\"id\":\"CVE-2022-0001\"}}]}");
+
+        assertEquals(1, matches.size());
+        assertEquals("", matches.get(0).getSeverity());
+        assertEquals("", matches.get(0).getPackageName());
+    }
+
+    @Test
+    public void TestReportWithoutMatches() throws IOException {
+        assertEquals(0, readAll("{\"matches\":[],\"source\":{}}").size());
+        assertEquals(0, readAll("{\"source\":{}}").size());
+    }
+
+    @Test
+    public void TestMalformedReport() throws IOException {
+        try (GrypeReportReader reader = new GrypeReportReader(new StringReader("{\"matches\":[{\"vulnerability\":"))) {
+            reader.hasNext();
+            fail("expected a truncated report to be rejected");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+    }
+
+    private static List<RawVulnerabilityData> readAll(String report) throws IOException {
+        List<RawVulnerabilityData> matches = new ArrayList<>();
+        try (GrypeReportReader reader = new GrypeReportReader(new StringReader(report))) {
+            reader.forEachRemaining(matches::add);
+            assertFalse(reader.hasNext());
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import cweResolution.CweLookupException;
+import cweResolution.ICweResolver;
+import cweResolution.MemoizingCweResolver;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MemoizingCweResolverTest {
+
+    /**
+     * Slow stand-in for the resolver chain that counts the lookups reaching it
+     */
+    private static class SlowResolver implements ICweResolver {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public List<String> resolve(String vulnId) {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (vulnId.equals("CVE-0000-0000")) {
+                throw new CweLookupException(vulnId, new IllegalStateException("mirror unavailable"));
+            }
+            return Collections.singletonList("CWE-79");
+        }
+    }
+
+    @Test
+    public void TestConcurrentRequestsShareOneLookup() throws Exception {
+        SlowResolver source = new SlowResolver();
+        MemoizingCweResolver resolver = new MemoizingCweResolver(source);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] requests = new Future<?>[8];
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = pool.submit(() -> resolver.resolve("CVE-2021-0001"));
+            }
+            Thread.sleep(100);
+            source.release.countDown();
+            for (Future<?> request : requests) {
+                assertEquals(Collections.singletonList("CWE-79"), request.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, source.calls.get());
+        assertEquals(1, resolver.getMisses());
+        assertEquals(7, resolver.getHits());
+    }
+
+    @Test
+    public void TestBulkOnlyResolvesNewIds() {
+        SlowResolver source = new SlowResolver();
+        source.release.countDown();
+        MemoizingCweResolver resolver = new MemoizingCweResolver(source);
+
+        resolver.resolve("CVE-2021-0001");
+        Map<String, List<String>> resolved = resolver.resolveAll(Arrays.asList("CVE-2021-0001", "CVE-2021-0002", "CVE-2021-0002"));
+
+        assertEquals(2, resolved.size());
+        assertEquals(2, source.calls.get());
+        assertEquals(1, resolver.getHits());
+        assertEquals(2, resolver.getMisses());
+    }
+
+    @Test
+    public void TestFailuresAreRetried() {
+        SlowResolver source = new SlowResolver();
+        source.release.countDown();
+        MemoizingCweResolver resolver = new MemoizingCweResolver(source);
+
+        try {
+            resolver.resolve("CVE-0000-0000");
+            fail("expected the lookup to fail");
+        } catch (CweLookupException e) {
+            assertTrue(e.getMessage().contains("CVE-0000-0000"));
+        }
+        assertTrue(resolver.resolveAll(Collections.singletonList("CVE-0000-0000")).isEmpty());
+        assertEquals(2, source.calls.get());
+        assertEquals(0, resolver.size());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import cweResolution.CweResolutionMode;
+import cweResolution.ICweResolver;
+import org.junit.Test;
+import tool.VulnerabilityService;
+import toolOutputObjects.RawVulnerabilityData;
+import toolOutputObjects.RelevantVulnerabilityData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PayloadCweResolutionTest {
+
+    /**
+     * Stand-in for the resolver chain that records the ids it is asked for
+     */
+    private static class RecordingResolver implements ICweResolver {
+        private final List<String> requested = new ArrayList<>();
+
+        @Override
+        public synchronized List<String> resolve(String vulnId) {
+            requested.add(vulnId);
+            return Collections.singletonList("CWE-20");
+        }
+    }
+
+    private static final List<RawVulnerabilityData> FINDINGS = Arrays.asList(
+            new RawVulnerabilityData("CVE-2022-0778", "HIGH", "libssl1.1", "1.1.1l-r0",
+                    Collections.singletonList("CWE-835"), Collections.emptyList()),
+            new RawVulnerabilityData("GHSA-xvch-5gv4-984h", "Critical", "minimist", "1.2.5",
+                    Collections.emptyList(), Arrays.asList("GHSA-vh95-rmgr-6w4m", "CVE-2021-44906")),
+            new RawVulnerabilityData("CVE-2021-23337", "High", "lodash", "4.17.20"));
+
+    @Test
+    public void TestDatabaseModeLooksUpEveryFinding() {
+        RecordingResolver resolver = new RecordingResolver();
+        List<RelevantVulnerabilityData> data = new VulnerabilityService(resolver, " Trivy Diagnostic").resolveVulnerabilityData(FINDINGS);
+
+        assertEquals(Arrays.asList("CVE-2022-0778", "GHSA-xvch-5gv4-984h", "CVE-2021-23337"), resolver.requested);
+        assertEquals(Collections.singletonList("CWE-20"), data.get(0).getCwe());
+    }
+
+    @Test
+    public void TestPayloadFirstModeUsesToolData() {
+        RecordingResolver resolver = new RecordingResolver();
+        List<RelevantVulnerabilityData> data = new VulnerabilityService(resolver, " Trivy Diagnostic", CweResolutionMode.PAYLOAD_FIRST)
+                .resolveVulnerabilityData(FINDINGS);
+
+        assertEquals(Arrays.asList("CVE-2021-44906", "CVE-2021-23337"), resolver.requested);
+        assertEquals(Collections.singletonList("CWE-835"), data.get(0).getCwe());
+        assertEquals(Collections.singletonList("CWE-20"), data.get(1).getCwe());
+        assertEquals(Collections.singletonList("CWE-20"), data.get(2).getCwe());
+    }
+}
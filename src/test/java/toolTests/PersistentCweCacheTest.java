@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import cweResolution.CweLookupException;
+import cweResolution.ICweResolver;
+import cweResolution.PersistentCweCache;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistentCweCacheTest {
+
+    /**
+     * Stand-in for the NVD mirror that counts how often it is queried
+     */
+    private static class CountingResolver implements ICweResolver {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public List<String> resolve(String vulnId) {
+            calls.incrementAndGet();
+            if (vulnId.equals("CVE-0000-0000")) {
+                throw new CweLookupException(vulnId, new IllegalStateException("mirror unavailable"));
+            }
+            if (vulnId.equals("CVE-2021-0002")) {
+                return Collections.emptyList();
+            }
+            return Arrays.asList("CWE-79", "CWE-89");
+        }
+    }
+
+    @Test
+    public void TestEntriesSurviveReopen() throws IOException {
+        Path cacheFile = Files.createTempDirectory("cwe-cache").resolve("cwe-cache.tsv");
+        CountingResolver source = new CountingResolver();
+
+        PersistentCweCache firstRun = new PersistentCweCache(source, cacheFile, "v1", Duration.ofDays(1));
+        assertEquals(Arrays.asList("CWE-79", "CWE-89"), firstRun.resolve("CVE-2021-0001"));
+        assertEquals(Collections.emptyList(), firstRun.resolve("CVE-2021-0002"));
+        firstRun.resolve("CVE-2021-0001");
+        firstRun.close();
+        assertEquals(2, source.calls.get());
+
+        PersistentCweCache secondRun = new PersistentCweCache(source, cacheFile, "v1", Duration.ofDays(1));
+        assertEquals(Arrays.asList("CWE-79", "CWE-89"), secondRun.resolve("CVE-2021-0001"));
+        assertEquals(Collections.emptyList(), secondRun.resolve("CVE-2021-0002"));
+        secondRun.close();
+        assertEquals(2, source.calls.get());
+    }
+
+    @Test
+    public void TestSourceVersionChangeInvalidatesCache() throws IOException {
+        Path cacheFile = Files.createTempDirectory("cwe-cache").resolve("cwe-cache.tsv");
+        CountingResolver source = new CountingResolver();
+
+        PersistentCweCache firstRun = new PersistentCweCache(source, cacheFile, "2024-01-01", Duration.ZERO);
+        firstRun.resolve("CVE-2021-0001");
+        firstRun.close();
+
+        PersistentCweCache secondRun = new PersistentCweCache(source, cacheFile, "2024-02-01", Duration.ZERO);
+        assertEquals(0, secondRun.size());
+        secondRun.resolve("CVE-2021-0001");
+        secondRun.close();
+        assertEquals(2, source.calls.get());
+        assertTrue(Files.readAllLines(cacheFile).get(0).endsWith("source=2024-02-01"));
+    }
+
+    @Test
+    public void TestFailedLookupsAreNotCached() throws IOException {
+        Path cacheFile = Files.createTempDirectory("cwe-cache").resolve("cwe-cache.tsv");
+        CountingResolver source = new CountingResolver();
+        PersistentCweCache cache = new PersistentCweCache(source, cacheFile, "v1", Duration.ZERO);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.resolve("CVE-0000-0000");
+                fail();
+            } catch (CweLookupException e) {
+                // expected, the failure must reach the caller every time
+            }
+        }
+        cache.close();
+        assertEquals(2, source.calls.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void TestBulkLookupOnlyFetchesMisses() throws IOException {
+        Path cacheFile = Files.createTempDirectory("cwe-cache").resolve("cwe-cache.tsv");
+        CountingResolver source = new CountingResolver();
+        PersistentCweCache cache = new PersistentCweCache(source, cacheFile, "v1", Duration.ZERO);
+        cache.resolve("CVE-2021-0001");
+
+        Map<String, List<String>> resolved = cache.resolveAll(Arrays.asList(
+                "CVE-2021-0001", "CVE-2021-0002", "CVE-2021-0003", "CVE-2021-0002", "CVE-0000-0000"));
+        cache.close();
+
+        // one call for the warm-up, then one per distinct miss; the failed id is left out of the result
+        assertEquals(4, source.calls.get());
+        assertEquals(3, resolved.size());
+        assertEquals(Collections.emptyList(), resolved.get("CVE-2021-0002"));
+        assertTrue(!resolved.containsKey("CVE-0000-0000"));
+    }
+}
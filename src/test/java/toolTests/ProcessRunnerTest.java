@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import org.junit.Test;
+import utilities.ProcessResult;
+import utilities.ProcessRunner;
+import utilities.ScanContext;
+import utilities.ScanOutcome;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessRunnerTest {
+
+    @Test
+    public void TestExitCodeAndOutputOfBothStreams() throws IOException {
+        ProcessResult result = new ProcessRunner("sh", "-c", "echo out; echo err 1>&2; exit 3").run();
+
+        assertEquals(3, result.getExitCode());
+        assertFalse(result.isSuccess());
+        assertFalse(result.isTruncated());
+        assertTrue(result.getOutput().contains("out\n"));
+        assertTrue(result.getOutput().contains("err\n"));
+    }
+
+    @Test
+    public void TestOnlyTheTailIsCaptured() throws IOException {
+        // far more output than the pipe buffer, so the run only completes if both streams are drained
+        ProcessResult result = new ProcessRunner("sh", "-c", "i=0; while [ $i -lt 20000 ]; do echo line$i; echo noise$i 1>&2; i=$((i+1)); done")
+                .captureLimit(100)
+                .run();
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.isTruncated());
+        assertTrue(result.getOutput().length() <= 100);
+        assertTrue(result.getOutput().endsWith("19999\n"));
+        // the partial first line is dropped
+        assertTrue(result.getOutput().startsWith("line") || result.getOutput().startsWith("noise"));
+    }
+
+    @Test
+    public void TestLinesAreStreamedToListener() throws IOException {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        ProcessResult result = new ProcessRunner("sh", "-c", "echo one; echo two")
+                .captureLimit(0)
+                .onLine(lines::add)
+                .run();
+
+        assertTrue(result.isSuccess());
+        assertEquals("", result.getOutput());
+        assertEquals(2, lines.size());
+        assertEquals("one", lines.get(0));
+        assertEquals("two", lines.get(1));
+    }
+
+    @Test
+    public void TestEnvironmentIsPassed() throws IOException {
+        ProcessResult result = new ProcessRunner("sh", "-c", "echo $PIQUE_TEST_VALUE")
+                .environment("PIQUE_TEST_VALUE", "set")
+                .run();
+
+        assertEquals("set\n", result.getOutput());
+    }
+
+    @Test(expected = IOException.class)
+    public void TestMissingProgramFailsToStart() throws IOException {
+        new ProcessRunner("pique-no-such-program").run();
+    }
+
+    @Test
+    public void TestTimeoutKillsProcessTree() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        // the shell reports the pid of a child that would outlive it, then waits for it
+        ProcessResult result = new ProcessRunner("sh", "-c", "sleep 60 & echo $!; wait")
+                .onLine(lines::add)
+                .timeout(Duration.ofMillis(500))
+                .run();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(ScanOutcome.TIMED_OUT, result.getOutcome());
+        assertFalse(result.isSuccess());
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 10_000);
+        long childPid = Long.parseLong(lines.get(0).trim());
+        // the child may take a moment to be reaped
+        for (int i = 0; i < 50 && ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false); i++) {
+            Thread.sleep(100);
+        }
+        assertFalse(ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false));
+    }
+
+    @Test
+    public void TestScanDeadlineApplies() throws IOException {
+        ScanContext scan = new ScanContext("sbom.json", Duration.ofMillis(300));
+
+        ProcessResult result = scan.call(() -> {
+            try {
+                return new ProcessRunner("sleep", "60").timeout(Duration.ofMinutes(5)).run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(ScanOutcome.TIMED_OUT, result.getOutcome());
+        // once the deadline has passed nothing else is started
+        assertEquals(ScanOutcome.TIMED_OUT, scan.call(() -> {
+            try {
+                return new ProcessRunner("sh", "-c", "exit 0").run().getOutcome();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+    }
+
+    @Test
+    public void TestCancellationKillsRunningProcess() throws Exception {
+        ScanContext scan = new ScanContext("sbom.json", null);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread canceller = new Thread(() -> {
+            try {
+                started.await(10, TimeUnit.SECONDS);
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scan.cancel();
+        });
+        canceller.start();
+
+        ProcessResult result = scan.call(() -> {
+            try {
+                return new ProcessRunner("sh", "-c", "echo started; sleep 60").onLine(line -> started.countDown()).run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        canceller.join();
+
+        assertEquals(ScanOutcome.CANCELLED, result.getOutcome());
+        assertTrue(scan.isCancelled());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import cweResolution.ICweResolver;
+import cweResolution.RateLimitedCweResolver;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimitedCweResolverTest {
+
+    /**
+     * Local stand-in for the NVD mirror / GitHub advisory source
+     */
+    private static class StubSource implements ICweResolver {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Set<Thread> callingThreads = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        private StubSource(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public List<String> resolve(String vulnId) {
+            calls.incrementAndGet();
+            callingThreads.add(Thread.currentThread());
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonList("CWE-79");
+        }
+    }
+
+    @Test
+    public void TestGhsaLookupsAreRateLimited() {
+        StubSource source = new StubSource(new CountDownLatch(0));
+        RateLimitedCweResolver resolver = new RateLimitedCweResolver(source, 20, 1, 4);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            ids.add("GHSA-aaaa-bbbb-000" + i);
+        }
+
+        long start = System.nanoTime();
+        Map<String, List<String>> resolved = resolver.resolveAll(ids);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        resolver.close();
+
+        // one token up front, the remaining 8 lookups are spaced 50 ms apart
+        assertEquals(9, resolved.size());
+        assertTrue("GHSA lookups finished too quickly: " + elapsedMillis + " ms", elapsedMillis >= 350);
+    }
+
+    @Test
+    public void TestCveLookupsAreNotThrottled() {
+        StubSource source = new StubSource(new CountDownLatch(0));
+        RateLimitedCweResolver resolver = new RateLimitedCweResolver(source, 0.5, 1, 1);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add("CVE-2021-00" + (10 + i));
+        }
+
+        assertEquals(20, resolver.resolveAll(ids).size());
+        resolver.close();
+        // resolved on the calling thread, without waiting for the rate limited worker pool
+        assertEquals(20, source.calls.get());
+        assertEquals(Collections.singleton(Thread.currentThread()), source.callingThreads);
+    }
+
+    @Test
+    public void TestConcurrentRequestsForSameIdShareOneLookup() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StubSource source = new StubSource(release);
+        RateLimitedCweResolver resolver = new RateLimitedCweResolver(source, 100, 10, 4);
+
+        List<List<String>> results = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread caller = new Thread(() -> results.add(resolver.resolve("GHSA-aaaa-bbbb-cccc")));
+            caller.start();
+            callers.add(caller);
+        }
+        // the lookup is held in the stub until every caller is parked waiting for a result
+        assertTrue(source.started.await(5, TimeUnit.SECONDS));
+        awaitWaiting(callers);
+        release.countDown();
+
+        for (Thread caller : callers) {
+            caller.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        resolver.close();
+        assertEquals(Collections.nCopies(4, Collections.singletonList("CWE-79")), results);
+        assertEquals(1, source.calls.get());
+    }
+
+    private static void awaitWaiting(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            assertTrue("Callers did not wait for the lookup in flight", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import org.junit.Test;
+import pique.analysis.ITool;
+import pique.analysis.Tool;
+import pique.model.Diagnostic;
+import tool.ScanResultCache;
+import utilities.ScanWorkspace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanResultCacheTest {
+
+    /**
+     * Tool whose report is the SBOM's content, counting how often it actually scans
+     */
+    private static class EchoTool extends Tool {
+        private final AtomicInteger scans = new AtomicInteger();
+        private volatile boolean fail;
+
+        EchoTool() {
+            super("grype", null);
+        }
+
+        @Override
+        public Path analyze(Path projectLocation) {
+            scans.incrementAndGet();
+            ScanWorkspace workspace = ScanWorkspace.create("echo");
+            try {
+                Path report = workspace.resolve("grype.json");
+                Files.write(report, Files.readAllBytes(projectLocation));
+                if (fail) {
+                    workspace.markFailed();
+                }
+                return report;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+            ScanWorkspace.release(toolResults, true);
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Path initialize(Path toolRoot) {
+            return toolRoot;
+        }
+    }
+
+    private static Path sbom(String content) throws IOException {
+        Path sbom = Files.createTempFile("sbom", ".json");
+        Files.write(sbom, content.getBytes(StandardCharsets.UTF_8));
+        return sbom;
+    }
+
+    private static ITool cached(ScanResultCache cache, EchoTool tool) {
+        return cache.wrap(Collections.singleton(tool)).iterator().next();
+    }
+
+    @Test
+    public void TestUnchangedSbomIsNotScannedAgain() throws IOException {
+        ScanResultCache cache = new ScanResultCache(Files.createTempDirectory("scan-cache"), 1 << 20, tool -> "0.74.0", tool -> "2024-05-20");
+        EchoTool echo = new EchoTool();
+        ITool tool = cached(cache, echo);
+
+        Path first = tool.analyze(sbom("{\"components\":[]}"));
+        tool.parseAnalysis(first);
+        // same content under another name is a hit
+        Path second = tool.analyze(sbom("{\"components\":[]}"));
+
+        assertEquals(1, echo.scans.get());
+        assertEquals("{\"components\":[]}", new String(Files.readAllBytes(second), StandardCharsets.UTF_8));
+        tool.parseAnalysis(second);
+        assertFalse(Files.exists(second));
+
+        tool.analyze(sbom("{\"components\":[{}]}"));
+        assertEquals(2, echo.scans.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void TestDatabaseVersionIsPartOfKey() throws IOException {
+        Path directory = Files.createTempDirectory("scan-cache");
+        Path sbom = sbom("{}");
+        EchoTool echo = new EchoTool();
+        cached(new ScanResultCache(directory, 1 << 20, tool -> "0.74.0", tool -> "2024-05-20"), echo).analyze(sbom);
+        // a new database build, even with the cache reopened, means a new scan
+        cached(new ScanResultCache(directory, 1 << 20, tool -> "0.74.0", tool -> "2024-05-21"), echo).analyze(sbom);
+        cached(new ScanResultCache(directory, 1 << 20, tool -> "0.74.0", tool -> "2024-05-21"), echo).analyze(sbom);
+
+        assertEquals(2, echo.scans.get());
+    }
+
+    @Test
+    public void TestUnpinnedDatabaseBypassesCache() throws IOException {
+        ScanResultCache cache = new ScanResultCache(Files.createTempDirectory("scan-cache"), 1 << 20, tool -> "0.74.0", tool -> null);
+        EchoTool echo = new EchoTool();
+        Path sbom = sbom("{}");
+        cached(cache, echo).analyze(sbom);
+        cached(cache, echo).analyze(sbom);
+
+        assertEquals(2, echo.scans.get());
+        assertEquals(2, cache.getBypassed());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void TestFailedScanIsNotCached() throws IOException {
+        ScanResultCache cache = new ScanResultCache(Files.createTempDirectory("scan-cache"), 1 << 20, tool -> "0.74.0", tool -> "2024-05-20");
+        EchoTool echo = new EchoTool();
+        echo.fail = true;
+        cached(cache, echo).analyze(sbom("{}"));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void TestLeastRecentlyUsedIsEvicted() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("scan-cache");
+        // room for two reports of 100 bytes
+        ScanResultCache cache = new ScanResultCache(directory, 250, tool -> "0.74.0", tool -> "2024-05-20");
+        EchoTool echo = new EchoTool();
+        ITool tool = cached(cache, echo);
+        Path a = sbom(String.format("%100s", "a"));
+        Path b = sbom(String.format("%100s", "b"));
+        Path c = sbom(String.format("%100s", "c"));
+
+        tool.analyze(a);
+        Thread.sleep(20);
+        tool.analyze(b);
+        Thread.sleep(20);
+        tool.analyze(a);
+        Thread.sleep(20);
+        tool.analyze(c);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.getBytes() <= 250);
+        // b was used least recently, a is still cached
+        tool.analyze(a);
+        assertEquals(3, echo.scans.get());
+        tool.analyze(b);
+        assertEquals(4, echo.scans.get());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import org.junit.After;
+import org.junit.Test;
+import utilities.ScanWorkspace;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScanWorkspaceTest {
+
+    @After
+    public void resetConfiguration() {
+        ScanWorkspace.configure(new Properties());
+    }
+
+    @Test
+    public void TestWorkspacesAreIsolatedAndDeleted() throws IOException {
+        ScanWorkspace first = ScanWorkspace.create("grype");
+        ScanWorkspace second = ScanWorkspace.create("grype");
+        assertNotEquals(first.getDirectory(), second.getDirectory());
+
+        Path results = first.resolve("grype.json");
+        Files.write(results, "{}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(first, ScanWorkspace.owning(results).orElse(null));
+
+        ScanWorkspace.release(results, true);
+        second.close();
+        assertFalse(Files.exists(first.getDirectory()));
+        assertFalse(Files.exists(second.getDirectory()));
+        assertFalse(ScanWorkspace.owning(results).isPresent());
+    }
+
+    @Test
+    public void TestFailedWorkspaceRetainedWhenConfigured() throws IOException {
+        Path root = Files.createTempDirectory("workspaces");
+        Properties prop = new Properties();
+        prop.setProperty("workspace.directory", root.toString());
+        prop.setProperty("workspace.retain-on-failure", "true");
+        ScanWorkspace.configure(prop);
+
+        ScanWorkspace failed = ScanWorkspace.create("trivy");
+        Files.write(failed.resolve("trivy.json"), "{".getBytes(StandardCharsets.UTF_8));
+        ScanWorkspace.release(failed.resolve("trivy.json"), false);
+        assertTrue(Files.exists(failed.resolve("trivy.json")));
+        assertEquals(root.toAbsolutePath(), failed.getDirectory().getParent());
+
+        ScanWorkspace succeeded = ScanWorkspace.create("trivy");
+        succeeded.close();
+        assertFalse(Files.exists(succeeded.getDirectory()));
+    }
+
+    @Test
+    public void TestPublishMovesFileOutOfWorkspace() throws IOException {
+        Path target = Files.createTempDirectory("sboms").resolve("nested").resolve("sbom.json");
+        try (ScanWorkspace workspace = ScanWorkspace.create("syft-sbom")) {
+            Path sbom = workspace.resolve("sbom.json");
+            Files.write(sbom, "{}".getBytes(StandardCharsets.UTF_8));
+            workspace.publish(sbom, target);
+            assertFalse(Files.exists(sbom));
+        }
+        assertEquals("{}", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import model.SbomDiagnostic;
+import org.junit.Test;
+import pique.analysis.ITool;
+import pique.analysis.Tool;
+import pique.model.Diagnostic;
+import tool.ToolRunner;
+import utilities.ScanContext;
+import utilities.ScanOutcome;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ToolRunnerTest {
+
+    /**
+     * Tool that takes a fixed time to run and reports a single diagnostic
+     */
+    private static class SlowTool extends Tool {
+        private final long millis;
+
+        SlowTool(String name, long millis) {
+            super(name, null);
+            this.millis = millis;
+        }
+
+        @Override
+        public Path analyze(Path projectLocation) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return projectLocation;
+        }
+
+        @Override
+        public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+            if (getName().equals("broken")) {
+                throw new IllegalStateException("unreadable output");
+            }
+            String name = "CWE-79 " + getName() + " Diagnostic";
+            return Collections.singletonMap(name, new SbomDiagnostic(name, "", getName(), new HashSet<>()));
+        }
+
+        @Override
+        public Path initialize(Path toolRoot) {
+            return toolRoot;
+        }
+    }
+
+    @Test
+    public void TestToolsRunConcurrently() {
+        List<ITool> tools = Arrays.asList(new SlowTool("grype", 400), new SlowTool("trivy", 400), new SlowTool("cve_bin_tool", 400));
+
+        long start = System.nanoTime();
+        List<Map<String, Diagnostic>> diagnostics = new ToolRunner(3).runEach(tools, tool -> tool.parseAnalysis(tool.analyze(null)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3, diagnostics.size());
+        assertTrue(diagnostics.get(2).containsKey("CWE-79 trivy Diagnostic"));
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 1000);
+    }
+
+    @Test
+    public void TestSequentialMatchesConcurrent() {
+        List<ITool> tools = Arrays.asList(new SlowTool("grype", 10), new SlowTool("trivy", 10));
+
+        List<Map<String, Diagnostic>> sequential = new ToolRunner(1).runEach(tools, tool -> tool.parseAnalysis(tool.analyze(null)));
+        List<Map<String, Diagnostic>> concurrent = new ToolRunner(2).runEach(tools, tool -> tool.parseAnalysis(tool.analyze(null)));
+
+        assertEquals(sequential.size(), concurrent.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).keySet(), concurrent.get(i).keySet());
+        }
+    }
+
+    @Test
+    public void TestEachToolsDiagnosticsInNameOrder() {
+        // trivy finishes first but is still reported after grype
+        List<ITool> tools = Arrays.asList(new SlowTool("trivy", 10), new SlowTool("grype", 300));
+
+        List<Map<String, Diagnostic>> diagnostics = new ToolRunner(2).runEach(tools, tool -> tool.parseAnalysis(tool.analyze(null)));
+
+        assertEquals(2, diagnostics.size());
+        assertTrue(diagnostics.get(0).keySet().iterator().next().contains("grype"));
+        assertTrue(diagnostics.get(1).keySet().iterator().next().contains("trivy"));
+    }
+
+    @Test
+    public void TestToolFailureIsReported() {
+        List<ITool> tools = Arrays.asList(new SlowTool("grype", 10), new SlowTool("broken", 10));
+        try {
+            new ToolRunner(2).runEach(tools, tool -> tool.parseAnalysis(tool.analyze(null)));
+            fail("expected the failing tool to be reported");
+        } catch (IllegalStateException e) {
+            assertEquals("unreadable output", e.getMessage());
+        }
+    }
+
+    @Test
+    public void TestScanContextReachesToolThreads() {
+        ScanContext scan = new ScanContext("sbom.json", Duration.ofMinutes(1));
+        List<ITool> tools = Arrays.asList(new SlowTool("grype", 10), new SlowTool("trivy", 10));
+
+        scan.call(() -> new ToolRunner(2).runEach(tools, tool -> {
+            ScanContext.report(tool.getName(), ScanOutcome.COMPLETED);
+            return tool.parseAnalysis(tool.analyze(null));
+        }));
+
+        assertEquals(2, scan.getToolOutcomes().size());
+        assertEquals(ScanOutcome.COMPLETED, scan.getOutcome());
+    }
+
+    @Test
+    public void TestToolsAreSkippedOnceScanIsCancelled() {
+        ScanContext scan = new ScanContext("sbom.json", null);
+        List<ITool> tools = Arrays.asList(new SlowTool("grype", 10), new SlowTool("trivy", 10));
+
+        // the first tool cancels the scan, the second one must not start
+        List<Map<String, Diagnostic>> diagnostics = scan.call(() -> new ToolRunner(1).runEach(tools, tool -> {
+            scan.cancel();
+            return tool.parseAnalysis(tool.analyze(null));
+        }));
+
+        assertEquals(1, diagnostics.get(0).size());
+        assertTrue(diagnostics.get(1).isEmpty());
+        assertEquals(ScanOutcome.CANCELLED, scan.getToolOutcomes().get("trivy"));
+        assertEquals(ScanOutcome.CANCELLED, scan.getOutcome());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import org.junit.Test;
+import tool.TrivyReportReader;
+import toolOutputObjects.RawVulnerabilityData;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrivyReportReaderTest {
+
+    private static final String REPORT = "{\"SchemaVersion\":2,\"ArtifactName\":\"sbom.json\",\"Metadata\":{\"OS\":{\"Family\":\"alpine\"}},"
+            + "\"Results\":["
+            + "{\"Target\":\"alpine 3.14\",\"Class\":\"os-pkgs\",\"Vulnerabilities\":["
+            + "{\"VulnerabilityID\":\"CVE-2022-0778\",\"PkgName\":\"libssl1.1\",\"InstalledVersion\":\"1.1.1l-r0\","
+            + "\"Severity\":\"HIGH\",\"CweIDs\":[\"CWE-835\"],\"References\":[\"https://example.com\"],"
+            + "\"CVSS\":{\"nvd\":{\"V3Score\":7.5}}}],\"Type\":\"alpine\"},"
+            + "{\"Target\":\"Node.js\",\"Class\":\"lang-pkgs\",\"Type\":\"node-pkg\"},"
+            + "{\"Target\":\"Node.js\",\"Class\":\"lang-pkgs\",\"Vulnerabilities\":null},"
+            + "{\"Target\":\"package-lock.json\",\"Class\":\"lang-pkgs\",\"Vulnerabilities\":["
+            + "{\"Severity\":\"CRITICAL\",\"VulnerabilityID\":\"GHSA-xvch-5gv4-984h\",\"PkgName\":\"minimist\",\"InstalledVersion\":\"1.2.5\"},"
+            + "{\"VulnerabilityID\":\"CVE-2021-23337\",\"PkgName\":\"lodash\",\"PkgIdentifier\":{\"PURL\":\"pkg:npm/lodash@4.17.20\",\"UID\":\"1\"},\"InstalledVersion\":\"4.17.20\",\"Severity\":\"HIGH\"}]}"
+            + "]}";
+
+    @Test
+    public void TestReadsEveryResult() throws IOException {
+        List<RawVulnerabilityData> vulnerabilities = readAll(REPORT);
+
+        assertEquals(3, vulnerabilities.size());
+        assertEquals("CVE-2022-0778", vulnerabilities.get(0).getVulnerabilityId());
+        assertEquals("HIGH", vulnerabilities.get(0).getSeverity());
+        assertEquals("libssl1.1", vulnerabilities.get(0).getPackageName());
+        assertEquals("1.1.1l-r0", vulnerabilities.get(0).getPackageVersion());
+        assertEquals(Collections.singletonList("CWE-835"), vulnerabilities.get(0).getPayloadCwes());
+        assertEquals(Collections.emptyList(), vulnerabilities.get(1).getPayloadCwes());
+        assertEquals("GHSA-xvch-5gv4-984h", vulnerabilities.get(1).getVulnerabilityId());
+        assertEquals("CRITICAL", vulnerabilities.get(1).getSeverity());
+        assertEquals("CVE-2021-23337", vulnerabilities.get(2).getVulnerabilityId());
+        assertEquals("lodash", vulnerabilities.get(2).getPackageName());
+        assertEquals("pkg:npm/lodash@4.17.20", vulnerabilities.get(2).getPurl());
+        assertEquals("", vulnerabilities.get(0).getPurl());
+    }
+
+    @Test
+    public void TestReportWithoutVulnerabilities() throws IOException {
+        assertEquals(0, readAll("{\"SchemaVersion\":2,\"ArtifactName\":\"empty.json\"}").size());
+        assertEquals(0, readAll("{\"Results\":[]}").size());
+        assertEquals(0, readAll("{\"Results\":[{\"Target\":\"Node.js\",\"Class\":\"lang-pkgs\"}]}").size());
+    }
+
+    private static List<RawVulnerabilityData> readAll(String report) throws IOException {
+        List<RawVulnerabilityData> vulnerabilities = new ArrayList<>();
+        try (TrivyReportReader reader = new TrivyReportReader(new StringReader(report))) {
+            reader.forEachRemaining(vulnerabilities::add);
+        }
+        return vulnerabilities;
+    }
+}
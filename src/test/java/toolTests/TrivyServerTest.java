@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tool.TrivyServer;
+import utilities.ProcessRunner;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrivyServerTest {
+    private HttpServer healthEndpoint;
+    private final AtomicBoolean healthy = new AtomicBoolean();
+    private final AtomicInteger healthChecks = new AtomicInteger();
+    private String listen;
+
+    /**
+     * Stands in for the health endpoint of a trivy server on localhost, answering as the test dictates
+     */
+    @Before
+    public void startHealthEndpoint() throws IOException {
+        healthEndpoint = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        healthEndpoint.createContext("/healthz", exchange -> {
+            healthChecks.incrementAndGet();
+            exchange.sendResponseHeaders(healthy.get() ? 200 : 503, -1);
+            exchange.close();
+        });
+        healthEndpoint.start();
+        listen = "127.0.0.1:" + healthEndpoint.getAddress().getPort();
+    }
+
+    @After
+    public void stopHealthEndpoint() {
+        healthEndpoint.stop(0);
+    }
+
+    /**
+     * Server process that becomes healthy as soon as it is started
+     */
+    private ProcessRunner startServer() {
+        healthy.set(true);
+        return new ProcessRunner("sleep", "60").unscoped();
+    }
+
+    @Test
+    public void TestRunningServerIsReused() {
+        healthy.set(true);
+        try (TrivyServer server = new TrivyServer(listen, this::startServer, Duration.ofSeconds(10))) {
+            assertEquals(Optional.of("http://" + listen), server.ensureRunning());
+            assertEquals(0, server.getStarts());
+        }
+    }
+
+    @Test
+    public void TestServerIsStartedOnceAndRestartedWhenUnhealthy() {
+        try (TrivyServer server = new TrivyServer(listen, this::startServer, Duration.ofSeconds(10), Duration.ZERO)) {
+            assertEquals(Optional.of("http://" + listen), server.ensureRunning());
+            assertEquals(Optional.of("http://" + listen), server.ensureRunning());
+            assertEquals(1, server.getStarts());
+
+            // the server stops answering for longer than the grace period
+            healthy.set(false);
+            assertTrue(server.ensureRunning().isPresent());
+            assertEquals(2, server.getStarts());
+        }
+    }
+
+    @Test
+    public void TestRecentHealthCheckIsTrusted() {
+        healthy.set(true);
+        try (TrivyServer server = new TrivyServer(listen, this::startServer, Duration.ofSeconds(10), Duration.ofMinutes(1))) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Optional.of("http://" + listen), server.ensureRunning());
+            }
+            assertEquals(1, healthChecks.get());
+        }
+    }
+
+    @Test
+    public void TestHealthyServerIsUsedWhileAnotherScanHoldsTheLock() throws InterruptedException, ExecutionException, TimeoutException {
+        healthy.set(true);
+        try (TrivyServer server = new TrivyServer(listen, this::startServer, Duration.ofSeconds(10), Duration.ZERO)) {
+            // stands in for a scan busy starting the server
+            synchronized (server) {
+                CompletableFuture<Optional<String>> url = CompletableFuture.supplyAsync(server::ensureRunning);
+                assertEquals(Optional.of("http://" + listen), url.get(10, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void TestFallsBackWhenServerNeverBecomesHealthy() {
+        try (TrivyServer server = new TrivyServer(listen, () -> new ProcessRunner("sleep", "60").unscoped(), Duration.ofMillis(500))) {
+            assertFalse(server.ensureRunning().isPresent());
+            // no new attempt right after a failed start
+            assertFalse(server.ensureRunning().isPresent());
+            assertEquals(1, server.getStarts());
+        }
+    }
+
+    @Test
+    public void TestFallsBackWhenServerCannotStart() {
+        try (TrivyServer server = new TrivyServer(listen, () -> new ProcessRunner("pique-no-such-trivy"), Duration.ofSeconds(1))) {
+            assertFalse(server.ensureRunning().isPresent());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package toolTests;
+
+import org.junit.Test;
+import tool.VulnerabilityDbManager;
+import tool.VulnerabilityDbManager.DbStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VulnerabilityDbManagerTest {
+
+    @Test
+    public void TestParseGrypeStatus() {
+        String text = "Location:  /root/.cache/grype/db/5\nBuilt:     2024-05-20 01:31:21 +0000 UTC\nSchema:    5\nStatus:    valid\n";
+        assertEquals("2024-05-20 01:31:21 +0000 UTC", VulnerabilityDbManager.parseBuildTime("grype", text));
+
+        String json = "{\n  \"schemaVersion\": \"v6.0.2\",\n  \"built\": \"2025-01-30T01:30:56Z\",\n  \"valid\": true\n}";
+        assertEquals("2025-01-30T01:30:56Z", VulnerabilityDbManager.parseBuildTime("grype", json));
+    }
+
+    @Test
+    public void TestParseTrivyVersion() {
+        String text = "Version: 0.51.1\nVulnerability DB:\n  Version: 2\n  UpdatedAt: 2024-05-20 06:12:05.3 +0000 UTC\n"
+                + "  NextUpdate: 2024-05-21 06:12:05.3 +0000 UTC\nJava DB:\n  Version: 1\n  UpdatedAt: 2024-05-19 01:02:03 +0000 UTC\n";
+        // the vulnerability DB comes first, not the Java DB
+        assertEquals("2024-05-20 06:12:05.3 +0000 UTC", VulnerabilityDbManager.parseBuildTime("trivy", text));
+        assertNull(VulnerabilityDbManager.parseBuildTime("trivy", "Version: 0.51.1\n"));
+    }
+
+    @Test
+    public void TestStatusRoundTrip() throws IOException {
+        Path statusFile = Files.createTempDirectory("db-status").resolve(VulnerabilityDbManager.STATUS_FILE);
+        Instant refreshedAt = Instant.parse("2024-05-20T07:00:00Z");
+        Map<String, DbStatus> statuses = new TreeMap<>();
+        statuses.put("grype", new DbStatus("grype", "2024-05-20 01:31:21 +0000 UTC", refreshedAt));
+        statuses.put("trivy", new DbStatus("trivy", "2024-05-20 06:12:05.3 +0000 UTC", null));
+
+        VulnerabilityDbManager.writeStatus(statusFile, statuses);
+        Map<String, DbStatus> read = VulnerabilityDbManager.readStatus(statusFile);
+
+        assertEquals(2, read.size());
+        assertEquals("2024-05-20 01:31:21 +0000 UTC", read.get("grype").getBuilt());
+        assertEquals(refreshedAt, read.get("grype").getRefreshedAt());
+        assertNull(read.get("trivy").getRefreshedAt());
+    }
+
+    @Test
+    public void TestUnreadableStatusIsIgnored() throws IOException {
+        Path statusFile = Files.createTempFile("db-status", ".json");
+        Files.write(statusFile, "not json".getBytes());
+        assertTrue(VulnerabilityDbManager.readStatus(statusFile).isEmpty());
+    }
+
+    @Test
+    public void TestAutoModeLeavesUpdatesToTools() throws IOException {
+        Path resultsDir = Files.createTempDirectory("db-results");
+        VulnerabilityDbManager manager = new VulnerabilityDbManager(false, Duration.ZERO, Paths.get("/data/db"), "");
+
+        assertTrue(manager.refresh(Arrays.asList("grype", "trivy"), resultsDir).isEmpty());
+        assertFalse(Files.exists(resultsDir.resolve(VulnerabilityDbManager.STATUS_FILE)));
+        assertFalse(manager.isPinned("grype"));
+        assertEquals("daily", manager.cveBinToolUpdateMode());
+        assertEquals(Collections.singletonMap("GRYPE_DB_CACHE_DIR", Paths.get("/data/db/grype").toString()), manager.grypeEnvironment());
+        assertEquals(Arrays.asList("--cache-dir", Paths.get("/data/db/trivy").toString()), manager.trivyOptions());
+    }
+}